@@ -1,11 +1,16 @@
 import http from "k6/http";
 import { check, sleep } from "k6";
 
+// PEAK_VUS and SLEEP (seconds between iterations) let the same script model many slow,
+// connection-heavy clients, e.g. PEAK_VUS=2000 SLEEP=1 to compare the thread modes.
+const PEAK_VUS = Number(__ENV.PEAK_VUS || 50);
+const SLEEP = Number(__ENV.SLEEP || 0.05);
+
 export const options = {
   stages: [
     { duration: "30s", target: 5 },   // warmup
     { duration: "2m", target: 20 },   // steady
-    { duration: "2m", target: 50 },   // ramp
+    { duration: "2m", target: PEAK_VUS }, // ramp
     { duration: "30s", target: 0 },   // cool down
   ],
   thresholds: {
@@ -17,6 +22,21 @@ export const options = {
 const BASE = __ENV.BASE_URL || "http://localhost:5000";
 const DEBIT_ACCOUNT = __ENV.DEBIT_ACCOUNT_ID;
 const CREDIT_ACCOUNT = __ENV.CREDIT_ACCOUNT_ID;
+// SHARDS=8 splits both accounts into sub-balances before the run, to compare with the
+// unsharded hot-account baseline.
+const SHARDS = Number(__ENV.SHARDS || 0);
+
+export function setup() {
+  if (SHARDS < 2) {
+    return;
+  }
+  for (const id of [DEBIT_ACCOUNT, CREDIT_ACCOUNT]) {
+    const res = http.put(`${BASE}/accounts/${id}/shards`, JSON.stringify({ shards: SHARDS }), {
+      headers: { "Content-Type": "application/json" },
+    });
+    check(res, { "shards status is 200": (r) => r.status === 200 });
+  }
+}
 
 function postTransaction(idempotencyKey) {
   const payload = JSON.stringify({
@@ -54,5 +74,5 @@ export default function () {
     });
   }
 
-  sleep(0.05);
+  sleep(SLEEP);
 }
@@ -0,0 +1,45 @@
+package com.example.ledger.domain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BalanceValidatorBenchmark {
+
+    @Param({"2", "20", "200"})
+    int entryCount;
+
+    private List<BalanceEntry> entries;
+
+    @Setup
+    public void setUp() {
+        entries = new ArrayList<>(entryCount);
+        for (int i = 0; i < entryCount; i++) {
+            entries.add(new BalanceEntry(i % 2 == 0 ? Direction.DEBIT : Direction.CREDIT, 100));
+        }
+    }
+
+    @Benchmark
+    public List<BalanceEntry> validateBalanced() {
+        BalanceValidator.validateBalanced(entries);
+        return entries;
+    }
+}
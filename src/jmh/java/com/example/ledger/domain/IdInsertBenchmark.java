@@ -0,0 +1,141 @@
+package com.example.ledger.domain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entry inserts into a SQLite file that already holds {@code preloadRows} entries, with ids from
+ * each {@link IdGenerator}. The table has the primary key and transaction index of {@code entries}
+ * and the write pool's PRAGMAs.
+ * <p>
+ * SQLite does not count page splits, so the trial ends by printing how many pages the primary-key
+ * index grew by per 1000 inserted rows (each split adds one) and how full its pages are.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class IdInsertBenchmark {
+    private static final int ENTRIES_PER_COMMIT = 100;
+    private static final String PRIMARY_KEY_INDEX = "sqlite_autoindex_entries_1";
+
+    @Param({"time_ordered", "random"})
+    String generator;
+
+    @Param({"1000000"})
+    int preloadRows;
+
+    private Path directory;
+    private Connection connection;
+    private PreparedStatement insert;
+    private IdGenerator ids;
+    private long insertedRows;
+    private long preloadedPages;
+
+    @Setup
+    public void setUp() throws IOException, SQLException {
+        ids = "random".equals(generator) ? new RandomIdGenerator() : new TimeOrderedIdGenerator();
+        directory = Files.createTempDirectory("ledger-ids");
+        connection = DriverManager.getConnection("jdbc:sqlite:" + directory.resolve("ledger.db"));
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("PRAGMA journal_mode = WAL");
+            statement.execute("PRAGMA synchronous = NORMAL");
+            statement.execute("PRAGMA cache_size = -16384");
+            statement.execute("CREATE TABLE entries (id TEXT PRIMARY KEY, transaction_id TEXT NOT NULL, "
+                + "account_id TEXT NOT NULL, direction TEXT NOT NULL, amount INTEGER NOT NULL)");
+            statement.execute("CREATE INDEX idx_entries_transaction_covering "
+                + "ON entries (transaction_id, id, account_id, direction, amount)");
+        }
+        connection.setAutoCommit(false);
+        insert = connection.prepareStatement(
+            "INSERT INTO entries (id, transaction_id, account_id, direction, amount) VALUES (?, ?, ?, ?, ?)");
+        for (int rows = 0; rows < preloadRows; rows += ENTRIES_PER_COMMIT) {
+            insertEntries();
+        }
+        insertedRows = 0;
+        preloadedPages = indexPages()[0];
+    }
+
+    @TearDown
+    public void tearDown() throws IOException, SQLException {
+        long[] pages = indexPages();
+        System.out.printf("%n%s: %d rows inserted, %.2f primary-key index pages added per 1000 rows, pages %.0f%% full%n",
+            generator, insertedRows, (pages[0] - preloadedPages) * 1000.0 / Math.max(1, insertedRows),
+            pages[1] * 100.0 / Math.max(1, pages[2]));
+        insert.close();
+        connection.close();
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    /**
+     * Commits pairs of entries, one transaction id per pair, as a two-entry posting would.
+     */
+    @Benchmark
+    @OperationsPerInvocation(ENTRIES_PER_COMMIT)
+    public void insert() throws SQLException {
+        insertEntries();
+    }
+
+    private void insertEntries() throws SQLException {
+        for (int i = 0; i < ENTRIES_PER_COMMIT; i += 2) {
+            String transactionId = ids.next();
+            addEntry(transactionId, "cash", "debit");
+            addEntry(transactionId, "revenue", "credit");
+        }
+        insert.executeBatch();
+        connection.commit();
+        insertedRows += ENTRIES_PER_COMMIT;
+    }
+
+    private void addEntry(String transactionId, String accountId, String direction) throws SQLException {
+        insert.setString(1, ids.next());
+        insert.setString(2, transactionId);
+        insert.setString(3, accountId);
+        insert.setString(4, direction);
+        insert.setLong(5, 100);
+        insert.addBatch();
+    }
+
+    /**
+     * Page count, used bytes and total bytes of the primary-key index, from the {@code dbstat} table.
+     */
+    private long[] indexPages() throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+            "SELECT COUNT(*), SUM(pgsize - unused), SUM(pgsize) FROM dbstat WHERE name = ?")) {
+            statement.setString(1, PRIMARY_KEY_INDEX);
+            try (ResultSet rs = statement.executeQuery()) {
+                rs.next();
+                return new long[] {rs.getLong(1), rs.getLong(2), rs.getLong(3)};
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.ledger.service;
+
+import com.example.ledger.LedgerApplication;
+import com.example.ledger.api.AccountRequest;
+import com.example.ledger.api.BatchTransactionItem;
+import com.example.ledger.api.BatchTransactionRequest;
+import com.example.ledger.api.BatchTransactionResponse;
+import com.example.ledger.api.TransactionRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 1,000 two-entry transactions posted one {@link TransactionService#create} at a time against one
+ * {@link TransactionService#createBatch} of 1,000, on the same file-backed database as
+ * {@link TransactionPostingBenchmark}. Scores are per transaction, so their ratio is the batch speedup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchPostingBenchmark {
+    private static final int TRANSACTIONS = 1_000;
+
+    private Path directory;
+    private ConfigurableApplicationContext context;
+    private TransactionService transactionService;
+    private TransactionRequest single;
+    private BatchTransactionRequest batch;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("ledger-bench");
+        context = new SpringApplicationBuilder(LedgerApplication.class)
+            .web(WebApplicationType.NONE)
+            .properties(
+                "spring.datasource.url=jdbc:sqlite:" + directory.resolve("ledger.db"),
+                "spring.liquibase.change-log=classpath:/db/changelog/db.changelog-master.yaml",
+                "logging.level.root=WARN"
+            )
+            .run();
+        transactionService = context.getBean(TransactionService.class);
+        AccountService accountService = context.getBean(AccountService.class);
+        String debit = accountService.create(account("debit")).getId();
+        String credit = accountService.create(account("credit")).getId();
+        single = BenchmarkRequests.balanced(2, debit, credit);
+
+        List<BatchTransactionItem> items = new ArrayList<>(TRANSACTIONS);
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            BatchTransactionItem item = new BatchTransactionItem();
+            item.setName(single.getName());
+            item.setEntries(single.getEntries());
+            items.add(item);
+        }
+        batch = new BatchTransactionRequest();
+        batch.setTransactions(items);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.close();
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TRANSACTIONS)
+    public void singlePosts(Blackhole blackhole) {
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            blackhole.consume(transactionService.create(single, null));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TRANSACTIONS)
+    public BatchTransactionResponse batch() {
+        return transactionService.createBatch(batch);
+    }
+
+    private static AccountRequest account(String direction) {
+        AccountRequest request = new AccountRequest();
+        request.setName(direction);
+        request.setDirection(direction);
+        return request;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.ledger.service;
+
+import com.example.ledger.api.EntryRequest;
+import com.example.ledger.api.TransactionRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+final class BenchmarkRequests {
+    private BenchmarkRequests() {
+    }
+
+    /**
+     * A balanced transaction of {@code entryCount} entries alternating between a debit and a credit.
+     */
+    static TransactionRequest balanced(int entryCount, String debitAccountId, String creditAccountId) {
+        List<EntryRequest> entries = new ArrayList<>(entryCount);
+        for (int i = 0; i < entryCount; i++) {
+            EntryRequest entry = new EntryRequest();
+            boolean debit = i % 2 == 0;
+            entry.setAccountId(debit ? debitAccountId : creditAccountId);
+            entry.setDirection(debit ? "debit" : "credit");
+            entry.setAmount(100L);
+            entries.add(entry);
+        }
+        TransactionRequest request = new TransactionRequest();
+        request.setName("benchmark");
+        request.setEntries(entries);
+        return request;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.ledger.service;
+
+import com.example.ledger.api.TransactionRequest;
+import com.example.ledger.config.IdempotencyProperties.HashAlgorithm;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The request hash is only computed for posts that carry an idempotency key, so there is no
+ * idempotency parameter here; {@link TransactionPostingBenchmark} covers both cases end to end.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestHashBenchmark {
+
+    @Param({"2", "20", "200"})
+    int entryCount;
+
+    @Param({"SHA256", "MURMUR3"})
+    HashAlgorithm algorithm;
+
+    private TransactionRequest request;
+
+    @Setup
+    public void setUp() {
+        request = BenchmarkRequests.balanced(entryCount, UUID.randomUUID().toString(), UUID.randomUUID().toString());
+    }
+
+    @Benchmark
+    public String hash() {
+        return RequestHasher.hash(algorithm, request.getId(), request.getName(), request.getEntries());
+    }
+}
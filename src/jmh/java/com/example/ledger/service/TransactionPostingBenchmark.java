@@ -0,0 +1,94 @@
+package com.example.ledger.service;
+
+import com.example.ledger.LedgerApplication;
+import com.example.ledger.api.AccountRequest;
+import com.example.ledger.api.TransactionRequest;
+import com.example.ledger.api.TransactionResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Full {@link TransactionService#create} against a SQLite database in a temp file, with the
+ * application context wired the same way as in production (minus the web server).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransactionPostingBenchmark {
+
+    @Param({"2", "20", "200"})
+    int entryCount;
+
+    @Param({"false", "true"})
+    boolean idempotent;
+
+    private final AtomicLong keys = new AtomicLong();
+    private Path directory;
+    private ConfigurableApplicationContext context;
+    private TransactionService transactionService;
+    private TransactionRequest request;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("ledger-bench");
+        context = new SpringApplicationBuilder(LedgerApplication.class)
+            .web(WebApplicationType.NONE)
+            .properties(
+                "spring.datasource.url=jdbc:sqlite:" + directory.resolve("ledger.db"),
+                "spring.liquibase.change-log=classpath:/db/changelog/db.changelog-master.yaml",
+                "logging.level.root=WARN"
+            )
+            .run();
+        transactionService = context.getBean(TransactionService.class);
+        AccountService accountService = context.getBean(AccountService.class);
+        String debit = accountService.create(account("debit")).getId();
+        String credit = accountService.create(account("credit")).getId();
+        request = BenchmarkRequests.balanced(entryCount, debit, credit);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.close();
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public TransactionResponse create() {
+        String idempotencyKey = idempotent ? "bench-" + keys.incrementAndGet() : null;
+        return transactionService.create(request, idempotencyKey);
+    }
+
+    private static AccountRequest account(String direction) {
+        AccountRequest request = new AccountRequest();
+        request.setName(direction);
+        request.setDirection(direction);
+        return request;
+    }
+}
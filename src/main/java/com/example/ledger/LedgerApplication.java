@@ -2,10 +2,19 @@ package com.example.ledger;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.util.Arrays;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
+@EnableScheduling
 public class LedgerApplication {
     public static void main(String[] args) {
+        if (args.length > 0 && "verify".equals(args[0])) {
+            System.exit(LedgerVerifyCommand.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
         SpringApplication.run(LedgerApplication.class, args);
     }
 }
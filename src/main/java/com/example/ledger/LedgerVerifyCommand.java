@@ -0,0 +1,53 @@
+package com.example.ledger;
+
+import com.example.ledger.api.VerificationResponse;
+import com.example.ledger.config.ConnectionPoolProperties;
+import com.example.ledger.config.DataSourceConfig;
+import com.example.ledger.config.LedgerVerifierProperties;
+import com.example.ledger.config.StatementRegistry;
+import com.example.ledger.repository.EntryRepository;
+import com.example.ledger.repository.LedgerVerificationRepository;
+import com.example.ledger.service.LedgerVerifier;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+
+/**
+ * The {@code verify} command: verifies the whole ledger in a context of its own and exits.
+ * <p>
+ * The context holds only the two pools, the verifier and the repositories it reads. The journal,
+ * the caches, the scheduled jobs and the web server are left out, so the command can run next to a
+ * live instance without replaying or deleting that instance's journal segments. Not a
+ * {@code @Configuration}, so that the service's component scan does not pick it up.
+ */
+@EnableAutoConfiguration
+@EnableConfigurationProperties({ConnectionPoolProperties.class, LedgerVerifierProperties.class})
+@Import({
+    DataSourceConfig.class,
+    StatementRegistry.class,
+    EntryRepository.class,
+    LedgerVerificationRepository.class,
+    LedgerVerifier.class
+})
+class LedgerVerifyCommand {
+
+    /**
+     * Runs the verification and returns the exit status: 0 when the ledger is consistent, 1 when
+     * there are findings.
+     */
+    static int run(String[] args) {
+        SpringApplication application = new SpringApplication(LedgerVerifyCommand.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        try (ConfigurableApplicationContext context = application.run(args)) {
+            VerificationResponse verification = context.getBean(LedgerVerifier.class).verify();
+            System.out.printf("verification %d: %d entries, %d findings%n",
+                verification.getId(), verification.getHighWaterSequence(), verification.getFindingCount());
+            verification.getFindings().forEach(finding -> System.out.printf("%s %s expected %d actual %d%n",
+                finding.getKind(), finding.getSubject(), finding.getExpected(), finding.getActual()));
+            return verification.getFindingCount() == 0 ? 0 : 1;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.ledger.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+public class AccountPageResponse {
+    private final List<AccountResponse> accounts;
+    @JsonProperty("next_cursor")
+    private final String nextCursor;
+
+    public AccountPageResponse(List<AccountResponse> accounts, String nextCursor) {
+        this.accounts = accounts;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<AccountResponse> getAccounts() {
+        return accounts;
+    }
+
+    /**
+     * Pass as {@code cursor} to fetch the next page; null on the last page.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
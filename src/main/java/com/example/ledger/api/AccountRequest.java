@@ -16,6 +16,16 @@ public class AccountRequest {
     @NotBlank
     private String direction;
 
+    /**
+     * Lowest balance postings may leave, e.g. 0 for an account that must not be overdrawn.
+     */
+    private Long floor;
+
+    /**
+     * Highest balance postings may leave.
+     */
+    private Long ceiling;
+
     public String getId() {
         return id;
     }
@@ -47,4 +57,20 @@ public class AccountRequest {
     public void setDirection(String direction) {
         this.direction = direction;
     }
+
+    public Long getFloor() {
+        return floor;
+    }
+
+    public void setFloor(Long floor) {
+        this.floor = floor;
+    }
+
+    public Long getCeiling() {
+        return ceiling;
+    }
+
+    public void setCeiling(Long ceiling) {
+        this.ceiling = ceiling;
+    }
 }
@@ -1,16 +1,30 @@
 package com.example.ledger.api;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 public class AccountResponse {
     private String id;
     private String name;
     private String direction;
     private long balance;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long floor;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long ceiling;
 
     public AccountResponse(String id, String name, String direction, long balance) {
+        this(id, name, direction, balance, null, null);
+    }
+
+    @JsonCreator
+    public AccountResponse(String id, String name, String direction, long balance, Long floor, Long ceiling) {
         this.id = id;
         this.name = name;
         this.direction = direction;
         this.balance = balance;
+        this.floor = floor;
+        this.ceiling = ceiling;
     }
 
     public String getId() {
@@ -28,4 +42,12 @@ public class AccountResponse {
     public long getBalance() {
         return balance;
     }
+
+    public Long getFloor() {
+        return floor;
+    }
+
+    public Long getCeiling() {
+        return ceiling;
+    }
 }
@@ -0,0 +1,17 @@
+package com.example.ledger.api;
+
+import jakarta.validation.constraints.NotNull;
+
+public class AccountShardsRequest {
+
+    @NotNull
+    private Integer shards;
+
+    public Integer getShards() {
+        return shards;
+    }
+
+    public void setShards(Integer shards) {
+        this.shards = shards;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.ledger.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class AccountShardsResponse {
+    @JsonProperty("account_id")
+    private final String accountId;
+    private final int shards;
+
+    public AccountShardsResponse(String accountId, int shards) {
+        this.accountId = accountId;
+        this.shards = shards;
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public int getShards() {
+        return shards;
+    }
+}
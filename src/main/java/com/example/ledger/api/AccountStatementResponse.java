@@ -0,0 +1,34 @@
+package com.example.ledger.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+public class AccountStatementResponse {
+    @JsonProperty("account_id")
+    private final String accountId;
+    private final List<StatementEntryResponse> entries;
+    @JsonProperty("next_cursor")
+    private final String nextCursor;
+
+    public AccountStatementResponse(String accountId, List<StatementEntryResponse> entries, String nextCursor) {
+        this.accountId = accountId;
+        this.entries = entries;
+        this.nextCursor = nextCursor;
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public List<StatementEntryResponse> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Pass as {@code cursor} to fetch the next page; null on the last page.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
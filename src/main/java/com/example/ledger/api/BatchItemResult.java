@@ -0,0 +1,62 @@
+package com.example.ledger.api;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchItemResult {
+
+    public static final String CREATED = "created";
+    public static final String REPLAYED = "replayed";
+    public static final String FAILED = "failed";
+    public static final String NOT_APPLIED = "not_applied";
+
+    private final int index;
+    private final String status;
+    private final TransactionResponse transaction;
+    private final String code;
+    private final String message;
+
+    private BatchItemResult(int index, String status, TransactionResponse transaction, String code, String message) {
+        this.index = index;
+        this.status = status;
+        this.transaction = transaction;
+        this.code = code;
+        this.message = message;
+    }
+
+    public static BatchItemResult created(int index, TransactionResponse transaction) {
+        return new BatchItemResult(index, CREATED, transaction, null, null);
+    }
+
+    public static BatchItemResult replayed(int index, TransactionResponse transaction) {
+        return new BatchItemResult(index, REPLAYED, transaction, null, null);
+    }
+
+    public static BatchItemResult failed(int index, String code, String message) {
+        return new BatchItemResult(index, FAILED, null, code, message);
+    }
+
+    public static BatchItemResult notApplied(int index) {
+        return new BatchItemResult(index, NOT_APPLIED, null, null, null);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public TransactionResponse getTransaction() {
+        return transaction;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.ledger.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * A transaction inside a batch. Carries the idempotency key that a single post sends as a header.
+ */
+public class BatchTransactionItem extends TransactionRequest {
+
+    @JsonProperty("idempotency_key")
+    private String idempotencyKey;
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.ledger.api;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public class BatchTransactionRequest {
+
+    /**
+     * When true the batch is applied all-or-nothing; otherwise every valid transaction is applied
+     * and each one gets its own result.
+     */
+    private boolean atomic;
+
+    @NotNull
+    @Size(min = 1)
+    private List<@Valid BatchTransactionItem> transactions;
+
+    public boolean isAtomic() {
+        return atomic;
+    }
+
+    public void setAtomic(boolean atomic) {
+        this.atomic = atomic;
+    }
+
+    public List<BatchTransactionItem> getTransactions() {
+        return transactions;
+    }
+
+    public void setTransactions(List<BatchTransactionItem> transactions) {
+        this.transactions = transactions;
+    }
+}
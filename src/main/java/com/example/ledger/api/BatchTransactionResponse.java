@@ -0,0 +1,24 @@
+package com.example.ledger.api;
+
+import java.util.List;
+
+public class BatchTransactionResponse {
+    private final boolean applied;
+    private final List<BatchItemResult> results;
+
+    public BatchTransactionResponse(boolean applied, List<BatchItemResult> results) {
+        this.applied = applied;
+        this.results = results;
+    }
+
+    /**
+     * False only when an atomic batch was rejected and nothing was written.
+     */
+    public boolean isApplied() {
+        return applied;
+    }
+
+    public List<BatchItemResult> getResults() {
+        return results;
+    }
+}
@@ -1,30 +1,58 @@
 package com.example.ledger.api;
 
 import com.example.ledger.service.AccountService;
+import com.example.ledger.service.AccountShards;
+import com.example.ledger.service.AccountStatementService;
+import com.example.ledger.service.LedgerVerifier;
 import com.example.ledger.service.TransactionService;
+import com.example.ledger.service.TrialBalanceService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 
 @RestController
 @RequestMapping("/")
 public class LedgerController {
 
     private final AccountService accountService;
+    private final AccountShards accountShards;
+    private final AccountStatementService accountStatementService;
     private final TransactionService transactionService;
+    private final TrialBalanceService trialBalanceService;
+    private final LedgerVerifier ledgerVerifier;
+    private final ObjectMapper objectMapper;
 
-    public LedgerController(AccountService accountService, TransactionService transactionService) {
+    public LedgerController(AccountService accountService,
+                            AccountShards accountShards,
+                            AccountStatementService accountStatementService,
+                            TransactionService transactionService,
+                            TrialBalanceService trialBalanceService,
+                            LedgerVerifier ledgerVerifier,
+                            ObjectMapper objectMapper) {
         this.accountService = accountService;
+        this.accountShards = accountShards;
+        this.accountStatementService = accountStatementService;
         this.transactionService = transactionService;
+        this.trialBalanceService = trialBalanceService;
+        this.ledgerVerifier = ledgerVerifier;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping("/accounts")
@@ -34,13 +62,72 @@ public class LedgerController {
     }
 
     @GetMapping("/accounts/{id}")
-    public AccountResponse getAccount(@PathVariable String id) {
+    public AccountResponse getAccount(
+        @PathVariable String id,
+        @RequestParam(value = "as_of", required = false) String asOf
+    ) {
+        if (asOf != null) {
+            return accountStatementService.getBalanceAsOf(id, asOf);
+        }
         return accountService.getById(id);
     }
 
     @GetMapping("/accounts")
-    public List<AccountResponse> getAllAccounts() {
-        return accountService.getAll();
+    public AccountPageResponse getAccounts(
+        @RequestParam(value = "cursor", required = false) String cursor,
+        @RequestParam(value = "limit", required = false) Integer limit
+    ) {
+        return accountService.getPage(cursor, limit);
+    }
+
+    @GetMapping("/accounts/{id}/entries")
+    public AccountStatementResponse getAccountEntries(
+        @PathVariable String id,
+        @RequestParam(value = "cursor", required = false) String cursor,
+        @RequestParam(value = "limit", required = false) Integer limit,
+        @RequestParam(value = "from", required = false) String from,
+        @RequestParam(value = "to", required = false) String to
+    ) {
+        return accountStatementService.getStatement(id, cursor, limit, from, to);
+    }
+
+    /**
+     * Spreads future postings to a hot account over {@code shards} sub-balances.
+     */
+    @PutMapping("/accounts/{id}/shards")
+    public AccountShardsResponse shardAccount(@PathVariable String id, @Valid @RequestBody AccountShardsRequest request) {
+        return new AccountShardsResponse(id, accountShards.shard(id, request.getShards()));
+    }
+
+    /**
+     * Folds a sharded account's sub-balances into its account row now instead of at the next
+     * scheduled consolidation. The balance does not change.
+     */
+    @PostMapping("/accounts/{id}/shards/consolidate")
+    public AccountResponse consolidateAccount(@PathVariable String id) {
+        accountShards.consolidate(id);
+        return accountService.getById(id);
+    }
+
+    /**
+     * Streams every account as one JSON object per line, writing each row as it is read.
+     */
+    @GetMapping(value = "/accounts", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAccounts() {
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                accountService.forEach(account -> {
+                    try {
+                        generator.writeObject(account);
+                        generator.writeRaw('\n');
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
 
     @PostMapping("/transactions")
@@ -51,4 +138,35 @@ public class LedgerController {
     ) {
         return transactionService.create(request, idempotencyKey);
     }
+
+    @PostMapping("/transactions/batch")
+    public ResponseEntity<BatchTransactionResponse> createTransactionBatch(@Valid @RequestBody BatchTransactionRequest request) {
+        BatchTransactionResponse response = transactionService.createBatch(request);
+        HttpStatus status = response.isApplied() ? HttpStatus.OK : HttpStatus.UNPROCESSABLE_ENTITY;
+        return ResponseEntity.status(status).body(response);
+    }
+
+    /**
+     * Balances of all debit accounts against all credit accounts, read from counters that postings
+     * keep current instead of from the accounts.
+     */
+    @GetMapping("/ledger/trial-balance")
+    public TrialBalanceResponse getTrialBalance() {
+        return trialBalanceService.get();
+    }
+
+    /**
+     * Starts a full-ledger verification in the background, or resumes the one that was interrupted.
+     * Poll {@code GET /admin/verifications/{id}} for its progress and findings.
+     */
+    @PostMapping("/admin/verifications")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public VerificationResponse startVerification() {
+        return ledgerVerifier.start();
+    }
+
+    @GetMapping("/admin/verifications/{id}")
+    public VerificationResponse getVerification(@PathVariable long id) {
+        return ledgerVerifier.getById(id);
+    }
 }
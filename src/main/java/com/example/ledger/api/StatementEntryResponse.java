@@ -0,0 +1,65 @@
+package com.example.ledger.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class StatementEntryResponse {
+    private final long sequence;
+    private final String id;
+    @JsonProperty("transaction_id")
+    private final String transactionId;
+    private final String direction;
+    private final long amount;
+    @JsonProperty("created_at")
+    private final String createdAt;
+    private final long balance;
+
+    public StatementEntryResponse(long sequence,
+                                  String id,
+                                  String transactionId,
+                                  String direction,
+                                  long amount,
+                                  String createdAt,
+                                  long balance) {
+        this.sequence = sequence;
+        this.id = id;
+        this.transactionId = transactionId;
+        this.direction = direction;
+        this.amount = amount;
+        this.createdAt = createdAt;
+        this.balance = balance;
+    }
+
+    /**
+     * Position of the entry in the ledger; increases with every entry posted.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getTransactionId() {
+        return transactionId;
+    }
+
+    public String getDirection() {
+        return direction;
+    }
+
+    public long getAmount() {
+        return amount;
+    }
+
+    public String getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * Account balance right after this entry.
+     */
+    public long getBalance() {
+        return balance;
+    }
+}
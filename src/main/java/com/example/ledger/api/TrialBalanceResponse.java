@@ -0,0 +1,48 @@
+package com.example.ledger.api;
+
+public class TrialBalanceResponse {
+    private final DirectionTotals debit;
+    private final DirectionTotals credit;
+
+    public TrialBalanceResponse(DirectionTotals debit, DirectionTotals credit) {
+        this.debit = debit;
+        this.credit = credit;
+    }
+
+    public DirectionTotals getDebit() {
+        return debit;
+    }
+
+    public DirectionTotals getCredit() {
+        return credit;
+    }
+
+    /**
+     * Debit account balances minus credit account balances.
+     */
+    public long getDifference() {
+        return debit.getBalance() - credit.getBalance();
+    }
+
+    public boolean isBalanced() {
+        return getDifference() == 0;
+    }
+
+    public static class DirectionTotals {
+        private final long accounts;
+        private final long balance;
+
+        public DirectionTotals(long accounts, long balance) {
+            this.accounts = accounts;
+            this.balance = balance;
+        }
+
+        public long getAccounts() {
+            return accounts;
+        }
+
+        public long getBalance() {
+            return balance;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.ledger.api;
+
+public class VerificationFindingResponse {
+    private final String kind;
+    private final String subject;
+    private final long expected;
+    private final long actual;
+
+    public VerificationFindingResponse(String kind, String subject, long expected, long actual) {
+        this.kind = kind;
+        this.subject = subject;
+        this.expected = expected;
+        this.actual = actual;
+    }
+
+    public String getKind() {
+        return kind;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public long getExpected() {
+        return expected;
+    }
+
+    public long getActual() {
+        return actual;
+    }
+}
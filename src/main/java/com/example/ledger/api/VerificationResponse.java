@@ -0,0 +1,65 @@
+package com.example.ledger.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+public class VerificationResponse {
+    private final long id;
+    private final String status;
+    @JsonProperty("high_water_sequence")
+    private final long highWaterSequence;
+    @JsonProperty("verified_sequence")
+    private final long verifiedSequence;
+    @JsonProperty("started_at")
+    private final String startedAt;
+    @JsonProperty("completed_at")
+    private final String completedAt;
+    @JsonProperty("finding_count")
+    private final int findingCount;
+    private final List<VerificationFindingResponse> findings;
+
+    public VerificationResponse(long id, String status, long highWaterSequence, long verifiedSequence, String startedAt,
+                                String completedAt, int findingCount, List<VerificationFindingResponse> findings) {
+        this.id = id;
+        this.status = status;
+        this.highWaterSequence = highWaterSequence;
+        this.verifiedSequence = verifiedSequence;
+        this.startedAt = startedAt;
+        this.completedAt = completedAt;
+        this.findingCount = findingCount;
+        this.findings = findings;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public long getHighWaterSequence() {
+        return highWaterSequence;
+    }
+
+    public long getVerifiedSequence() {
+        return verifiedSequence;
+    }
+
+    public String getStartedAt() {
+        return startedAt;
+    }
+
+    public String getCompletedAt() {
+        return completedAt;
+    }
+
+    public int getFindingCount() {
+        return findingCount;
+    }
+
+    public List<VerificationFindingResponse> getFindings() {
+        return findings;
+    }
+}
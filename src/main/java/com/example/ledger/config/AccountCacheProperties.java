@@ -0,0 +1,57 @@
+package com.example.ledger.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "ledger.account-cache")
+public class AccountCacheProperties {
+
+    private final Verify verify = new Verify();
+
+    public Verify getVerify() {
+        return verify;
+    }
+
+    public static class Verify {
+
+        /**
+         * Periodically compare the cached accounts against the {@code accounts} table.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Delay between two consistency checks.
+         */
+        private Duration interval = Duration.ofMinutes(5);
+
+        /**
+         * Replace drifted cache entries with the row read from the table.
+         */
+        private boolean repair = false;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getInterval() {
+            return interval;
+        }
+
+        public void setInterval(Duration interval) {
+            this.interval = interval;
+        }
+
+        public boolean isRepair() {
+            return repair;
+        }
+
+        public void setRepair(boolean repair) {
+            this.repair = repair;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.ledger.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "ledger.account-locks")
+public class AccountLockProperties {
+
+    /**
+     * Number of lock stripes account ids are hashed onto. Rounded up to a power of two.
+     */
+    private int stripes = 256;
+
+    public int getStripes() {
+        return stripes;
+    }
+
+    public void setStripes(int stripes) {
+        this.stripes = stripes;
+    }
+}
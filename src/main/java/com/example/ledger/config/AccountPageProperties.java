@@ -0,0 +1,33 @@
+package com.example.ledger.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "ledger.account-page")
+public class AccountPageProperties {
+
+    /**
+     * Accounts per page of {@code GET /accounts} when no {@code limit} is given.
+     */
+    private int defaultSize = 100;
+
+    /**
+     * Largest {@code limit} honoured; larger requests are capped to it.
+     */
+    private int maxSize = 1000;
+
+    public int getDefaultSize() {
+        return defaultSize;
+    }
+
+    public void setDefaultSize(int defaultSize) {
+        this.defaultSize = defaultSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.ledger.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "ledger.account-shards")
+public class AccountShardProperties {
+
+    /**
+     * Most sub-balances one account can be split into.
+     */
+    private int maxShards = 64;
+
+    /**
+     * Delay between passes that fold every sharded account's sub-balances back into its
+     * {@code accounts} row.
+     */
+    private Duration consolidationInterval = Duration.ofMinutes(1);
+
+    public int getMaxShards() {
+        return maxShards;
+    }
+
+    public void setMaxShards(int maxShards) {
+        this.maxShards = maxShards;
+    }
+
+    public Duration getConsolidationInterval() {
+        return consolidationInterval;
+    }
+
+    public void setConsolidationInterval(Duration consolidationInterval) {
+        this.consolidationInterval = consolidationInterval;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.ledger.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "ledger.account-statement")
+public class AccountStatementProperties {
+
+    /**
+     * Entries between two persisted balance checkpoints of an account. A statement page sums at
+     * most this many entries to find its opening balance.
+     */
+    private int checkpointInterval = 1000;
+
+    /**
+     * Entries per page of {@code GET /accounts/{id}/entries} when no {@code limit} is given.
+     */
+    private int defaultSize = 100;
+
+    /**
+     * Largest {@code limit} honoured; larger requests are capped to it.
+     */
+    private int maxSize = 1000;
+
+    public int getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    public void setCheckpointInterval(int checkpointInterval) {
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    public int getDefaultSize() {
+        return defaultSize;
+    }
+
+    public void setDefaultSize(int defaultSize) {
+        this.defaultSize = defaultSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+}
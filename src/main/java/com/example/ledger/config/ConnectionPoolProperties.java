@@ -0,0 +1,124 @@
+package com.example.ledger.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@ConfigurationProperties(prefix = "ledger.connection-pool")
+public class ConnectionPoolProperties {
+
+    /**
+     * Pool used for every write and for reads inside a write transaction. SQLite has one writer at a
+     * time, so more than one connection only moves the queue from the pool to {@code busy_timeout}.
+     */
+    private final Pool write = new Pool(1, pragmas(
+        "journal_mode", "WAL",
+        "synchronous", "NORMAL",
+        "cache_size", "-16384",
+        "mmap_size", "0"));
+
+    /**
+     * Read-only pool for reads outside a transaction; WAL lets these run alongside the writer.
+     */
+    private final Pool read = new Pool(4, pragmas(
+        "query_only", "ON",
+        "cache_size", "-65536",
+        "mmap_size", "268435456"));
+
+    /**
+     * PRAGMAs run on every new connection of both pools, before the pool's own. {@code cache_size}
+     * is negative to give it in KiB rather than pages.
+     */
+    private final Map<String, String> pragmas = pragmas(
+        "foreign_keys", "ON",
+        "busy_timeout", "5000",
+        "temp_store", "MEMORY");
+
+    /**
+     * Prepared statements each connection keeps open for the repositories' fixed SQL; 0 disables
+     * the cache.
+     */
+    private int statementCacheSize = 64;
+
+    public Pool getWrite() {
+        return write;
+    }
+
+    public Pool getRead() {
+        return read;
+    }
+
+    public Map<String, String> getPragmas() {
+        return pragmas;
+    }
+
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    public void setStatementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    /**
+     * The shared PRAGMAs followed by the pool's own, which win when both set the same one.
+     */
+    public Map<String, String> pragmasFor(Pool pool) {
+        Map<String, String> profile = new LinkedHashMap<>(pragmas);
+        profile.putAll(pool.getPragmas());
+        return profile;
+    }
+
+    private static Map<String, String> pragmas(String... namesAndValues) {
+        Map<String, String> pragmas = new LinkedHashMap<>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            pragmas.put(namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return pragmas;
+    }
+
+    public static class Pool {
+
+        /**
+         * Number of connections in the pool.
+         */
+        private int maximumPoolSize;
+
+        /**
+         * How long a caller waits for a free connection before the request fails with 503.
+         */
+        private Duration connectionTimeout = Duration.ofSeconds(30);
+
+        /**
+         * PRAGMAs run on every new connection of this pool.
+         */
+        private final Map<String, String> pragmas;
+
+        Pool(int maximumPoolSize, Map<String, String> pragmas) {
+            this.maximumPoolSize = maximumPoolSize;
+            this.pragmas = pragmas;
+        }
+
+        public int getMaximumPoolSize() {
+            return maximumPoolSize;
+        }
+
+        public void setMaximumPoolSize(int maximumPoolSize) {
+            this.maximumPoolSize = maximumPoolSize;
+        }
+
+        public Duration getConnectionTimeout() {
+            return connectionTimeout;
+        }
+
+        public void setConnectionTimeout(Duration connectionTimeout) {
+            this.connectionTimeout = connectionTimeout;
+        }
+
+        public Map<String, String> getPragmas() {
+            return pragmas;
+        }
+    }
+}
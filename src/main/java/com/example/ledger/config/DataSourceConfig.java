@@ -0,0 +1,72 @@
+package com.example.ledger.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+
+/**
+ * Two pools on the same SQLite database: a writer and a read-only pool for reads outside write
+ * transactions.
+ * <p>
+ * The writer is the primary {@link DataSource}, so Liquibase, the transaction manager and the
+ * default {@link JdbcTemplate} all use it. Each pool opens its connections through a
+ * {@link SqliteConnectionSource}, which applies the pool's PRAGMA profile to every connection and
+ * caches and times the repositories' statements on it.
+ */
+@Configuration
+public class DataSourceConfig {
+    public static final String READ_JDBC_TEMPLATE = "readJdbcTemplate";
+
+    @Bean
+    @Primary
+    public HikariDataSource dataSource(DataSourceProperties dataSourceProperties,
+                                       ConnectionPoolProperties properties,
+                                       StatementRegistry statementRegistry) {
+        return new HikariDataSource(poolConfig("ledger-write", dataSourceProperties, properties, properties.getWrite(), statementRegistry));
+    }
+
+    @Bean
+    public HikariDataSource readDataSource(DataSourceProperties dataSourceProperties,
+                                           ConnectionPoolProperties properties,
+                                           StatementRegistry statementRegistry) {
+        return new HikariDataSource(poolConfig("ledger-read", dataSourceProperties, properties, properties.getRead(), statementRegistry));
+    }
+
+    @Bean
+    @Primary
+    public JdbcTemplate jdbcTemplate(DataSource dataSource) {
+        return new JdbcTemplate(dataSource);
+    }
+
+    @Bean(READ_JDBC_TEMPLATE)
+    public JdbcTemplate readJdbcTemplate(@Qualifier("readDataSource") DataSource readDataSource) {
+        return new JdbcTemplate(readDataSource);
+    }
+
+    private static HikariConfig poolConfig(String name,
+                                           DataSourceProperties dataSourceProperties,
+                                           ConnectionPoolProperties properties,
+                                           ConnectionPoolProperties.Pool pool,
+                                           StatementRegistry statementRegistry) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(name);
+        config.setDataSource(new SqliteConnectionSource(
+            name,
+            dataSourceProperties.determineUrl(),
+            dataSourceProperties.determineDriverClassName(),
+            properties.pragmasFor(pool),
+            statementRegistry,
+            properties.getStatementCacheSize()
+        ));
+        config.setMaximumPoolSize(pool.getMaximumPoolSize());
+        config.setConnectionTimeout(pool.getConnectionTimeout().toMillis());
+        return config;
+    }
+}
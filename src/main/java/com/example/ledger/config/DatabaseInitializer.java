@@ -1,28 +0,0 @@
-package com.example.ledger.config;
-
-import jakarta.annotation.PostConstruct;
-import javax.sql.DataSource;
-import org.springframework.stereotype.Component;
-
-import java.sql.Connection;
-import java.sql.Statement;
-
-@Component
-public class DatabaseInitializer {
-    private final DataSource dataSource;
-
-    public DatabaseInitializer(DataSource dataSource) {
-        this.dataSource = dataSource;
-    }
-
-    @PostConstruct
-    public void initialize() throws Exception {
-        try (Connection connection = dataSource.getConnection();
-             Statement statement = connection.createStatement()) {
-            statement.execute("PRAGMA foreign_keys = ON");
-            statement.execute("PRAGMA journal_mode = WAL");
-            statement.execute("PRAGMA synchronous = NORMAL");
-            statement.execute("PRAGMA busy_timeout = 5000");
-        }
-    }
-}
@@ -0,0 +1,74 @@
+package com.example.ledger.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "ledger.group-commit")
+public class GroupCommitProperties {
+
+    /**
+     * Route transaction writes through a single writer thread that commits them in batches.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Maximum number of writes folded into one SQLite transaction.
+     */
+    private int maxBatchSize = 64;
+
+    /**
+     * How long the writer keeps collecting after the first write of a batch arrives.
+     */
+    private Duration maxWait = Duration.ofMillis(2);
+
+    /**
+     * Capacity of the queue in front of the writer.
+     */
+    private int queueCapacity = 4096;
+
+    /**
+     * How long a request waits for room in a full queue before it is rejected.
+     */
+    private Duration offerTimeout = Duration.ofSeconds(1);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public Duration getMaxWait() {
+        return maxWait;
+    }
+
+    public void setMaxWait(Duration maxWait) {
+        this.maxWait = maxWait;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public Duration getOfferTimeout() {
+        return offerTimeout;
+    }
+
+    public void setOfferTimeout(Duration offerTimeout) {
+        this.offerTimeout = offerTimeout;
+    }
+}
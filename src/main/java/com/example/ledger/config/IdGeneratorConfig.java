@@ -0,0 +1,22 @@
+package com.example.ledger.config;
+
+import com.example.ledger.domain.IdGenerator;
+import com.example.ledger.domain.RandomIdGenerator;
+import com.example.ledger.domain.TimeOrderedIdGenerator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The {@link IdGenerator} picked by {@code ledger.ids.generator}.
+ */
+@Configuration
+public class IdGeneratorConfig {
+
+    @Bean
+    public IdGenerator idGenerator(IdGeneratorProperties properties) {
+        return switch (properties.getGenerator()) {
+            case TIME_ORDERED -> new TimeOrderedIdGenerator();
+            case RANDOM -> new RandomIdGenerator();
+        };
+    }
+}
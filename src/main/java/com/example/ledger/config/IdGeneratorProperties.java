@@ -0,0 +1,32 @@
+package com.example.ledger.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "ledger.ids")
+public class IdGeneratorProperties {
+
+    /**
+     * How the server generates ids that a request leaves out. Existing ids of either kind stay valid
+     * after a switch.
+     */
+    private Generator generator = Generator.TIME_ORDERED;
+
+    public Generator getGenerator() {
+        return generator;
+    }
+
+    public void setGenerator(Generator generator) {
+        this.generator = generator;
+    }
+
+    public enum Generator {
+        /**
+         * Version 7 UUIDs, ordered by creation time.
+         */
+        TIME_ORDERED,
+        /**
+         * Version 4 UUIDs from {@code UUID.randomUUID()}.
+         */
+        RANDOM
+    }
+}
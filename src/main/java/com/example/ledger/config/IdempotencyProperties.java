@@ -0,0 +1,207 @@
+package com.example.ledger.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "ledger.idempotency")
+public class IdempotencyProperties {
+
+    /**
+     * Algorithm used to fingerprint request payloads. Stored fingerprints of either algorithm keep
+     * matching after a switch.
+     */
+    private HashAlgorithm hashAlgorithm = HashAlgorithm.SHA256;
+
+    private final Cache cache = new Cache();
+
+    private final NegativeFilter negativeFilter = new NegativeFilter();
+
+    private final Retention retention = new Retention();
+
+    public HashAlgorithm getHashAlgorithm() {
+        return hashAlgorithm;
+    }
+
+    public void setHashAlgorithm(HashAlgorithm hashAlgorithm) {
+        this.hashAlgorithm = hashAlgorithm;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public NegativeFilter getNegativeFilter() {
+        return negativeFilter;
+    }
+
+    public Retention getRetention() {
+        return retention;
+    }
+
+    public static class Cache {
+
+        /**
+         * Keep recently used keys with their fingerprint and response in memory.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Maximum number of keys held in memory.
+         */
+        private long maximumSize = 100_000;
+
+        /**
+         * How long a key stays cached after it was written or read from the table. Replays answered
+         * from the cache do not extend it, so a key is not served for longer than this after the
+         * retention sweeper has deleted its row.
+         */
+        private Duration ttl = Duration.ofMinutes(10);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getMaximumSize() {
+            return maximumSize;
+        }
+
+        public void setMaximumSize(long maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+    }
+
+    public static class NegativeFilter {
+
+        /**
+         * Skip the database lookup for keys a Bloom filter of all stored keys has never seen.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Number of keys the filter is sized for; beyond it the false positive rate climbs.
+         */
+        private long expectedKeys = 10_000_000;
+
+        /**
+         * Target false positive rate at {@link #expectedKeys}.
+         */
+        private double falsePositiveRate = 0.01;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getExpectedKeys() {
+            return expectedKeys;
+        }
+
+        public void setExpectedKeys(long expectedKeys) {
+            this.expectedKeys = expectedKeys;
+        }
+
+        public double getFalsePositiveRate() {
+            return falsePositiveRate;
+        }
+
+        public void setFalsePositiveRate(double falsePositiveRate) {
+            this.falsePositiveRate = falsePositiveRate;
+        }
+    }
+
+    public static class Retention {
+
+        /**
+         * Periodically delete keys older than {@link #window}. A replay of a deleted key is treated
+         * as a new request.
+         */
+        private boolean enabled = false;
+
+        /**
+         * How long a key is kept after it was first used.
+         */
+        private Duration window = Duration.ofDays(30);
+
+        /**
+         * Delay between the end of one sweep and the start of the next.
+         */
+        private Duration interval = Duration.ofMinutes(10);
+
+        /**
+         * Keys deleted per statement; each chunk commits on its own so the write lock is held briefly.
+         */
+        private int chunkSize = 1000;
+
+        /**
+         * Pause between chunks, leaving the write lock free for postings.
+         */
+        private Duration pause = Duration.ofMillis(20);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getWindow() {
+            return window;
+        }
+
+        public void setWindow(Duration window) {
+            this.window = window;
+        }
+
+        public Duration getInterval() {
+            return interval;
+        }
+
+        public void setInterval(Duration interval) {
+            this.interval = interval;
+        }
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        public Duration getPause() {
+            return pause;
+        }
+
+        public void setPause(Duration pause) {
+            this.pause = pause;
+        }
+    }
+
+    public enum HashAlgorithm {
+        /**
+         * Hex SHA-256, the format every existing {@code idempotency_keys} row uses.
+         */
+        SHA256,
+        /**
+         * Non-cryptographic 128-bit MurmurHash3 (x64 variant), stored with an {@code m3:} prefix.
+         */
+        MURMUR3
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.ledger.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "ledger.journal")
+public class JournalProperties {
+
+    /**
+     * Acknowledge postings once they are durable in the journal and project them into the tables in
+     * the background. Takes precedence over group commit.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Directory holding the journal segment files.
+     */
+    private String directory = "journal";
+
+    /**
+     * Size of each memory-mapped segment file; a record must fit in one segment.
+     */
+    private long segmentSize = 64L * 1024 * 1024;
+
+    /**
+     * Maximum number of postings appended before the journal is flushed to disk.
+     */
+    private int maxBatchSize = 256;
+
+    /**
+     * How long the appender keeps collecting after the first posting of a batch arrives.
+     */
+    private Duration maxWait = Duration.ofMillis(2);
+
+    /**
+     * Capacity of the queue in front of the appender.
+     */
+    private int queueCapacity = 4096;
+
+    /**
+     * How long a request waits for room in a full queue before it is rejected.
+     */
+    private Duration offerTimeout = Duration.ofSeconds(1);
+
+    /**
+     * Maximum number of journal records applied to the tables in one write transaction.
+     */
+    private int projectorBatchSize = 512;
+
+    /**
+     * Records durable in the journal but not yet projected before the appender waits for the projector.
+     */
+    private int projectorBacklog = 65536;
+
+    /**
+     * How long the appender waits for room in a full projector backlog before the journal stops
+     * accepting writes.
+     */
+    private Duration projectorBacklogTimeout = Duration.ofSeconds(30);
+
+    /**
+     * Attempts at applying a batch of records, one second apart, before the journal stops accepting
+     * writes and leaves the records to be replayed on the next start.
+     */
+    private int projectionAttempts = 10;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public long getSegmentSize() {
+        return segmentSize;
+    }
+
+    public void setSegmentSize(long segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public Duration getMaxWait() {
+        return maxWait;
+    }
+
+    public void setMaxWait(Duration maxWait) {
+        this.maxWait = maxWait;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public Duration getOfferTimeout() {
+        return offerTimeout;
+    }
+
+    public void setOfferTimeout(Duration offerTimeout) {
+        this.offerTimeout = offerTimeout;
+    }
+
+    public int getProjectorBatchSize() {
+        return projectorBatchSize;
+    }
+
+    public void setProjectorBatchSize(int projectorBatchSize) {
+        this.projectorBatchSize = projectorBatchSize;
+    }
+
+    public int getProjectorBacklog() {
+        return projectorBacklog;
+    }
+
+    public void setProjectorBacklog(int projectorBacklog) {
+        this.projectorBacklog = projectorBacklog;
+    }
+
+    public Duration getProjectorBacklogTimeout() {
+        return projectorBacklogTimeout;
+    }
+
+    public void setProjectorBacklogTimeout(Duration projectorBacklogTimeout) {
+        this.projectorBacklogTimeout = projectorBacklogTimeout;
+    }
+
+    public int getProjectionAttempts() {
+        return projectionAttempts;
+    }
+
+    public void setProjectionAttempts(int projectionAttempts) {
+        this.projectionAttempts = projectionAttempts;
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.ledger.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "ledger.archive")
+public class LedgerArchiveProperties {
+
+    /**
+     * Periodically move closed months of transactions, entries and idempotency keys out of the hot
+     * database into one SQLite file per month. Archives already made are searched either way.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Directory holding the archive files.
+     */
+    private String directory = "archive";
+
+    /**
+     * Whole calendar months, before the current one, that stay in the hot database.
+     */
+    private int keepMonths = 3;
+
+    /**
+     * Delay between the end of one archiving pass and the start of the next.
+     */
+    private Duration interval = Duration.ofHours(1);
+
+    /**
+     * Transactions copied or deleted per chunk; each chunk commits on its own so the write lock is
+     * held briefly.
+     */
+    private int chunkSize = 1000;
+
+    /**
+     * Pause between chunks, leaving the write lock free for postings.
+     */
+    private Duration pause = Duration.ofMillis(20);
+
+    /**
+     * False positive rate of the in-memory filter kept per archive over its transaction ids and
+     * idempotency keys; a positive costs one lookup in the archive file.
+     */
+    private double falsePositiveRate = 0.01;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public int getKeepMonths() {
+        return keepMonths;
+    }
+
+    public void setKeepMonths(int keepMonths) {
+        this.keepMonths = keepMonths;
+    }
+
+    public Duration getInterval() {
+        return interval;
+    }
+
+    public void setInterval(Duration interval) {
+        this.interval = interval;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public Duration getPause() {
+        return pause;
+    }
+
+    public void setPause(Duration pause) {
+        this.pause = pause;
+    }
+
+    public double getFalsePositiveRate() {
+        return falsePositiveRate;
+    }
+
+    public void setFalsePositiveRate(double falsePositiveRate) {
+        this.falsePositiveRate = falsePositiveRate;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.ledger.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "ledger.verifier")
+public class LedgerVerifierProperties {
+
+    /**
+     * Entry ranges read at the same time, each on its own read-only connection, so never more than
+     * the read pool holds. 0 means one per core, but at most one less than the read pool, leaving a
+     * connection for the API.
+     */
+    private int parallelism = 0;
+
+    /**
+     * Largest range of entry sequence numbers a single task reads; larger ranges are split in two.
+     */
+    private int leafSize = 100_000;
+
+    /**
+     * Entries verified between two saves of the run's progress, from which a stopped run resumes.
+     */
+    private int checkpointInterval = 2_000_000;
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public int getLeafSize() {
+        return leafSize;
+    }
+
+    public void setLeafSize(int leafSize) {
+        this.leafSize = leafSize;
+    }
+
+    public int getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    public void setCheckpointInterval(int checkpointInterval) {
+        this.checkpointInterval = checkpointInterval;
+    }
+}
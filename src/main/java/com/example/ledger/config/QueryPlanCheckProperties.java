@@ -0,0 +1,26 @@
+package com.example.ledger.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "ledger.query-plan-check")
+public class QueryPlanCheckProperties {
+
+    /**
+     * What to do at startup when a repository query would scan a whole table.
+     */
+    private Mode mode = Mode.WARN;
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public enum Mode {
+        OFF,
+        WARN,
+        FAIL
+    }
+}
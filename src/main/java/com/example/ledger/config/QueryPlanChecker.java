@@ -0,0 +1,66 @@
+package com.example.ledger.config;
+
+import com.example.ledger.repository.QueryCatalog;
+import com.example.ledger.repository.QueryCatalog.CatalogedQuery;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs {@code EXPLAIN QUERY PLAN} on every repository query at startup and reports the ones that
+ * would scan a whole table or index, except those cataloged as full scans on purpose.
+ */
+@Component
+public class QueryPlanChecker {
+    private static final Logger log = LoggerFactory.getLogger(QueryPlanChecker.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final List<QueryCatalog> catalogs;
+    private final QueryPlanCheckProperties properties;
+
+    public QueryPlanChecker(JdbcTemplate jdbcTemplate, List<QueryCatalog> catalogs, QueryPlanCheckProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.catalogs = catalogs;
+        this.properties = properties;
+    }
+
+    @PostConstruct
+    public void check() {
+        if (properties.getMode() == QueryPlanCheckProperties.Mode.OFF) {
+            return;
+        }
+        List<String> offenders = new ArrayList<>();
+        int checked = 0;
+        for (QueryCatalog catalog : catalogs) {
+            for (CatalogedQuery query : catalog.queries()) {
+                checked++;
+                List<String> scans = scans(query.sql());
+                if (!scans.isEmpty() && !query.fullScan()) {
+                    offenders.add(query.name() + " " + scans);
+                }
+            }
+        }
+        if (offenders.isEmpty()) {
+            log.info("query plan check passed for {} queries", checked);
+            return;
+        }
+        String message = "queries that scan a full table: " + String.join("; ", offenders);
+        if (properties.getMode() == QueryPlanCheckProperties.Mode.FAIL) {
+            throw new IllegalStateException(message);
+        }
+        log.warn(message);
+    }
+
+    /**
+     * Plan steps of {@code sql} that read a table or index from end to end.
+     */
+    List<String> scans(String sql) {
+        List<String> details = jdbcTemplate.query("EXPLAIN QUERY PLAN " + sql, (rs, rowNum) -> rs.getString("detail"));
+        return details.stream().filter(detail -> detail.startsWith("SCAN ") && !detail.startsWith("SCAN CONSTANT ROW")).toList();
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.ledger.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.util.ClassUtils;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.regex.Pattern;
+
+/**
+ * Opens the physical connections of one Hikari pool.
+ * <p>
+ * Each new connection runs the pool's PRAGMA profile and then reads back every numeric or on/off
+ * setting, logging the ones SQLite did not keep (a PRAGMA it does not know is silently ignored).
+ * The connection is then wrapped in a {@link StatementCachingConnection}.
+ */
+final class SqliteConnectionSource implements DataSource {
+    private static final Logger log = LoggerFactory.getLogger(SqliteConnectionSource.class);
+    private static final Pattern PRAGMA_NAME = Pattern.compile("[a-z_]+");
+    private static final Pattern PRAGMA_VALUE = Pattern.compile("[-+.\\w]+");
+    private static final Pattern INTEGER = Pattern.compile("[-+]?\\d+");
+
+    private final String pool;
+    private final String url;
+    private final Driver driver;
+    private final Map<String, String> pragmas;
+    private final StatementRegistry registry;
+    private final int statementCacheSize;
+
+    SqliteConnectionSource(String pool,
+                           String url,
+                           String driverClassName,
+                           Map<String, String> pragmas,
+                           StatementRegistry registry,
+                           int statementCacheSize) {
+        pragmas.forEach((name, value) -> {
+            if (!PRAGMA_NAME.matcher(name).matches() || !PRAGMA_VALUE.matcher(value).matches()) {
+                throw new IllegalArgumentException("invalid PRAGMA for " + pool + ": " + name + " = " + value);
+            }
+        });
+        this.pool = pool;
+        this.url = url;
+        this.driver = BeanUtils.instantiateClass(ClassUtils.resolveClassName(driverClassName, null), Driver.class);
+        this.pragmas = new LinkedHashMap<>(pragmas);
+        this.registry = registry;
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Connection connection = driver.connect(url, new Properties());
+        if (connection == null) {
+            throw new SQLException("driver " + driver.getClass().getName() + " does not accept " + url);
+        }
+        try {
+            applyPragmas(connection);
+        } catch (SQLException | RuntimeException ex) {
+            connection.close();
+            throw ex;
+        }
+        return StatementCachingConnection.wrap(connection, registry, pool, statementCacheSize);
+    }
+
+    private void applyPragmas(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (Map.Entry<String, String> pragma : pragmas.entrySet()) {
+                statement.execute("PRAGMA " + pragma.getKey() + " = " + pragma.getValue());
+            }
+            for (Map.Entry<String, String> pragma : pragmas.entrySet()) {
+                String expected = comparable(pragma.getValue());
+                if (expected == null) {
+                    continue;
+                }
+                try (ResultSet rs = statement.executeQuery("PRAGMA " + pragma.getKey())) {
+                    // No row means the setting does not apply here, like mmap_size on an in-memory database.
+                    if (!rs.next()) {
+                        continue;
+                    }
+                    String actual = rs.getString(1);
+                    if (!expected.equals(actual)) {
+                        log.warn("PRAGMA {} is {} on a new {} connection, expected {}", pragma.getKey(), actual, pool, pragma.getValue());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The value SQLite reports back for a setting, or null for keyword values (such as a journal
+     * mode) that are not compared.
+     */
+    private static String comparable(String value) {
+        if (INTEGER.matcher(value).matches()) {
+            return String.valueOf(Long.parseLong(value));
+        }
+        return switch (value.toLowerCase(Locale.ROOT)) {
+            case "on", "true", "yes" -> "1";
+            case "off", "false", "no" -> "0";
+            default -> null;
+        };
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection();
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return 0;
+    }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException(getClass().getName() + " does not wrap " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.ledger.config;
+
+import io.micrometer.core.instrument.Timer;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wraps a physical connection so prepared statements for registered SQL stay open between uses and
+ * every execution of registered SQL is timed.
+ * <p>
+ * Closing a cached statement clears its parameters and batch and parks it in the connection's cache,
+ * which holds at most {@code capacity} idle statements and closes the least recently used one past
+ * that. A parked statement is handed out to one caller at a time, so nested use of the same SQL
+ * prepares a second statement, which is kept or closed when it is released in turn. Parked
+ * statements are really closed with the connection.
+ */
+final class StatementCachingConnection implements InvocationHandler {
+    private final Connection connection;
+    private final StatementRegistry registry;
+    private final String pool;
+    private final int capacity;
+    // Idle statements, least recently used first.
+    private final LinkedHashMap<String, TimedStatement> idle = new LinkedHashMap<>(16, 0.75f, true);
+
+    private StatementCachingConnection(Connection connection, StatementRegistry registry, String pool, int capacity) {
+        this.connection = connection;
+        this.registry = registry;
+        this.pool = pool;
+        this.capacity = capacity;
+    }
+
+    static Connection wrap(Connection connection, StatementRegistry registry, String pool, int capacity) {
+        return proxy(Connection.class, new StatementCachingConnection(connection, registry, pool, capacity));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        int arity = args == null ? 0 : args.length;
+        switch (method.getName()) {
+            case "prepareStatement":
+                if (arity == 1) {
+                    return prepareStatement((String) args[0]);
+                }
+                break;
+            case "createStatement":
+                if (arity == 0) {
+                    return new TimedStatement(connection.createStatement(), null, null).proxy;
+                }
+                break;
+            case "close":
+                closeIdle();
+                break;
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                break;
+        }
+        return invokeOn(connection, method, args);
+    }
+
+    private PreparedStatement prepareStatement(String sql) throws SQLException {
+        Timer timer = registry.timerFor(sql, pool);
+        if (timer == null) {
+            return connection.prepareStatement(sql);
+        }
+        TimedStatement cached;
+        synchronized (idle) {
+            cached = idle.remove(sql);
+        }
+        if (cached == null) {
+            cached = new TimedStatement(connection.prepareStatement(sql), sql, timer);
+        }
+        cached.inUse = true;
+        return (PreparedStatement) cached.proxy;
+    }
+
+    private void release(TimedStatement statement) throws SQLException {
+        TimedStatement evicted = null;
+        synchronized (idle) {
+            TimedStatement previous = idle.putIfAbsent(statement.sql, statement);
+            if (previous != null) {
+                evicted = statement;
+            } else if (idle.size() > capacity) {
+                Iterator<TimedStatement> eldest = idle.values().iterator();
+                evicted = eldest.next();
+                eldest.remove();
+            }
+        }
+        if (evicted != null) {
+            evicted.statement.close();
+        }
+    }
+
+    private void closeIdle() throws SQLException {
+        List<TimedStatement> statements;
+        synchronized (idle) {
+            statements = new ArrayList<>(idle.values());
+            idle.clear();
+        }
+        for (TimedStatement statement : statements) {
+            statement.statement.close();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, handler);
+    }
+
+    private static Object invokeOn(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * A statement whose executions are timed: prepared statements by their own SQL, plain statements
+     * by the SQL passed to each {@code execute} call.
+     */
+    private final class TimedStatement implements InvocationHandler {
+        private final Statement statement;
+        private final String sql;
+        private final Timer timer;
+        private final Statement proxy;
+        private boolean inUse;
+
+        TimedStatement(Statement statement, String sql, Timer timer) {
+            this.statement = statement;
+            this.sql = sql;
+            this.timer = timer;
+            this.proxy = sql == null ? proxy(Statement.class, this) : proxy(PreparedStatement.class, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                Timer executionTimer = timer;
+                if (sql == null && args != null && args[0] instanceof String executed) {
+                    executionTimer = registry.timerFor(executed, pool);
+                }
+                if (executionTimer != null) {
+                    long start = System.nanoTime();
+                    try {
+                        return invokeOn(statement, method, args);
+                    } finally {
+                        executionTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    }
+                }
+            } else if (name.equals("close") && sql != null && capacity > 0) {
+                if (!inUse) {
+                    return null;
+                }
+                inUse = false;
+                PreparedStatement prepared = (PreparedStatement) statement;
+                prepared.clearParameters();
+                prepared.clearBatch();
+                release(this);
+                return null;
+            } else if (name.equals("isClosed") && sql != null && capacity > 0) {
+                return !inUse;
+            } else if (name.equals("equals")) {
+                return proxy == args[0];
+            } else if (name.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+            return invokeOn(statement, method, args);
+        }
+    }
+}
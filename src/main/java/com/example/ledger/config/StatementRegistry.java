@@ -0,0 +1,57 @@
+package com.example.ledger.config;
+
+import com.example.ledger.repository.QueryCatalog;
+import com.example.ledger.repository.QueryCatalog.CatalogedQuery;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Names the repositories' fixed SQL so connections can cache and time it.
+ * <p>
+ * Every statement listed by a {@link QueryCatalog} is registered once all beans exist; until then
+ * (Liquibase, startup loads) statements are neither cached nor timed. Each execution of a registered
+ * statement is recorded in {@code ledger.sql.statement{statement, pool}}, whose count and total
+ * give the statement's execution count and time.
+ */
+@Component
+public class StatementRegistry implements SmartInitializingSingleton {
+    private final MeterRegistry meterRegistry;
+    private final ObjectProvider<QueryCatalog> catalogs;
+    private final Map<String, String> names = new ConcurrentHashMap<>();
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    // Catalogs are looked up late because the repositories need the data sources this is used by.
+    public StatementRegistry(MeterRegistry meterRegistry, ObjectProvider<QueryCatalog> catalogs) {
+        this.meterRegistry = meterRegistry;
+        this.catalogs = catalogs;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        catalogs.orderedStream().forEach(catalog -> {
+            for (CatalogedQuery query : catalog.queries()) {
+                names.put(query.sql(), query.name());
+            }
+        });
+    }
+
+    /**
+     * The timer for {@code sql} run on {@code pool}, or null when the SQL is not registered.
+     */
+    Timer timerFor(String sql, String pool) {
+        String name = names.get(sql);
+        if (name == null) {
+            return null;
+        }
+        return timers.computeIfAbsent(pool + ' ' + name, key -> Timer.builder("ledger.sql.statement")
+            .tag("statement", name)
+            .tag("pool", pool)
+            .register(meterRegistry));
+    }
+}
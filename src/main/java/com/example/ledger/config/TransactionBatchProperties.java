@@ -0,0 +1,20 @@
+package com.example.ledger.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "ledger.batch")
+public class TransactionBatchProperties {
+
+    /**
+     * Largest number of transactions accepted by {@code POST /transactions/batch}.
+     */
+    private int maxSize = 5000;
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.ledger.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "ledger.trial-balance")
+public class TrialBalanceProperties {
+
+    private final Verify verify = new Verify();
+
+    public Verify getVerify() {
+        return verify;
+    }
+
+    public static class Verify {
+
+        /**
+         * Periodically recount the trial balance from the accounts and compare it with the counters.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Delay between two recounts.
+         */
+        private Duration interval = Duration.ofMinutes(15);
+
+        /**
+         * Overwrite counters that drifted with a recount.
+         */
+        private boolean repair = false;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getInterval() {
+            return interval;
+        }
+
+        public void setInterval(Duration interval) {
+            this.interval = interval;
+        }
+
+        public boolean isRepair() {
+            return repair;
+        }
+
+        public void setRepair(boolean repair) {
+            this.repair = repair;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.ledger.domain;
+
+/**
+ * Source of the ids the server assigns to accounts, transactions and entries that arrive without
+ * one. Client-supplied ids are stored as given.
+ */
+public interface IdGenerator {
+
+    String next();
+}
@@ -0,0 +1,15 @@
+package com.example.ledger.domain;
+
+import java.util.UUID;
+
+/**
+ * Random (version 4) UUIDs, the ids the ledger used before {@link TimeOrderedIdGenerator}. Every
+ * call goes through the JDK's shared {@code SecureRandom}.
+ */
+public final class RandomIdGenerator implements IdGenerator {
+
+    @Override
+    public String next() {
+        return UUID.randomUUID().toString();
+    }
+}
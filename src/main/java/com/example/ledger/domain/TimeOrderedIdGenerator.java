@@ -0,0 +1,61 @@
+package com.example.ledger.domain;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+
+/**
+ * Version 7 UUIDs (RFC 9562): a 48-bit Unix millisecond timestamp, a 12-bit counter and 62 random
+ * bits, in the same 36-character form as random UUIDs.
+ * <p>
+ * Ids sort by creation time, so inserts land at the right-hand edge of the {@code transactions}
+ * and {@code entries} primary-key indexes instead of on random pages. Each thread keeps its own
+ * timestamp and counter and draws from {@link ThreadLocalRandom}, so no state is shared between
+ * threads. Ids of one thread are strictly increasing: the counter starts at a random value below
+ * 2048 every millisecond, and when it runs out or the clock goes back the timestamp moves forward
+ * by one instead.
+ */
+public final class TimeOrderedIdGenerator implements IdGenerator {
+    private static final int COUNTER_BITS = 12;
+    private static final int MAX_COUNTER = (1 << COUNTER_BITS) - 1;
+    private static final int COUNTER_SEED_BOUND = 1 << (COUNTER_BITS - 1);
+
+    private final LongSupplier clock;
+    private final ThreadLocal<State> state = ThreadLocal.withInitial(State::new);
+
+    public TimeOrderedIdGenerator() {
+        this(System::currentTimeMillis);
+    }
+
+    TimeOrderedIdGenerator(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public String next() {
+        return nextUuid().toString();
+    }
+
+    public UUID nextUuid() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        State current = state.get();
+        long now = clock.getAsLong();
+        if (now > current.millis) {
+            current.millis = now;
+            current.counter = random.nextInt(COUNTER_SEED_BOUND);
+        } else if (current.counter < MAX_COUNTER) {
+            current.counter++;
+        } else {
+            current.millis++;
+            current.counter = random.nextInt(COUNTER_SEED_BOUND);
+        }
+        long mostSignificant = (current.millis << 16) | 0x7000L | current.counter;
+        long leastSignificant = (random.nextLong() >>> 2) | 0x8000_0000_0000_0000L;
+        return new UUID(mostSignificant, leastSignificant);
+    }
+
+    private static final class State {
+        private long millis = -1;
+        private int counter;
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.ledger.migration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Moves an existing database towards the compact entries schema while the previous version of the
+ * ledger keeps serving from it, so that the {@code 011-compact-keys-cutover} changeset only has to
+ * copy the entries written since.
+ * <p>
+ * It applies {@code 010_compact_keys.sql} when the database does not have it yet, then works in
+ * short write transactions of {@code chunkSize} rows: transactions get {@code key = rowid} and
+ * entries are copied into {@code entries_compact}, both in rowid order, with the position recorded in
+ * {@code compact_keys_progress}. Entries are never updated or deleted, so rows behind that position
+ * stay valid and the tool can be stopped and run again at any time. It exits once it has caught up.
+ * <pre>
+ * ./gradlew compactKeys -PmigrationArgs='ledger.db 10000 20'
+ * </pre>
+ */
+public final class CompactKeysMigration {
+    private static final Logger log = LoggerFactory.getLogger(CompactKeysMigration.class);
+
+    static final String PREPARE_SCRIPT = "db/changelog/sql/010_compact_keys.sql";
+
+    private static final String TABLE_EXISTS = "SELECT COUNT(*) FROM sqlite_master WHERE type = 'table' AND name = ?";
+    private static final String ENTRIES_COMPACTED = "SELECT COUNT(*) FROM pragma_table_info('entries') WHERE name = 'account_key'";
+    private static final String PROGRESS = "SELECT transaction_rowid, entry_rowid FROM compact_keys_progress";
+    private static final String MAX_TRANSACTION_ROWID = "SELECT COALESCE(MAX(rowid), 0) FROM transactions";
+    private static final String MAX_ENTRY_ROWID = "SELECT COALESCE(MAX(rowid), 0) FROM entries";
+    private static final String BACKFILL_ACCOUNT_KEYS = "UPDATE accounts SET key = rowid WHERE key IS NULL";
+    private static final String BACKFILL_TRANSACTION_KEYS =
+        "UPDATE transactions SET key = rowid WHERE rowid > ? AND rowid <= ? AND key IS NULL";
+    // Keys are the rowids the backfill assigns, so entries can be copied before their transaction has one.
+    private static final String COPY_ENTRIES = "INSERT OR IGNORE INTO entries_compact "
+        + "(sequence, id, transaction_key, account_key, direction, amount) "
+        + "SELECT e.rowid, e.id, t.rowid, a.rowid, e.direction, e.amount FROM entries e "
+        + "JOIN transactions t ON t.id = e.transaction_id JOIN accounts a ON a.id = e.account_id "
+        + "WHERE e.rowid > ? AND e.rowid <= ? ORDER BY e.rowid";
+    private static final String UPDATE_PROGRESS =
+        "UPDATE compact_keys_progress SET transaction_rowid = ?, entry_rowid = ? WHERE id = 1";
+
+    private final Connection connection;
+    private final int chunkSize;
+    private final long pauseMillis;
+
+    CompactKeysMigration(Connection connection, int chunkSize, long pauseMillis) {
+        this.connection = connection;
+        this.chunkSize = chunkSize;
+        this.pauseMillis = pauseMillis;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("usage: CompactKeysMigration <database file> [chunk size] [pause millis]");
+            System.exit(2);
+        }
+        int chunkSize = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        long pauseMillis = args.length > 2 ? Long.parseLong(args[2]) : 20;
+        Properties properties = new Properties();
+        // Take the write lock up front instead of upgrading to it, which fails when the ledger writes in between.
+        properties.setProperty("transaction_mode", "IMMEDIATE");
+        properties.setProperty("busy_timeout", "30000");
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + args[0], properties)) {
+            new CompactKeysMigration(connection, chunkSize, pauseMillis).run();
+        }
+    }
+
+    /**
+     * Runs until every transaction and entry that exists when it checks has been handled. Returns
+     * false when the database already has the compact schema and there was nothing to do.
+     */
+    boolean run() throws SQLException, IOException, InterruptedException {
+        if (!tableExists("entries_compact")) {
+            if (queryLong(ENTRIES_COMPACTED) > 0) {
+                log.info("entries already use the compact schema");
+                return false;
+            }
+            prepare();
+        }
+        long[] progress = progress();
+        long copied = 0;
+        while (true) {
+            long lastTransaction = queryLong(MAX_TRANSACTION_ROWID);
+            long lastEntry = queryLong(MAX_ENTRY_ROWID);
+            if (progress[0] >= lastTransaction && progress[1] >= lastEntry) {
+                break;
+            }
+            long transactionsTo = Math.min(progress[0] + chunkSize, lastTransaction);
+            long entriesTo = Math.min(progress[1] + chunkSize, lastEntry);
+            copied += chunk(progress[0], transactionsTo, progress[1], entriesTo);
+            progress = new long[] {Math.max(progress[0], transactionsTo), Math.max(progress[1], entriesTo)};
+            if (pauseMillis > 0) {
+                Thread.sleep(pauseMillis);
+            }
+        }
+        log.info("caught up at transaction rowid {} and entry rowid {}, {} entries copied", progress[0], progress[1], copied);
+        return true;
+    }
+
+    private void prepare() throws SQLException, IOException {
+        log.info("applying {}", PREPARE_SCRIPT);
+        List<String> script = statements(PREPARE_SCRIPT);
+        inTransaction(() -> {
+            try (Statement statement = connection.createStatement()) {
+                for (String sql : script) {
+                    statement.execute(sql);
+                }
+            }
+            return 0;
+        });
+    }
+
+    private int chunk(long transactionsFrom, long transactionsTo, long entriesFrom, long entriesTo) throws SQLException {
+        return inTransaction(() -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate(BACKFILL_ACCOUNT_KEYS);
+            }
+            update(BACKFILL_TRANSACTION_KEYS, transactionsFrom, transactionsTo);
+            int copied = update(COPY_ENTRIES, entriesFrom, entriesTo);
+            update(UPDATE_PROGRESS, Math.max(transactionsFrom, transactionsTo), Math.max(entriesFrom, entriesTo));
+            return copied;
+        });
+    }
+
+    private long[] progress() throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(PROGRESS)) {
+            rs.next();
+            return new long[] {rs.getLong(1), rs.getLong(2)};
+        }
+    }
+
+    private boolean tableExists(String name) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(TABLE_EXISTS)) {
+            statement.setString(1, name);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getLong(1) > 0;
+            }
+        }
+    }
+
+    private long queryLong(String sql) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private int update(String sql, long first, long second) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, first);
+            statement.setLong(2, second);
+            return statement.executeUpdate();
+        }
+    }
+
+    private int inTransaction(SqlWork work) throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            int result = work.run();
+            connection.commit();
+            return result;
+        } catch (SQLException | RuntimeException ex) {
+            connection.rollback();
+            throw ex;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * The statements of a changelog SQL file, with {@code --} comments removed. Only for files
+     * without triggers, whose bodies contain semicolons.
+     */
+    static List<String> statements(String resource) throws IOException {
+        StringBuilder sql = new StringBuilder();
+        try (InputStream in = CompactKeysMigration.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IOException(resource + " not found");
+            }
+            for (String line : new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\n")) {
+                if (!line.strip().startsWith("--")) {
+                    sql.append(line).append('\n');
+                }
+            }
+        }
+        List<String> statements = new ArrayList<>();
+        for (String statement : sql.toString().split(";")) {
+            if (!statement.isBlank()) {
+                statements.add(statement.strip());
+            }
+        }
+        return statements;
+    }
+
+    @FunctionalInterface
+    private interface SqlWork {
+        int run() throws SQLException;
+    }
+}
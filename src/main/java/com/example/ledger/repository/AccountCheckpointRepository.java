@@ -0,0 +1,79 @@
+package com.example.ledger.repository;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Persisted running balances: the balance of an account after all of its entries up to a given
+ * {@code entries.rowid}. Every account has an opening checkpoint at rowid 0, written by a trigger
+ * when the account is inserted.
+ */
+@Repository
+@Timed("ledger.repository")
+public class AccountCheckpointRepository implements QueryCatalog {
+    private static final String INSERT =
+        "INSERT OR REPLACE INTO account_checkpoints (account_id, entry_rowid, balance) VALUES (?, ?, ?)";
+    private static final String FIND_LATEST_BEFORE = "SELECT entry_rowid, balance FROM account_checkpoints "
+        + "WHERE account_id = ? AND entry_rowid < ? ORDER BY entry_rowid DESC LIMIT 1";
+    private static final String COUNT_ENTRIES_SINCE_LATEST = "SELECT COUNT(*) FROM entries "
+        + "WHERE account_key = (SELECT key FROM accounts WHERE id = ?1) AND rowid > "
+        + "(SELECT COALESCE(MAX(entry_rowid), 0) FROM account_checkpoints WHERE account_id = ?1)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AccountCheckpointRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    private static final RowMapper<CheckpointRow> MAPPER = (rs, rowNum) -> new CheckpointRow(
+        rs.getLong("entry_rowid"),
+        rs.getLong("balance")
+    );
+
+    public void insert(String accountId, long entryRowid, long balance) {
+        jdbcTemplate.update(INSERT, accountId, entryRowid, balance);
+    }
+
+    /**
+     * Writes a checkpoint at {@code entryRowid} for each account in {@code balances}.
+     */
+    public void insertAll(Map<String, Long> balances, long entryRowid) {
+        List<Map.Entry<String, Long>> rows = new ArrayList<>(balances.entrySet());
+        jdbcTemplate.batchUpdate(INSERT, rows, rows.size(), (ps, row) -> {
+            ps.setString(1, row.getKey());
+            ps.setLong(2, entryRowid);
+            ps.setLong(3, row.getValue());
+        });
+    }
+
+    /**
+     * The last checkpoint strictly before {@code entryRowid}.
+     */
+    public Optional<CheckpointRow> findLatestBefore(String accountId, long entryRowid) {
+        return jdbcTemplate.query(FIND_LATEST_BEFORE, MAPPER, accountId, entryRowid).stream().findFirst();
+    }
+
+    public int countEntriesSinceLatest(String accountId) {
+        Integer count = jdbcTemplate.queryForObject(COUNT_ENTRIES_SINCE_LATEST, Integer.class, accountId);
+        return count == null ? 0 : count;
+    }
+
+    @Override
+    public List<CatalogedQuery> queries() {
+        return List.of(
+            CatalogedQuery.lookup("checkpoints.insert", INSERT),
+            CatalogedQuery.lookup("checkpoints.findLatestBefore", FIND_LATEST_BEFORE),
+            CatalogedQuery.lookup("checkpoints.countEntriesSinceLatest", COUNT_ENTRIES_SINCE_LATEST)
+        );
+    }
+
+    public record CheckpointRow(long entryRowid, long balance) {
+    }
+}
@@ -1,41 +1,87 @@
 package com.example.ledger.repository;
 
+import com.example.ledger.config.DataSourceConfig;
 import com.example.ledger.domain.Direction;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Repository
-public class AccountRepository {
+@Timed("ledger.repository")
+public class AccountRepository implements QueryCatalog {
+    // key is the integer entries refer to the account by; MAX is answered from idx_accounts_key.
+    private static final String INSERT = "INSERT INTO accounts (id, name, direction, balance, balance_floor, balance_ceiling, key) "
+        + "VALUES (?, ?, ?, ?, ?, ?, (SELECT IFNULL(MAX(key), 0) + 1 FROM accounts))";
+    // The balance of a sharded account includes its sub-balances; see AccountShardRepository.
+    private static final String SELECT = "SELECT id, name, direction, balance_floor, balance_ceiling, balance + "
+        + "IFNULL((SELECT SUM(s.balance) FROM account_shards s WHERE s.account_id = accounts.id), 0) AS balance FROM accounts ";
+    private static final String FIND_BY_ID = SELECT + "WHERE id = ?";
+    private static final String FIND_BY_IDS = SELECT + "WHERE id IN (";
+    // Pages follow idx_accounts_name_id; the IFNULL must match the indexed expression exactly.
+    private static final String FIND_FIRST_PAGE = SELECT + "ORDER BY IFNULL(name, ''), id LIMIT ?";
+    // Spelled out rather than as a row value, which SQLite does not turn into a range on this index.
+    private static final String FIND_PAGE_AFTER = SELECT
+        + "WHERE IFNULL(name, '') >= ?1 AND (IFNULL(name, '') > ?1 OR id > ?2) ORDER BY IFNULL(name, ''), id LIMIT ?3";
+    private static final String FOR_EACH = SELECT;
+    // Matches no row when the new balance would break a limit, so the limit holds without a SELECT.
+    private static final String UPDATE_BALANCE = "UPDATE accounts SET balance = balance + ?1 WHERE id = ?2 "
+        + "AND (balance_floor IS NULL OR balance + ?1 >= balance_floor) "
+        + "AND (balance_ceiling IS NULL OR balance + ?1 <= balance_ceiling)";
+
     private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate readJdbcTemplate;
 
-    public AccountRepository(JdbcTemplate jdbcTemplate) {
+    public AccountRepository(JdbcTemplate jdbcTemplate, @Qualifier(DataSourceConfig.READ_JDBC_TEMPLATE) JdbcTemplate readJdbcTemplate) {
         this.jdbcTemplate = jdbcTemplate;
+        this.readJdbcTemplate = readJdbcTemplate;
+    }
+
+    // Reads inside a write transaction stay on its connection so they see its own writes.
+    private JdbcTemplate reader() {
+        return TransactionSynchronizationManager.isActualTransactionActive() ? jdbcTemplate : readJdbcTemplate;
     }
 
     private static final RowMapper<AccountRow> MAPPER = (rs, rowNum) -> new AccountRow(
         rs.getString("id"),
         rs.getString("name"),
         Direction.from(rs.getString("direction")),
-        rs.getLong("balance")
+        rs.getLong("balance"),
+        nullableLong(rs, "balance_floor"),
+        nullableLong(rs, "balance_ceiling")
     );
 
+    private static Long nullableLong(ResultSet rs, String column) throws SQLException {
+        long value = rs.getLong(column);
+        return rs.wasNull() ? null : value;
+    }
+
     public void insert(AccountRow account) {
         jdbcTemplate.update(
-            "INSERT INTO accounts (id, name, direction, balance) VALUES (?, ?, ?, ?)",
+            INSERT,
             account.id(),
             account.name(),
             account.direction().value(),
-            account.balance()
+            account.balance(),
+            account.floor(),
+            account.ceiling()
         );
     }
 
     public Optional<AccountRow> findById(String id) {
-        List<AccountRow> rows = jdbcTemplate.query(
-            "SELECT id, name, direction, balance FROM accounts WHERE id = ?",
+        List<AccountRow> rows = reader().query(
+            FIND_BY_ID,
             MAPPER,
             id
         );
@@ -46,20 +92,108 @@ public class AccountRepository {
         if (ids.isEmpty()) {
             return List.of();
         }
-        String placeholders = String.join(",", ids.stream().map(id -> "?").toList());
-        String sql = "SELECT id, name, direction, balance FROM accounts WHERE id IN (" + placeholders + ")";
-        return jdbcTemplate.query(sql, MAPPER, ids.toArray());
+        return reader().query(FIND_BY_IDS + QueryCatalog.placeholders(ids.size()) + ")", MAPPER, ids.toArray());
+    }
+
+    /**
+     * Returns up to {@code limit} accounts ordered by name, then id, starting after the account
+     * with sort name {@code afterName} and id {@code afterId}, or from the start when
+     * {@code afterId} is null. Accounts without a name sort as the empty name.
+     */
+    public List<AccountRow> findPage(String afterName, String afterId, int limit) {
+        if (afterId == null) {
+            return reader().query(FIND_FIRST_PAGE, MAPPER, limit);
+        }
+        return reader().query(FIND_PAGE_AFTER, MAPPER, afterName, afterId, limit);
     }
 
-    public List<AccountRow> findAll() {
-        String sql = "SELECT id, name, direction, balance FROM accounts ORDER BY name ASC";
-        return jdbcTemplate.query(sql, MAPPER);
+    /**
+     * Streams every account in table order without materializing the result.
+     */
+    public void forEach(Consumer<AccountRow> consumer) {
+        RowCallbackHandler handler = rs -> consumer.accept(MAPPER.mapRow(rs, 0));
+        reader().query(FOR_EACH, handler);
     }
 
-    public void updateBalance(String id, long balance) {
-        jdbcTemplate.update("UPDATE accounts SET balance = ? WHERE id = ?", balance, id);
+    /**
+     * Adds {@code delta} to the stored balance unless that would break the account's floor or
+     * ceiling, and returns whether it did. Applying deltas rather than absolute values keeps
+     * concurrent postings to the same account from overwriting each other.
+     */
+    public boolean updateBalance(String id, long delta) {
+        return jdbcTemplate.update(UPDATE_BALANCE, delta, id) == 1;
     }
 
-    public record AccountRow(String id, String name, Direction direction, long balance) {
+    /**
+     * Applies one balance delta per account and returns the accounts left unchanged because of a
+     * limit; the caller is expected to roll back when there are any. More than one account is sent
+     * as a single JDBC batch over one prepared statement instead of one statement execution per
+     * account. That statement is cataloged, so the connection keeps it open between postings.
+     */
+    public List<String> updateBalances(Map<String, Long> deltas) {
+        if (deltas.size() == 1) {
+            Map.Entry<String, Long> only = deltas.entrySet().iterator().next();
+            return updateBalance(only.getKey(), only.getValue()) ? List.of() : List.of(only.getKey());
+        }
+        List<Map.Entry<String, Long>> updates = List.copyOf(deltas.entrySet());
+        int[][] counts = jdbcTemplate.batchUpdate(
+            UPDATE_BALANCE,
+            updates,
+            updates.size(),
+            (ps, update) -> {
+                ps.setLong(1, update.getValue());
+                ps.setString(2, update.getKey());
+            }
+        );
+        List<String> rejected = new ArrayList<>();
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count == 0) {
+                    rejected.add(updates.get(index).getKey());
+                }
+                index++;
+            }
+        }
+        return rejected;
+    }
+
+    @Override
+    public List<CatalogedQuery> queries() {
+        return List.of(
+            CatalogedQuery.lookup("accounts.insert", INSERT),
+            CatalogedQuery.lookup("accounts.findById", FIND_BY_ID),
+            CatalogedQuery.lookup("accounts.findByIds", FIND_BY_IDS + QueryCatalog.placeholders(2) + ")"),
+            // Reads the name index from its start, but never past LIMIT.
+            CatalogedQuery.fullScan("accounts.findFirstPage", FIND_FIRST_PAGE),
+            CatalogedQuery.lookup("accounts.findPageAfter", FIND_PAGE_AFTER),
+            CatalogedQuery.fullScan("accounts.forEach", FOR_EACH),
+            CatalogedQuery.lookup("accounts.updateBalance", UPDATE_BALANCE)
+        );
+    }
+
+    /**
+     * @param floor lowest balance postings may leave, or null for none
+     * @param ceiling highest balance postings may leave, or null for none
+     */
+    public record AccountRow(String id, String name, Direction direction, long balance, Long floor, Long ceiling) {
+        public AccountRow(String id, String name, Direction direction, long balance) {
+            this(id, name, direction, balance, null, null);
+        }
+
+        public AccountRow withBalance(long newBalance) {
+            return new AccountRow(id, name, direction, newBalance, floor, ceiling);
+        }
+
+        public boolean hasLimits() {
+            return floor != null || ceiling != null;
+        }
+
+        /**
+         * Whether {@code newBalance} is within the account's floor and ceiling.
+         */
+        public boolean allows(long newBalance) {
+            return (floor == null || newBalance >= floor) && (ceiling == null || newBalance <= ceiling);
+        }
     }
 }
@@ -0,0 +1,85 @@
+package com.example.ledger.repository;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+@Repository
+@Timed("ledger.repository")
+public class AccountShardRepository implements QueryCatalog {
+    private static final String SHARD_COUNTS = "SELECT account_id, COUNT(*) AS shards FROM account_shards GROUP BY account_id";
+    private static final String INSERT = "INSERT OR IGNORE INTO account_shards (account_id, shard, balance) VALUES (?, ?, 0)";
+    private static final String ADD = "UPDATE account_shards SET balance = balance + ? WHERE account_id = ? AND shard = ?";
+    private static final String MOVE_TO_ACCOUNT = "UPDATE accounts SET balance = balance + "
+        + "(SELECT IFNULL(SUM(balance), 0) FROM account_shards WHERE account_id = ?1) WHERE id = ?1";
+    private static final String CLEAR = "UPDATE account_shards SET balance = 0 WHERE account_id = ? AND balance <> 0";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AccountShardRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Number of shards of every sharded account.
+     */
+    public Map<String, Integer> shardCounts() {
+        Map<String, Integer> counts = new HashMap<>();
+        jdbcTemplate.query(SHARD_COUNTS, rs -> {
+            counts.put(rs.getString("account_id"), rs.getInt("shards"));
+        });
+        return counts;
+    }
+
+    /**
+     * Makes sure shards {@code 0} to {@code shards - 1} of the account exist; existing ones keep
+     * their balance.
+     */
+    public void createShards(String accountId, int shards) {
+        List<Integer> indexes = IntStream.range(0, shards).boxed().toList();
+        jdbcTemplate.batchUpdate(INSERT, indexes, indexes.size(), (ps, shard) -> {
+            ps.setString(1, accountId);
+            ps.setInt(2, shard);
+        });
+    }
+
+    /**
+     * Adds each delta to its shard, as one JDBC batch.
+     */
+    public void addAll(List<ShardDelta> deltas) {
+        jdbcTemplate.batchUpdate(ADD, deltas, deltas.size(), (ps, delta) -> {
+            ps.setLong(1, delta.delta());
+            ps.setString(2, delta.accountId());
+            ps.setInt(3, delta.shard());
+        });
+    }
+
+    /**
+     * Moves the sum of the account's shards into {@code accounts.balance} and zeroes the shards.
+     * Must run in a transaction so the total is never counted twice or not at all.
+     */
+    public void consolidate(String accountId) {
+        jdbcTemplate.update(MOVE_TO_ACCOUNT, accountId);
+        jdbcTemplate.update(CLEAR, accountId);
+    }
+
+    @Override
+    public List<CatalogedQuery> queries() {
+        return List.of(
+            // Startup only, and only sharded accounts have rows.
+            CatalogedQuery.fullScan("accountShards.shardCounts", SHARD_COUNTS),
+            CatalogedQuery.lookup("accountShards.insert", INSERT),
+            CatalogedQuery.lookup("accountShards.add", ADD),
+            CatalogedQuery.lookup("accountShards.moveToAccount", MOVE_TO_ACCOUNT),
+            CatalogedQuery.lookup("accountShards.clear", CLEAR)
+        );
+    }
+
+    public record ShardDelta(String accountId, int shard, long delta) {
+    }
+}
@@ -0,0 +1,436 @@
+package com.example.ledger.repository;
+
+import com.example.ledger.config.DataSourceConfig;
+import com.example.ledger.domain.Direction;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * {@code ledger_archives} and the per-period archive files it lists.
+ * <p>
+ * An archive file holds a period's transactions, entries and idempotency keys in tables of the same
+ * shape as the hot ones. It is read and written by attaching it as {@code archive} to a pooled
+ * connection for the length of one call and detaching it again, so pooled connections never keep
+ * an archive attached. Entries still refer to accounts by key, which are resolved against the hot
+ * {@code accounts} table in the same statement. Statements on {@code archive} are not cataloged: they
+ * run at most once per lookup and are neither cached nor plan-checked.
+ */
+@Repository
+@Timed("ledger.repository")
+public class ArchiveRepository implements QueryCatalog {
+    private static final String SELECT = "SELECT period, file, first_transaction_key, last_transaction_key, first_sequence, "
+        + "last_sequence, copied_transaction_key, deleted_transaction_key, transactions, entries, idempotency_keys, "
+        + "as_of, status FROM ledger_archives ";
+    private static final String FIND_ALL = SELECT + "ORDER BY period";
+    private static final String FIND_BY_PERIOD = SELECT + "WHERE period = ?";
+    private static final String INSERT = "INSERT INTO ledger_archives (period, file, first_transaction_key, "
+        + "last_transaction_key, first_sequence, last_sequence, copied_transaction_key, deleted_transaction_key, status) "
+        + "VALUES (?1, ?2, ?3, ?4, ?5, ?6, ?3 - 1, ?3 - 1, 'copying')";
+    private static final String UPDATE_COPIED = "UPDATE ledger_archives SET copied_transaction_key = ? WHERE period = ?";
+    private static final String SEAL = "UPDATE ledger_archives SET status = 'sealed', transactions = ?, entries = ?, "
+        + "idempotency_keys = ?, as_of = ? WHERE period = ? AND status = 'copying'";
+    private static final String UPDATE_DELETED = "UPDATE ledger_archives SET deleted_transaction_key = ? WHERE period = ?";
+    private static final String COMPLETE = "UPDATE ledger_archives SET status = 'archived', "
+        + "archived_at = strftime('%Y-%m-%dT%H:%M:%fZ', 'now') WHERE period = ?";
+    private static final String NEXT_TRANSACTION = "SELECT key, created_at FROM transactions WHERE key > ? ORDER BY key LIMIT 1";
+    // Keys grow with created_at, so the last key of a month is one seek back on
+    // idx_transactions_created_at, and the last entry sequence of a period one on
+    // idx_entries_transaction_key, which ends in the sequence.
+    private static final String LAST_KEY_BEFORE = "SELECT key FROM transactions WHERE created_at < ? AND key >= ? "
+        + "ORDER BY created_at DESC, key DESC LIMIT 1";
+    private static final String TRANSACTION_AFTER = "SELECT EXISTS (SELECT 1 FROM transactions WHERE key > ?)";
+    private static final String LAST_SEQUENCE = "SELECT MAX(sequence) FROM entries WHERE transaction_key = ?";
+    private static final String CREATED_AT = "SELECT created_at FROM transactions WHERE key = ?";
+    private static final String TRANSACTION_ID_AT = "SELECT t.id FROM entries e JOIN transactions t ON t.key = e.transaction_key "
+        + "WHERE e.sequence = ?";
+    // Both sides of the copy check; the archive side is the same statement on the archive tables.
+    private static final String COUNT_TRANSACTIONS = "SELECT COUNT(*) FROM %stransactions WHERE key BETWEEN ? AND ?";
+    private static final String SUM_ENTRIES = "SELECT COUNT(*), IFNULL(SUM(amount), 0), IFNULL(SUM(account_key), 0) "
+        + "FROM %sentries WHERE transaction_key BETWEEN ? AND ?";
+    private static final String COUNT_KEYS = "SELECT COUNT(*) FROM %sidempotency_keys i JOIN %stransactions t "
+        + "ON t.id = i.transaction_id WHERE t.key BETWEEN ? AND ?";
+    private static final String DELETE_KEYS = "DELETE FROM idempotency_keys "
+        + "WHERE transaction_id IN (SELECT id FROM transactions WHERE key BETWEEN ? AND ?)";
+    private static final String DELETE_ENTRIES = "DELETE FROM entries WHERE transaction_key BETWEEN ? AND ?";
+    private static final String DELETE_TRANSACTIONS = "DELETE FROM transactions WHERE key BETWEEN ? AND ?";
+
+    private static final String ATTACH = "ATTACH DATABASE ? AS archive";
+    private static final String DETACH = "DETACH DATABASE archive";
+    private static final List<String> ARCHIVE_SCHEMA = List.of(
+        "CREATE TABLE IF NOT EXISTS archive.transactions (key INTEGER PRIMARY KEY, id TEXT NOT NULL UNIQUE, "
+            + "name TEXT, created_at TEXT NOT NULL)",
+        "CREATE TABLE IF NOT EXISTS archive.entries (sequence INTEGER PRIMARY KEY, id TEXT NOT NULL UNIQUE, "
+            + "transaction_key INTEGER NOT NULL, account_key INTEGER NOT NULL, direction TEXT NOT NULL, amount INTEGER NOT NULL)",
+        "CREATE INDEX IF NOT EXISTS archive.idx_entries_transaction_key ON entries (transaction_key)",
+        "CREATE TABLE IF NOT EXISTS archive.idempotency_keys (key TEXT PRIMARY KEY, request_hash TEXT NOT NULL, "
+            + "transaction_id TEXT NOT NULL, created_at TEXT NOT NULL)"
+    );
+    private static final String COPY_TRANSACTIONS = "INSERT OR IGNORE INTO archive.transactions (key, id, name, created_at) "
+        + "SELECT key, id, name, created_at FROM main.transactions WHERE key BETWEEN ? AND ?";
+    private static final String COPY_ENTRIES = "INSERT OR IGNORE INTO archive.entries "
+        + "(sequence, id, transaction_key, account_key, direction, amount) "
+        + "SELECT sequence, id, transaction_key, account_key, direction, amount FROM main.entries WHERE transaction_key BETWEEN ? AND ?";
+    private static final String COPY_KEYS = "INSERT OR IGNORE INTO archive.idempotency_keys (key, request_hash, transaction_id, created_at) "
+        + "SELECT i.key, i.request_hash, i.transaction_id, i.created_at FROM main.idempotency_keys i "
+        + "JOIN main.transactions t ON t.id = i.transaction_id WHERE t.key BETWEEN ? AND ?";
+    private static final String ARCHIVED_TRANSACTION_IDS = "SELECT id FROM archive.transactions";
+    private static final String ARCHIVED_KEYS = "SELECT key FROM archive.idempotency_keys";
+    private static final String ARCHIVED_TRANSACTION = "SELECT id, name FROM archive.transactions WHERE id = ?";
+    private static final String ARCHIVED_ENTRIES = "SELECT e.id, t.id AS transaction_id, a.id AS account_id, e.direction, e.amount "
+        + "FROM archive.transactions t JOIN archive.entries e ON e.transaction_key = t.key "
+        + "JOIN main.accounts a ON a.key = e.account_key WHERE t.id = ? ORDER BY e.sequence";
+    private static final String ARCHIVED_KEY = "SELECT key, request_hash, transaction_id FROM archive.idempotency_keys WHERE key = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate readJdbcTemplate;
+
+    public ArchiveRepository(JdbcTemplate jdbcTemplate,
+                             @Qualifier(DataSourceConfig.READ_JDBC_TEMPLATE) JdbcTemplate readJdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readJdbcTemplate = readJdbcTemplate;
+    }
+
+    private static final RowMapper<ArchiveRow> MAPPER = (rs, rowNum) -> new ArchiveRow(
+        rs.getString("period"),
+        rs.getString("file"),
+        rs.getLong("first_transaction_key"),
+        rs.getLong("last_transaction_key"),
+        rs.getLong("first_sequence"),
+        rs.getLong("last_sequence"),
+        rs.getLong("copied_transaction_key"),
+        rs.getLong("deleted_transaction_key"),
+        rs.getLong("transactions"),
+        rs.getLong("entries"),
+        rs.getLong("idempotency_keys"),
+        rs.getString("as_of"),
+        rs.getString("status")
+    );
+
+    public List<ArchiveRow> findAll() {
+        return jdbcTemplate.query(FIND_ALL, MAPPER);
+    }
+
+    public Optional<ArchiveRow> findByPeriod(String period) {
+        return jdbcTemplate.query(FIND_BY_PERIOD, MAPPER, period).stream().findFirst();
+    }
+
+    public void insert(String period, String file, long firstTransactionKey, long lastTransactionKey,
+                       long firstSequence, long lastSequence) {
+        jdbcTemplate.update(INSERT, period, file, firstTransactionKey, lastTransactionKey, firstSequence, lastSequence);
+    }
+
+    public void updateCopied(String period, long transactionKey) {
+        jdbcTemplate.update(UPDATE_COPIED, transactionKey, period);
+    }
+
+    /**
+     * Marks a copied period sealed, which is what allows its rows to be deleted. Must run in the
+     * transaction that writes the checkpoints at its last entry.
+     */
+    public void seal(String period, Totals totals, String asOf) {
+        jdbcTemplate.update(SEAL, totals.transactions(), totals.entries(), totals.idempotencyKeys(), asOf, period);
+    }
+
+    public void complete(String period) {
+        jdbcTemplate.update(COMPLETE, period);
+    }
+
+    /**
+     * The first transaction after {@code afterKey}: its key and {@code created_at}.
+     */
+    public Optional<TransactionPosition> findNextTransaction(long afterKey) {
+        return readJdbcTemplate.query(NEXT_TRANSACTION, (rs, rowNum) -> new TransactionPosition(rs.getLong(1), rs.getString(2)),
+            afterKey).stream().findFirst();
+    }
+
+    /**
+     * The last transaction from {@code fromKey} on created before {@code before}, or empty when there is none.
+     */
+    public Optional<Long> findLastKeyBefore(long fromKey, String before) {
+        return readJdbcTemplate.queryForList(LAST_KEY_BEFORE, Long.class, before, fromKey).stream().findFirst();
+    }
+
+    public boolean transactionExistsAfter(long key) {
+        return Boolean.TRUE.equals(readJdbcTemplate.queryForObject(TRANSACTION_AFTER, Boolean.class, key));
+    }
+
+    /**
+     * The last entry sequence of transaction {@code transactionKey}, which is the last of every
+     * transaction up to it, or empty when it has no entries.
+     */
+    public Optional<Long> findLastSequence(long transactionKey) {
+        return Optional.ofNullable(readJdbcTemplate.queryForObject(LAST_SEQUENCE, Long.class, transactionKey));
+    }
+
+    public String createdAt(long transactionKey) {
+        return readJdbcTemplate.queryForObject(CREATED_AT, String.class, transactionKey);
+    }
+
+    public String transactionIdAt(long sequence) {
+        return readJdbcTemplate.queryForObject(TRANSACTION_ID_AT, String.class, sequence);
+    }
+
+    /**
+     * Copies the transactions with a key in {@code [fromKey, toKey]}, their entries and their
+     * idempotency keys into {@code file}, creating its tables on first use, and records
+     * {@code toKey} as copied, all in one transaction. Rows already in the file are skipped, so an
+     * interrupted copy can simply be repeated. Must not be called in a transaction: SQLite attaches
+     * databases only outside one.
+     */
+    public void copy(String period, String file, long fromKey, long toKey) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            attached(connection, file, () -> {
+                try (Statement statement = connection.createStatement()) {
+                    for (String ddl : ARCHIVE_SCHEMA) {
+                        statement.execute(ddl);
+                    }
+                }
+                connection.setAutoCommit(false);
+                try {
+                    update(connection, COPY_TRANSACTIONS, fromKey, toKey);
+                    update(connection, COPY_ENTRIES, fromKey, toKey);
+                    update(connection, COPY_KEYS, fromKey, toKey);
+                    try (PreparedStatement statement = connection.prepareStatement(UPDATE_COPIED)) {
+                        statement.setLong(1, toKey);
+                        statement.setString(2, period);
+                        statement.executeUpdate();
+                    }
+                    connection.commit();
+                } catch (SQLException | RuntimeException ex) {
+                    connection.rollback();
+                    throw ex;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+                return null;
+            });
+            return null;
+        });
+    }
+
+    /**
+     * Counts of the transactions in {@code [firstKey, lastKey]} and of their entries and idempotency
+     * keys, and sums over the entries, once in the hot tables and once in {@code file}, read in one
+     * snapshot of each.
+     */
+    public Comparison compare(String file, long firstKey, long lastKey) {
+        return readJdbcTemplate.execute((ConnectionCallback<Comparison>) connection -> attached(connection, file, () -> {
+            connection.setAutoCommit(false);
+            try {
+                return new Comparison(totals(connection, "main.", firstKey, lastKey), totals(connection, "archive.", firstKey, lastKey));
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        }));
+    }
+
+    /**
+     * Deletes the transactions with a key in {@code [fromKey, toKey]}, their entries and their
+     * idempotency keys from the hot tables and records {@code toKey} as deleted. Must run in a
+     * transaction; the delete triggers only let rows of a sealed period through.
+     */
+    public int deleteRange(String period, long fromKey, long toKey) {
+        jdbcTemplate.update(DELETE_KEYS, fromKey, toKey);
+        int entries = jdbcTemplate.update(DELETE_ENTRIES, fromKey, toKey);
+        jdbcTemplate.update(DELETE_TRANSACTIONS, fromKey, toKey);
+        jdbcTemplate.update(UPDATE_DELETED, toKey, period);
+        return entries;
+    }
+
+    public void forEachTransactionId(String file, Consumer<String> consumer) {
+        forEach(file, ARCHIVED_TRANSACTION_IDS, consumer);
+    }
+
+    public void forEachIdempotencyKey(String file, Consumer<String> consumer) {
+        forEach(file, ARCHIVED_KEYS, consumer);
+    }
+
+    public Set<String> findExistingTransactionIds(String file, Collection<String> ids) {
+        Set<String> existing = new HashSet<>();
+        onArchive(file, archive -> {
+            for (String id : ids) {
+                archive.query(ARCHIVED_TRANSACTION, (RowCallbackHandler) rs -> existing.add(rs.getString("id")), id);
+            }
+            return null;
+        });
+        return existing;
+    }
+
+    public Optional<ArchivedTransaction> findTransaction(String file, String transactionId) {
+        return onArchive(file, archive -> archive.query(ARCHIVED_TRANSACTION, (rs, rowNum) -> new TransactionRepository.TransactionRow(
+                rs.getString("id"), rs.getString("name")), transactionId).stream().findFirst()
+            .map(transaction -> new ArchivedTransaction(transaction, archive.query(ARCHIVED_ENTRIES, (rs, rowNum) ->
+                new EntryRepository.EntryRow(
+                    rs.getString("id"),
+                    rs.getString("transaction_id"),
+                    rs.getString("account_id"),
+                    Direction.from(rs.getString("direction")),
+                    rs.getLong("amount")
+                ), transactionId))));
+    }
+
+    public Optional<IdempotencyRepository.IdempotencyRow> findIdempotencyKey(String file, String key) {
+        return onArchive(file, archive -> archive.query(ARCHIVED_KEY, (rs, rowNum) -> new IdempotencyRepository.IdempotencyRow(
+            rs.getString("key"), rs.getString("request_hash"), rs.getString("transaction_id")), key).stream().findFirst());
+    }
+
+    private void forEach(String file, String sql, Consumer<String> consumer) {
+        onArchive(file, archive -> {
+            archive.query(sql, (RowCallbackHandler) rs -> consumer.accept(rs.getString(1)));
+            return null;
+        });
+    }
+
+    /**
+     * Runs {@code work} on a read-only connection with {@code file} attached.
+     */
+    private <T> T onArchive(String file, ArchiveWork<T> work) {
+        return readJdbcTemplate.execute((ConnectionCallback<T>) connection -> attached(connection, file,
+            () -> work.run(new JdbcTemplate(new SingleConnectionDataSource(connection, true)))));
+    }
+
+    // Every statement on the archive is closed by the time it is detached, which SQLite requires.
+    private static <T> T attached(Connection connection, String file, SqlWork<T> work) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(ATTACH)) {
+            statement.setString(1, file);
+            statement.execute();
+        }
+        try {
+            return work.run();
+        } finally {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(DETACH);
+            }
+        }
+    }
+
+    private static Totals totals(Connection connection, String schema, long firstKey, long lastKey) throws SQLException {
+        long transactions;
+        long entries;
+        long amount;
+        long accounts;
+        long keys;
+        try (PreparedStatement statement = connection.prepareStatement(COUNT_TRANSACTIONS.formatted(schema))) {
+            transactions = single(statement, firstKey, lastKey)[0];
+        }
+        try (PreparedStatement statement = connection.prepareStatement(SUM_ENTRIES.formatted(schema))) {
+            long[] sums = single(statement, firstKey, lastKey);
+            entries = sums[0];
+            amount = sums[1];
+            accounts = sums[2];
+        }
+        try (PreparedStatement statement = connection.prepareStatement(COUNT_KEYS.formatted(schema, schema))) {
+            keys = single(statement, firstKey, lastKey)[0];
+        }
+        return new Totals(transactions, entries, keys, amount, accounts);
+    }
+
+    private static long[] single(PreparedStatement statement, long firstKey, long lastKey) throws SQLException {
+        statement.setLong(1, firstKey);
+        statement.setLong(2, lastKey);
+        try (ResultSet rs = statement.executeQuery()) {
+            rs.next();
+            long[] values = new long[rs.getMetaData().getColumnCount()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = rs.getLong(i + 1);
+            }
+            return values;
+        }
+    }
+
+    private static void update(Connection connection, String sql, long fromKey, long toKey) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, fromKey);
+            statement.setLong(2, toKey);
+            statement.executeUpdate();
+        }
+    }
+
+    @Override
+    public List<CatalogedQuery> queries() {
+        return List.of(
+            // One row per archived month.
+            CatalogedQuery.fullScan("archives.findAll", FIND_ALL),
+            CatalogedQuery.lookup("archives.findByPeriod", FIND_BY_PERIOD),
+            CatalogedQuery.lookup("archives.insert", INSERT),
+            CatalogedQuery.lookup("archives.updateCopied", UPDATE_COPIED),
+            CatalogedQuery.lookup("archives.seal", SEAL),
+            CatalogedQuery.lookup("archives.updateDeleted", UPDATE_DELETED),
+            CatalogedQuery.lookup("archives.complete", COMPLETE),
+            CatalogedQuery.lookup("archives.nextTransaction", NEXT_TRANSACTION),
+            CatalogedQuery.lookup("archives.lastKeyBefore", LAST_KEY_BEFORE),
+            CatalogedQuery.lookup("archives.transactionAfter", TRANSACTION_AFTER),
+            CatalogedQuery.lookup("archives.lastSequence", LAST_SEQUENCE),
+            CatalogedQuery.lookup("archives.createdAt", CREATED_AT),
+            CatalogedQuery.lookup("archives.transactionIdAt", TRANSACTION_ID_AT),
+            CatalogedQuery.lookup("archives.countTransactions", COUNT_TRANSACTIONS.formatted("main.")),
+            CatalogedQuery.lookup("archives.sumEntries", SUM_ENTRIES.formatted("main.")),
+            CatalogedQuery.lookup("archives.countKeys", COUNT_KEYS.formatted("main.", "main.")),
+            CatalogedQuery.lookup("archives.deleteKeys", DELETE_KEYS),
+            CatalogedQuery.lookup("archives.deleteEntries", DELETE_ENTRIES),
+            CatalogedQuery.lookup("archives.deleteTransactions", DELETE_TRANSACTIONS)
+        );
+    }
+
+    @FunctionalInterface
+    private interface SqlWork<T> {
+        T run() throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface ArchiveWork<T> {
+        T run(JdbcTemplate archive);
+    }
+
+    /**
+     * @param status {@code copying}, {@code sealed} or {@code archived}
+     */
+    public record ArchiveRow(String period, String file, long firstTransactionKey, long lastTransactionKey,
+                             long firstSequence, long lastSequence, long copiedTransactionKey, long deletedTransactionKey,
+                             long transactions, long entries, long idempotencyKeys, String asOf, String status) {
+        public boolean copying() {
+            return "copying".equals(status);
+        }
+
+        public boolean archived() {
+            return "archived".equals(status);
+        }
+    }
+
+    public record TransactionPosition(long key, String createdAt) {
+    }
+
+    /**
+     * @param accountKeys sum of the entries' account keys, which catches an entry copied to the wrong account
+     */
+    public record Totals(long transactions, long entries, long idempotencyKeys, long amount, long accountKeys) {
+    }
+
+    public record Comparison(Totals hot, Totals archived) {
+        public boolean matches() {
+            return hot.equals(archived);
+        }
+    }
+
+    public record ArchivedTransaction(TransactionRepository.TransactionRow transaction, List<EntryRepository.EntryRow> entries) {
+    }
+}
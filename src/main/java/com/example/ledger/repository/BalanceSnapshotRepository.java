@@ -0,0 +1,104 @@
+package com.example.ledger.repository;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+@Timed("ledger.repository")
+public class BalanceSnapshotRepository implements QueryCatalog {
+    private static final String INSERT = "INSERT OR REPLACE INTO balance_snapshots "
+        + "(account_id, entry_rowid, transaction_id, as_of, balance) VALUES (?, ?, ?, ?, ?)";
+    private static final String FIND_LATEST_AS_OF = "SELECT account_id, entry_rowid, transaction_id, as_of, balance "
+        + "FROM balance_snapshots WHERE account_id = ? AND as_of <= ? ORDER BY as_of DESC, entry_rowid DESC LIMIT 1";
+    // The live balance includes the sub-balances of a sharded account.
+    private static final String VERIFY = "SELECT a.balance + COALESCE(("
+        + "SELECT SUM(sh.balance) FROM account_shards sh WHERE sh.account_id = a.id), 0) AS live, s.balance + COALESCE(("
+        + "SELECT SUM(CASE WHEN e.direction = a.direction THEN e.amount ELSE -e.amount END) FROM entries e "
+        + "WHERE e.account_key = a.key AND e.rowid > s.entry_rowid), 0) AS expected "
+        + "FROM balance_snapshots s JOIN accounts a ON a.id = s.account_id WHERE s.account_id = ? AND s.entry_rowid = ?";
+    private static final String LATEST_HIGH_WATER = "SELECT COALESCE(MAX(high_water_rowid), 0) FROM balance_snapshot_runs";
+    private static final String INSERT_RUN = "INSERT OR REPLACE INTO balance_snapshot_runs (high_water_rowid, as_of, accounts) VALUES (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public BalanceSnapshotRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    private static final RowMapper<SnapshotRow> MAPPER = (rs, rowNum) -> new SnapshotRow(
+        rs.getString("account_id"),
+        rs.getLong("entry_rowid"),
+        rs.getString("transaction_id"),
+        rs.getString("as_of"),
+        rs.getLong("balance")
+    );
+
+    public void insertAll(List<SnapshotRow> snapshots) {
+        jdbcTemplate.batchUpdate(
+            INSERT,
+            snapshots,
+            snapshots.size(),
+            (ps, snapshot) -> {
+                ps.setString(1, snapshot.accountId());
+                ps.setLong(2, snapshot.entryRowid());
+                ps.setString(3, snapshot.transactionId());
+                ps.setString(4, snapshot.asOf());
+                ps.setLong(5, snapshot.balance());
+            }
+        );
+    }
+
+    /**
+     * The latest snapshot of {@code accountId} taken at or before {@code asOf}, a timestamp in the
+     * {@code created_at} format.
+     */
+    public Optional<SnapshotRow> findLatestAsOf(String accountId, String asOf) {
+        return jdbcTemplate.query(FIND_LATEST_AS_OF, MAPPER, accountId, asOf).stream().findFirst();
+    }
+
+    /**
+     * Compares, in one consistent read, the live {@code accounts.balance} with the snapshot plus
+     * every entry posted to the account after it.
+     */
+    public Optional<Verification> verify(String accountId, long entryRowid) {
+        return jdbcTemplate.query(VERIFY, (rs, rowNum) -> new Verification(rs.getLong("live"), rs.getLong("expected")),
+            accountId, entryRowid).stream().findFirst();
+    }
+
+    /**
+     * The last entry rowid included by a snapshot run, or 0 before the first run.
+     */
+    public long latestHighWater() {
+        Long highWater = jdbcTemplate.queryForObject(LATEST_HIGH_WATER, Long.class);
+        return highWater == null ? 0 : highWater;
+    }
+
+    public void insertRun(long highWaterRowid, String asOf, int accounts) {
+        jdbcTemplate.update(INSERT_RUN, highWaterRowid, asOf, accounts);
+    }
+
+    @Override
+    public List<CatalogedQuery> queries() {
+        return List.of(
+            CatalogedQuery.lookup("snapshots.insert", INSERT),
+            CatalogedQuery.lookup("snapshots.findLatestAsOf", FIND_LATEST_AS_OF),
+            CatalogedQuery.lookup("snapshots.verify", VERIFY),
+            CatalogedQuery.lookup("snapshots.latestHighWater", LATEST_HIGH_WATER),
+            CatalogedQuery.lookup("snapshots.insertRun", INSERT_RUN)
+        );
+    }
+
+    public record SnapshotRow(String accountId, long entryRowid, String transactionId, String asOf, long balance) {
+    }
+
+    public record Verification(long liveBalance, long expectedBalance) {
+        public boolean matches() {
+            return liveBalance == expectedBalance;
+        }
+    }
+}
@@ -1,18 +1,67 @@
 package com.example.ledger.repository;
 
+import com.example.ledger.config.DataSourceConfig;
 import com.example.ledger.domain.Direction;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public class EntryRepository {
+@Timed("ledger.repository")
+public class EntryRepository implements QueryCatalog {
+    // Entries reference accounts and transactions by their integer keys; ids are translated here, in
+    // the SQL, so callers keep working with the string ids of the API.
+    private static final String ACCOUNT_KEY = "(SELECT key FROM accounts WHERE id = ?)";
+    private static final String INSERT = "INSERT INTO entries (id, transaction_key, account_key, direction, amount) "
+        + "VALUES (?, (SELECT key FROM transactions WHERE id = ?), " + ACCOUNT_KEY + ", ?, ?)";
+    // idx_entries_transaction_key ends in the rowid, so the entries come back in posting order.
+    private static final String FIND_BY_TRANSACTION_ID = "SELECT e.id, t.id AS transaction_id, a.id AS account_id, "
+        + "e.direction, e.amount FROM transactions t JOIN entries e ON e.transaction_key = t.key "
+        + "JOIN accounts a ON a.key = e.account_key WHERE t.id = ? ORDER BY e.rowid";
+    private static final String MAX_ROWID_FOR_ACCOUNT = "SELECT MAX(rowid) FROM entries WHERE account_key = " + ACCOUNT_KEY;
+    private static final String SUM_DELTAS_BETWEEN = "SELECT COALESCE(SUM(CASE WHEN direction = ? THEN amount ELSE -amount END), 0) "
+        + "FROM entries WHERE account_key = " + ACCOUNT_KEY + " AND rowid > ? AND rowid < ?";
+    private static final String MAX_ROWID = "SELECT COALESCE(MAX(rowid), 0) FROM entries";
+    private static final String FIND_LAST_FOR_ACCOUNT_UP_TO = "SELECT e.rowid AS entry_rowid, t.id AS transaction_id "
+        + "FROM entries e JOIN transactions t ON t.key = e.transaction_key "
+        + "WHERE e.account_key = " + ACCOUNT_KEY + " AND e.rowid <= ? ORDER BY e.rowid DESC LIMIT 1";
+    private static final String FIND_ACCOUNT_IDS_BETWEEN = "SELECT a.id FROM accounts a WHERE a.key IN "
+        + "(SELECT account_key FROM entries WHERE rowid > ? AND rowid <= ?)";
+    private static final String TRANSACTION_CREATED_AT =
+        "SELECT t.created_at FROM entries e JOIN transactions t ON t.key = e.transaction_key WHERE e.rowid = ?";
+    private static final String SUM_DELTAS_AFTER_UNTIL = "SELECT COALESCE(SUM(CASE WHEN e.direction = ? THEN e.amount ELSE -e.amount END), 0) "
+        + "FROM entries e JOIN transactions t ON t.key = e.transaction_key "
+        + "WHERE e.account_key = " + ACCOUNT_KEY + " AND e.rowid > ? AND t.created_at <= ?";
+    // The rowid range, from lastSequenceBefore, is what bounds the walk over idx_entries_account_key;
+    // the time bounds only drop rows a clock step back may have put on the wrong side of it. Absent
+    // time bounds are bound as NULL so there is one statement to check and cache.
+    private static final String FIND_STATEMENT_PAGE = "SELECT e.rowid AS sequence, e.id, t.id AS transaction_id, e.direction, e.amount, "
+        + "t.created_at FROM entries e JOIN transactions t ON t.key = e.transaction_key "
+        + "WHERE e.account_key = (SELECT key FROM accounts WHERE id = ?1) AND e.rowid > ?2 AND e.rowid <= ?3 "
+        + "AND (?4 IS NULL OR t.created_at >= ?4) AND (?5 IS NULL OR t.created_at < ?5) ORDER BY e.rowid LIMIT ?6";
+    // Keys and entry sequences both grow with created_at: the last transaction created before a time
+    // is one seek on idx_transactions_created_at and its last entry one on idx_entries_transaction_key.
+    private static final String LAST_SEQUENCE_BEFORE = "SELECT rowid FROM entries WHERE transaction_key <= "
+        + "(SELECT key FROM transactions WHERE created_at < ? ORDER BY created_at DESC, key DESC LIMIT 1) "
+        + "ORDER BY transaction_key DESC, rowid DESC LIMIT 1";
+
     private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate readJdbcTemplate;
 
-    public EntryRepository(JdbcTemplate jdbcTemplate) {
+    public EntryRepository(JdbcTemplate jdbcTemplate, @Qualifier(DataSourceConfig.READ_JDBC_TEMPLATE) JdbcTemplate readJdbcTemplate) {
         this.jdbcTemplate = jdbcTemplate;
+        this.readJdbcTemplate = readJdbcTemplate;
+    }
+
+    // Reads inside a write transaction stay on its connection so they see its own writes.
+    private JdbcTemplate reader() {
+        return TransactionSynchronizationManager.isActualTransactionActive() ? jdbcTemplate : readJdbcTemplate;
     }
 
     private static final RowMapper<EntryRow> MAPPER = (rs, rowNum) -> new EntryRow(
@@ -25,7 +74,7 @@ public class EntryRepository {
 
     public void insert(EntryRow entry) {
         jdbcTemplate.update(
-            "INSERT INTO entries (id, transaction_id, account_id, direction, amount) VALUES (?, ?, ?, ?, ?)",
+            INSERT,
             entry.id(),
             entry.transactionId(),
             entry.accountId(),
@@ -34,14 +83,138 @@ public class EntryRepository {
         );
     }
 
+    /**
+     * Inserts all entries as one JDBC batch: every row is bound to one prepared statement, so a
+     * 200-entry posting costs one round of statement setup instead of 200. The statement is
+     * cataloged, so the connection keeps it open and later postings skip even that one.
+     */
+    public void insertAll(List<EntryRow> entries) {
+        jdbcTemplate.batchUpdate(
+            INSERT,
+            entries,
+            entries.size(),
+            (ps, entry) -> {
+                ps.setString(1, entry.id());
+                ps.setString(2, entry.transactionId());
+                ps.setString(3, entry.accountId());
+                ps.setString(4, entry.direction().value());
+                ps.setLong(5, entry.amount());
+            }
+        );
+    }
+
     public List<EntryRow> findByTransactionId(String transactionId) {
-        return jdbcTemplate.query(
-            "SELECT id, transaction_id, account_id, direction, amount FROM entries WHERE transaction_id = ?",
+        return reader().query(
+            FIND_BY_TRANSACTION_ID,
             MAPPER,
             transactionId
         );
     }
 
+    @Override
+    public List<CatalogedQuery> queries() {
+        return List.of(
+            CatalogedQuery.lookup("entries.insert", INSERT),
+            CatalogedQuery.lookup("entries.findByTransactionId", FIND_BY_TRANSACTION_ID),
+            CatalogedQuery.lookup("entries.maxRowidForAccount", MAX_ROWID_FOR_ACCOUNT),
+            CatalogedQuery.lookup("entries.sumDeltasBetween", SUM_DELTAS_BETWEEN),
+            CatalogedQuery.lookup("entries.findStatementPage", FIND_STATEMENT_PAGE),
+            CatalogedQuery.lookup("entries.maxRowid", MAX_ROWID),
+            CatalogedQuery.lookup("entries.findLastForAccountUpTo", FIND_LAST_FOR_ACCOUNT_UP_TO),
+            CatalogedQuery.lookup("entries.findAccountIdsBetween", FIND_ACCOUNT_IDS_BETWEEN),
+            CatalogedQuery.lookup("entries.transactionCreatedAt", TRANSACTION_CREATED_AT),
+            CatalogedQuery.lookup("entries.sumDeltasAfterUntil", SUM_DELTAS_AFTER_UNTIL),
+            CatalogedQuery.lookup("entries.lastSequenceBefore", LAST_SEQUENCE_BEFORE)
+        );
+    }
+
+    /**
+     * The rowid of the latest entry of {@code accountId}, or 0 when it has none.
+     */
+    public long maxRowidForAccount(String accountId) {
+        Long rowid = reader().queryForObject(MAX_ROWID_FOR_ACCOUNT, Long.class, accountId);
+        return rowid == null ? 0 : rowid;
+    }
+
+    /**
+     * Net effect on the balance of an account with normal balance {@code accountDirection} of its
+     * entries with a rowid strictly between the two bounds.
+     */
+    public long sumDeltasBetween(String accountId, Direction accountDirection, long afterRowid, long beforeRowid) {
+        Long sum = reader().queryForObject(SUM_DELTAS_BETWEEN, Long.class,
+            accountDirection.value(), accountId, afterRowid, beforeRowid);
+        return sum == null ? 0 : sum;
+    }
+
+    /**
+     * The rowid of the latest entry in the ledger, or 0 when there is none.
+     */
+    public long maxRowid() {
+        Long rowid = reader().queryForObject(MAX_ROWID, Long.class);
+        return rowid == null ? 0 : rowid;
+    }
+
+    public Optional<EntryPosition> findLastForAccountUpTo(String accountId, long upToRowid) {
+        return reader().query(FIND_LAST_FOR_ACCOUNT_UP_TO,
+            (rs, rowNum) -> new EntryPosition(rs.getLong("entry_rowid"), rs.getString("transaction_id")),
+            accountId, upToRowid).stream().findFirst();
+    }
+
+    /**
+     * Accounts with at least one entry whose rowid is in {@code (afterRowid, upToRowid]}.
+     */
+    public List<String> findAccountIdsBetween(long afterRowid, long upToRowid) {
+        return reader().queryForList(FIND_ACCOUNT_IDS_BETWEEN, String.class, afterRowid, upToRowid);
+    }
+
+    /**
+     * {@code created_at} of the transaction that entry {@code rowid} belongs to.
+     */
+    public String transactionCreatedAt(long rowid) {
+        return reader().queryForObject(TRANSACTION_CREATED_AT, String.class, rowid);
+    }
+
+    /**
+     * Net balance effect of the entries of {@code accountId} after {@code afterRowid} whose
+     * transaction was created at or before {@code until}.
+     */
+    public long sumDeltasAfterUntil(String accountId, Direction accountDirection, long afterRowid, String until) {
+        Long sum = reader().queryForObject(SUM_DELTAS_AFTER_UNTIL, Long.class,
+            accountDirection.value(), accountId, afterRowid, until);
+        return sum == null ? 0 : sum;
+    }
+
+    /**
+     * The rowid of the last entry of the transactions created before {@code time} (in the
+     * {@code created_at} format), or 0 when there is none.
+     */
+    public long lastSequenceBefore(String time) {
+        List<Long> rowids = reader().queryForList(LAST_SEQUENCE_BEFORE, Long.class, time);
+        return rowids.isEmpty() ? 0 : rowids.get(0);
+    }
+
+    /**
+     * Entries of {@code accountId} with a rowid in {@code (afterRowid, upToRowid]} in posting order,
+     * optionally limited to transactions created in {@code [from, to)} (timestamps in the
+     * {@code created_at} format).
+     */
+    public List<StatementRow> findStatementPage(String accountId, long afterRowid, long upToRowid, String from, String to, int limit) {
+        return reader().query(FIND_STATEMENT_PAGE, (rs, rowNum) -> new StatementRow(
+            rs.getLong("sequence"),
+            rs.getString("id"),
+            rs.getString("transaction_id"),
+            Direction.from(rs.getString("direction")),
+            rs.getLong("amount"),
+            rs.getString("created_at")
+        ), accountId, afterRowid, upToRowid, from, to, limit);
+    }
+
+    public record EntryPosition(long rowid, String transactionId) {
+    }
+
+    public record StatementRow(long sequence, String id, String transactionId, Direction direction, long amount, String createdAt) {
+    }
+
     public record EntryRow(String id, String transactionId, String accountId, Direction direction, long amount) {
     }
 }
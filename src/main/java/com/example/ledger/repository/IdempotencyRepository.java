@@ -1,14 +1,29 @@
 package com.example.ledger.repository;
 
+import io.micrometer.core.annotation.Timed;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Repository
-public class IdempotencyRepository {
+@Timed("ledger.repository")
+public class IdempotencyRepository implements QueryCatalog {
+    private static final int IN_CLAUSE_CHUNK = 500;
+    private static final String INSERT = "INSERT INTO idempotency_keys (key, request_hash, transaction_id) VALUES (?, ?, ?)";
+    private static final String FIND_BY_KEYS = "SELECT key, request_hash, transaction_id FROM idempotency_keys WHERE key IN (";
+    private static final String FIND_BY_KEY = "SELECT key, request_hash, transaction_id FROM idempotency_keys WHERE key = ?";
+    private static final String DELETE_CREATED_BEFORE = "DELETE FROM idempotency_keys WHERE rowid IN "
+        + "(SELECT rowid FROM idempotency_keys WHERE created_at < ? ORDER BY created_at LIMIT ?)";
+    private static final String FOR_EACH_KEY = "SELECT key FROM idempotency_keys";
+
     private final JdbcTemplate jdbcTemplate;
 
     public IdempotencyRepository(JdbcTemplate jdbcTemplate) {
@@ -23,22 +38,83 @@ public class IdempotencyRepository {
 
     public void insert(IdempotencyRow row) {
         jdbcTemplate.update(
-            "INSERT INTO idempotency_keys (key, request_hash, transaction_id) VALUES (?, ?, ?)",
+            INSERT,
             row.key(),
             row.requestHash(),
             row.transactionId()
         );
     }
 
+    public void insertAll(List<IdempotencyRow> rows) {
+        jdbcTemplate.batchUpdate(
+            INSERT,
+            rows,
+            rows.size(),
+            (ps, row) -> {
+                ps.setString(1, row.key());
+                ps.setString(2, row.requestHash());
+                ps.setString(3, row.transactionId());
+            }
+        );
+    }
+
+    public Map<String, IdempotencyRow> findByKeys(Collection<String> keys) {
+        Map<String, IdempotencyRow> found = new HashMap<>();
+        List<String> remaining = List.copyOf(keys);
+        for (int from = 0; from < remaining.size(); from += IN_CLAUSE_CHUNK) {
+            List<String> chunk = remaining.subList(from, Math.min(from + IN_CLAUSE_CHUNK, remaining.size()));
+            List<IdempotencyRow> rows = jdbcTemplate.query(
+                FIND_BY_KEYS + QueryCatalog.placeholders(chunk.size()) + ")",
+                MAPPER,
+                chunk.toArray()
+            );
+            for (IdempotencyRow row : rows) {
+                found.put(row.key(), row);
+            }
+        }
+        return found;
+    }
+
     public Optional<IdempotencyRow> findByKey(String key) {
         List<IdempotencyRow> rows = jdbcTemplate.query(
-            "SELECT key, request_hash, transaction_id FROM idempotency_keys WHERE key = ?",
+            FIND_BY_KEY,
             MAPPER,
             key
         );
         return rows.stream().findFirst();
     }
 
+    /**
+     * Deletes up to {@code limit} of the oldest keys created before {@code cutoff}, an ISO-8601 UTC
+     * timestamp in the format of {@code created_at}. Returns the number deleted.
+     */
+    public int deleteCreatedBefore(String cutoff, int limit) {
+        return jdbcTemplate.update(
+            DELETE_CREATED_BEFORE,
+            cutoff,
+            limit
+        );
+    }
+
+    /**
+     * Streams every stored key without materializing the result.
+     */
+    public void forEachKey(Consumer<String> consumer) {
+        RowCallbackHandler handler = rs -> consumer.accept(rs.getString(1));
+        jdbcTemplate.query(FOR_EACH_KEY, handler);
+    }
+
+    @Override
+    public List<CatalogedQuery> queries() {
+        return List.of(
+            CatalogedQuery.lookup("idempotency.insert", INSERT),
+            CatalogedQuery.lookup("idempotency.findByKeys", FIND_BY_KEYS + QueryCatalog.placeholders(2) + ")"),
+            CatalogedQuery.lookup("idempotency.findByKey", FIND_BY_KEY),
+            CatalogedQuery.lookup("idempotency.deleteCreatedBefore", DELETE_CREATED_BEFORE),
+            CatalogedQuery.fullScan("idempotency.forEachKey", FOR_EACH_KEY)
+        );
+    }
+
     public record IdempotencyRow(String key, String requestHash, String transactionId) {
     }
 }
@@ -0,0 +1,40 @@
+package com.example.ledger.repository;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+@Timed("ledger.repository")
+public class JournalProgressRepository implements QueryCatalog {
+    private static final String APPLIED_SEQUENCE = "SELECT applied_sequence FROM journal_progress WHERE id = 1";
+    private static final String UPDATE = "UPDATE journal_progress SET applied_sequence = ? WHERE id = 1";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public JournalProgressRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * The sequence of the last journal record applied to the tables, or 0 when none has been.
+     */
+    public long appliedSequence() {
+        Long sequence = jdbcTemplate.queryForObject(APPLIED_SEQUENCE, Long.class);
+        return sequence == null ? 0 : sequence;
+    }
+
+    public void update(long appliedSequence) {
+        jdbcTemplate.update(UPDATE, appliedSequence);
+    }
+
+    @Override
+    public List<CatalogedQuery> queries() {
+        return List.of(
+            CatalogedQuery.lookup("journalProgress.appliedSequence", APPLIED_SEQUENCE),
+            CatalogedQuery.lookup("journalProgress.update", UPDATE)
+        );
+    }
+}
@@ -0,0 +1,267 @@
+package com.example.ledger.repository;
+
+import com.example.ledger.config.DataSourceConfig;
+import com.example.ledger.domain.Direction;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Runs, running totals and findings of the full-ledger verifier, and the reads it is made of.
+ */
+@Repository
+@Timed("ledger.repository")
+public class LedgerVerificationRepository implements QueryCatalog {
+    // A run starts after the last sealed archive, whose entries are no longer in the table.
+    private static final String INSERT = "INSERT INTO ledger_verifications "
+        + "(high_water_sequence, start_sequence, verified_sequence, status) SELECT ?, start, start, 'running' "
+        + "FROM (SELECT IFNULL(MAX(last_sequence), 0) AS start FROM ledger_archives WHERE status <> 'copying')";
+    private static final String LAST_INSERT_ID = "SELECT last_insert_rowid()";
+    private static final String SELECT = "SELECT id, high_water_sequence, start_sequence, verified_sequence, open_transaction_key, "
+        + "open_transaction_net, status, started_at, completed_at FROM ledger_verifications ";
+    private static final String FIND_BY_ID = SELECT + "WHERE id = ?";
+    private static final String FIND_RUNNING = SELECT + "WHERE status = 'running' ORDER BY id DESC LIMIT 1";
+    private static final String FIND_TOTALS = "SELECT account_key, net FROM ledger_verification_totals WHERE verification_id = ?";
+    private static final String ADD_TOTAL = "INSERT INTO ledger_verification_totals (verification_id, account_key, net) "
+        + "VALUES (?, ?, ?) ON CONFLICT (verification_id, account_key) DO UPDATE SET net = net + excluded.net";
+    private static final String INSERT_FINDING = "INSERT OR REPLACE INTO ledger_verification_findings "
+        + "(verification_id, kind, subject, expected, actual) VALUES (?, ?, ?, ?, ?)";
+    private static final String FIND_FINDINGS = "SELECT kind, subject, expected, actual FROM ledger_verification_findings "
+        + "WHERE verification_id = ? ORDER BY kind, subject LIMIT ?";
+    private static final String COUNT_FINDINGS = "SELECT COUNT(*) FROM ledger_verification_findings WHERE verification_id = ?";
+    // A runner claims each chunk by moving the run on from where it read it; another process running
+    // the same verification has moved it already and the claim updates nothing.
+    private static final String UPDATE_PROGRESS = "UPDATE ledger_verifications SET verified_sequence = ?, "
+        + "open_transaction_key = ?, open_transaction_net = ? WHERE id = ? AND verified_sequence = ? AND status = 'running'";
+    private static final String COMPLETE = "UPDATE ledger_verifications SET status = 'completed', "
+        + "completed_at = strftime('%Y-%m-%dT%H:%M:%fZ', 'now') WHERE id = ? AND verified_sequence = ? AND status = 'running'";
+    // Entries of a transaction are inserted together, so they are contiguous in rowid order.
+    private static final String FOR_EACH_ENTRY_BETWEEN = "SELECT transaction_key, account_key, direction, amount "
+        + "FROM entries WHERE rowid > ? AND rowid <= ? ORDER BY rowid";
+    private static final String TRANSACTION_ID = "SELECT id FROM transactions WHERE key = ?";
+    // Sealing checkpoints only the accounts with entries in the period, so an account's balance at the
+    // start is its latest checkpoint at or before it: none of its entries lie between the two.
+    private static final String ACCOUNT_BALANCES = "SELECT a.key, a.id, a.direction, a.balance + IFNULL(("
+        + "SELECT SUM(s.balance) FROM account_shards s WHERE s.account_id = a.id), 0) AS balance, IFNULL(("
+        + "SELECT c.balance FROM account_checkpoints c WHERE c.account_id = a.id AND c.entry_rowid <= ? "
+        + "ORDER BY c.entry_rowid DESC LIMIT 1), 0) AS opening "
+        + "FROM accounts a";
+    // NOT INDEXED keeps the planner on the rowid range instead of walking all of idx_entries_account_key to group.
+    private static final String NETS_AFTER = "SELECT account_key, "
+        + "SUM(CASE WHEN direction = 'debit' THEN amount ELSE -amount END) AS net FROM entries NOT INDEXED "
+        + "WHERE rowid > ? GROUP BY account_key";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate readJdbcTemplate;
+
+    public LedgerVerificationRepository(JdbcTemplate jdbcTemplate,
+                                        @Qualifier(DataSourceConfig.READ_JDBC_TEMPLATE) JdbcTemplate readJdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readJdbcTemplate = readJdbcTemplate;
+    }
+
+    private static final RowMapper<VerificationRow> MAPPER = (rs, rowNum) -> new VerificationRow(
+        rs.getLong("id"),
+        rs.getLong("high_water_sequence"),
+        rs.getLong("start_sequence"),
+        rs.getLong("verified_sequence"),
+        rs.getObject("open_transaction_key") == null ? null : rs.getLong("open_transaction_key"),
+        rs.getLong("open_transaction_net"),
+        rs.getString("status"),
+        rs.getString("started_at"),
+        rs.getString("completed_at")
+    );
+
+    /**
+     * Creates a running verification of the entries up to {@code highWaterSequence}, starting after
+     * the last archived one. Must run in a transaction, so that the id read back is the one just
+     * inserted.
+     */
+    public long insert(long highWaterSequence) {
+        jdbcTemplate.update(INSERT, highWaterSequence);
+        Long id = jdbcTemplate.queryForObject(LAST_INSERT_ID, Long.class);
+        return id == null ? 0 : id;
+    }
+
+    public Optional<VerificationRow> findById(long id) {
+        return jdbcTemplate.query(FIND_BY_ID, MAPPER, id).stream().findFirst();
+    }
+
+    public Optional<VerificationRow> findRunning() {
+        return jdbcTemplate.query(FIND_RUNNING, MAPPER).stream().findFirst();
+    }
+
+    /**
+     * The per-account totals a run has saved so far.
+     */
+    public Map<Long, Long> findTotals(long id) {
+        Map<Long, Long> totals = new HashMap<>();
+        jdbcTemplate.query(FIND_TOTALS, (RowCallbackHandler) rs -> totals.put(rs.getLong(1), rs.getLong(2)), id);
+        return totals;
+    }
+
+    /**
+     * Saves the outcome of the entries in {@code (fromSequence, verifiedSequence]}: moves the run
+     * forward, adds {@code nets} to its totals and records the findings. Writes nothing and returns
+     * false when the run is no longer at {@code fromSequence}, because another process saved the
+     * chunk first. Must run in a transaction.
+     */
+    public boolean saveProgress(long id, long fromSequence, long verifiedSequence, Long openTransactionKey,
+                                long openTransactionNet, Map<Long, Long> nets, List<Finding> findings) {
+        if (jdbcTemplate.update(UPDATE_PROGRESS, verifiedSequence, openTransactionKey, openTransactionNet, id, fromSequence) == 0) {
+            return false;
+        }
+        List<Map.Entry<Long, Long>> totals = new ArrayList<>(nets.entrySet());
+        jdbcTemplate.batchUpdate(ADD_TOTAL, totals, totals.size(), (ps, total) -> {
+            ps.setLong(1, id);
+            ps.setLong(2, total.getKey());
+            ps.setLong(3, total.getValue());
+        });
+        insertFindings(id, findings);
+        return true;
+    }
+
+    public void insertFindings(long id, List<Finding> findings) {
+        jdbcTemplate.batchUpdate(INSERT_FINDING, findings, findings.size(), (ps, finding) -> {
+            ps.setLong(1, id);
+            ps.setString(2, finding.kind());
+            ps.setString(3, finding.subject());
+            ps.setLong(4, finding.expected());
+            ps.setLong(5, finding.actual());
+        });
+    }
+
+    /**
+     * Marks a run that verified up to {@code verifiedSequence} completed; false when another process
+     * completed it first.
+     */
+    public boolean complete(long id, long verifiedSequence) {
+        return jdbcTemplate.update(COMPLETE, id, verifiedSequence) > 0;
+    }
+
+    public List<Finding> findFindings(long id, int limit) {
+        return jdbcTemplate.query(FIND_FINDINGS, (rs, rowNum) -> new Finding(
+            rs.getString("kind"),
+            rs.getString("subject"),
+            rs.getLong("expected"),
+            rs.getLong("actual")
+        ), id, limit);
+    }
+
+    public int countFindings(long id) {
+        Integer count = jdbcTemplate.queryForObject(COUNT_FINDINGS, Integer.class, id);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Streams the entries with a rowid in {@code (afterSequence, upToSequence]} in posting order over
+     * a read-only connection, without materializing them.
+     */
+    public void forEachEntryBetween(long afterSequence, long upToSequence, EntryVisitor visitor) {
+        readJdbcTemplate.query(FOR_EACH_ENTRY_BETWEEN, (RowCallbackHandler) rs -> visitor.visit(
+            rs.getLong(1),
+            rs.getLong(2),
+            Direction.DEBIT.value().equals(rs.getString(3)),
+            rs.getLong(4)
+        ), afterSequence, upToSequence);
+    }
+
+    public Optional<String> findTransactionId(long transactionKey) {
+        return readJdbcTemplate.queryForList(TRANSACTION_ID, String.class, transactionKey).stream().findFirst();
+    }
+
+    /**
+     * Every account's live balance, including the sub-balances of a sharded account, its balance
+     * at {@code startSequence} (its opening balance when nothing is archived), and the net (debits
+     * minus credits) of its entries after {@code afterSequence}, all read from one snapshot of the
+     * database.
+     */
+    public AccountBalances accountBalances(long startSequence, long afterSequence) {
+        return readJdbcTemplate.execute((ConnectionCallback<AccountBalances>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                List<AccountBalance> accounts = new ArrayList<>();
+                Map<Long, Long> netsAfter = new HashMap<>();
+                try (PreparedStatement statement = connection.prepareStatement(ACCOUNT_BALANCES)) {
+                    statement.setLong(1, startSequence);
+                    try (ResultSet rs = statement.executeQuery()) {
+                        while (rs.next()) {
+                            accounts.add(new AccountBalance(rs.getLong("key"), rs.getString("id"),
+                                Direction.from(rs.getString("direction")), rs.getLong("balance"), rs.getLong("opening")));
+                        }
+                    }
+                }
+                try (PreparedStatement statement = connection.prepareStatement(NETS_AFTER)) {
+                    statement.setLong(1, afterSequence);
+                    try (ResultSet rs = statement.executeQuery()) {
+                        while (rs.next()) {
+                            netsAfter.put(rs.getLong("account_key"), rs.getLong("net"));
+                        }
+                    }
+                }
+                return new AccountBalances(accounts, netsAfter);
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(autoCommit);
+            }
+        });
+    }
+
+    @Override
+    public List<CatalogedQuery> queries() {
+        return List.of(
+            // ledger_archives has one row per archived month.
+            CatalogedQuery.fullScan("verifications.insert", INSERT),
+            CatalogedQuery.lookup("verifications.lastInsertId", LAST_INSERT_ID),
+            CatalogedQuery.lookup("verifications.findById", FIND_BY_ID),
+            CatalogedQuery.lookup("verifications.findRunning", FIND_RUNNING),
+            CatalogedQuery.lookup("verifications.findTotals", FIND_TOTALS),
+            CatalogedQuery.lookup("verifications.addTotal", ADD_TOTAL),
+            CatalogedQuery.lookup("verifications.insertFinding", INSERT_FINDING),
+            CatalogedQuery.lookup("verifications.findFindings", FIND_FINDINGS),
+            CatalogedQuery.lookup("verifications.countFindings", COUNT_FINDINGS),
+            CatalogedQuery.lookup("verifications.updateProgress", UPDATE_PROGRESS),
+            CatalogedQuery.lookup("verifications.complete", COMPLETE),
+            CatalogedQuery.lookup("verifications.forEachEntryBetween", FOR_EACH_ENTRY_BETWEEN),
+            CatalogedQuery.lookup("verifications.transactionId", TRANSACTION_ID),
+            CatalogedQuery.fullScan("verifications.accountBalances", ACCOUNT_BALANCES),
+            CatalogedQuery.lookup("verifications.netsAfter", NETS_AFTER)
+        );
+    }
+
+    @FunctionalInterface
+    public interface EntryVisitor {
+        void visit(long transactionKey, long accountKey, boolean debit, long amount);
+    }
+
+    public record VerificationRow(long id, long highWaterSequence, long startSequence, long verifiedSequence, Long openTransactionKey,
+                                  long openTransactionNet, String status, String startedAt, String completedAt) {
+        public boolean completed() {
+            return "completed".equals(status);
+        }
+    }
+
+    public record Finding(String kind, String subject, long expected, long actual) {
+        public static final String ACCOUNT_DRIFT = "account_drift";
+        public static final String UNBALANCED_TRANSACTION = "unbalanced_transaction";
+    }
+
+    public record AccountBalance(long key, String id, Direction direction, long balance, long openingBalance) {
+    }
+
+    public record AccountBalances(List<AccountBalance> accounts, Map<Long, Long> netsAfter) {
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.ledger.repository;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Implemented by repositories to list the statements they run, so they can be checked with
+ * {@code EXPLAIN QUERY PLAN} at startup. Statements with a variable {@code IN} list are listed with
+ * a two-element list.
+ */
+public interface QueryCatalog {
+
+    List<CatalogedQuery> queries();
+
+    /**
+     * @param fullScan whether reading the whole table is the point of the statement
+     */
+    record CatalogedQuery(String name, String sql, boolean fullScan) {
+
+        public static CatalogedQuery lookup(String name, String sql) {
+            return new CatalogedQuery(name, sql, false);
+        }
+
+        public static CatalogedQuery fullScan(String name, String sql) {
+            return new CatalogedQuery(name, sql, true);
+        }
+    }
+
+    static String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+}
@@ -1,14 +1,36 @@
 package com.example.ledger.repository;
 
+import io.micrometer.core.annotation.Timed;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
-public class TransactionRepository {
+@Timed("ledger.repository")
+public class TransactionRepository implements QueryCatalog {
+    /**
+     * Format of {@code created_at} columns, as written by {@code strftime('%Y-%m-%dT%H:%M:%fZ', 'now')}.
+     * Timestamps in this format compare correctly as text.
+     */
+    public static final DateTimeFormatter CREATED_AT_FORMAT =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC);
+
+    private static final int IN_CLAUSE_CHUNK = 500;
+    // key is the integer entries refer to the transaction by; MAX is answered from idx_transactions_key.
+    private static final String NEXT_KEY = "(SELECT IFNULL(MAX(key), 0) + 1 FROM transactions)";
+    private static final String INSERT = "INSERT INTO transactions (id, name, key) VALUES (?, ?, " + NEXT_KEY + ")";
+    private static final String INSERT_AT = "INSERT INTO transactions (id, name, created_at, key) VALUES (?, ?, ?, " + NEXT_KEY + ")";
+    private static final String FIND_EXISTING_IDS = "SELECT id FROM transactions WHERE id IN (";
+    private static final String FIND_BY_ID = "SELECT id, name FROM transactions WHERE id = ?";
+
     private final JdbcTemplate jdbcTemplate;
 
     public TransactionRepository(JdbcTemplate jdbcTemplate) {
@@ -22,21 +44,77 @@ public class TransactionRepository {
 
     public void insert(TransactionRow transaction) {
         jdbcTemplate.update(
-            "INSERT INTO transactions (id, name) VALUES (?, ?)",
+            INSERT,
             transaction.id(),
             transaction.name()
         );
     }
 
+    public void insertAll(List<TransactionRow> transactions) {
+        jdbcTemplate.batchUpdate(
+            INSERT,
+            transactions,
+            transactions.size(),
+            (ps, transaction) -> {
+                ps.setString(1, transaction.id());
+                ps.setString(2, transaction.name());
+            }
+        );
+    }
+
+    /**
+     * Inserts transactions that were accepted earlier, keeping the time they were accepted at
+     * ({@code createdAt}, in {@link #CREATED_AT_FORMAT}) instead of the insert time.
+     */
+    public void insertAll(List<TransactionRow> transactions, String createdAt) {
+        jdbcTemplate.batchUpdate(
+            INSERT_AT,
+            transactions,
+            transactions.size(),
+            (ps, transaction) -> {
+                ps.setString(1, transaction.id());
+                ps.setString(2, transaction.name());
+                ps.setString(3, createdAt);
+            }
+        );
+    }
+
+    /**
+     * Returns the subset of {@code ids} that already exist.
+     */
+    public Set<String> findExistingIds(Collection<String> ids) {
+        Set<String> existing = new HashSet<>();
+        List<String> remaining = List.copyOf(ids);
+        for (int from = 0; from < remaining.size(); from += IN_CLAUSE_CHUNK) {
+            List<String> chunk = remaining.subList(from, Math.min(from + IN_CLAUSE_CHUNK, remaining.size()));
+            existing.addAll(jdbcTemplate.queryForList(
+                FIND_EXISTING_IDS + QueryCatalog.placeholders(chunk.size()) + ")",
+                String.class,
+                chunk.toArray()
+            ));
+        }
+        return existing;
+    }
+
     public Optional<TransactionRow> findById(String id) {
         List<TransactionRow> rows = jdbcTemplate.query(
-            "SELECT id, name FROM transactions WHERE id = ?",
+            FIND_BY_ID,
             MAPPER,
             id
         );
         return rows.stream().findFirst();
     }
 
+    @Override
+    public List<CatalogedQuery> queries() {
+        return List.of(
+            CatalogedQuery.lookup("transactions.insert", INSERT),
+            CatalogedQuery.lookup("transactions.insertAt", INSERT_AT),
+            CatalogedQuery.lookup("transactions.findExistingIds", FIND_EXISTING_IDS + QueryCatalog.placeholders(2) + ")"),
+            CatalogedQuery.lookup("transactions.findById", FIND_BY_ID)
+        );
+    }
+
     public record TransactionRow(String id, String name) {
     }
 }
@@ -0,0 +1,142 @@
+package com.example.ledger.repository;
+
+import com.example.ledger.config.DataSourceConfig;
+import com.example.ledger.domain.Direction;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code trial_balance} counters: per account direction, the number of accounts and the sum of
+ * their balances.
+ */
+@Repository
+@Timed("ledger.repository")
+public class TrialBalanceRepository implements QueryCatalog {
+    private static final String FIND_ALL = "SELECT direction, accounts, balance FROM trial_balance "
+        + "WHERE direction IN ('debit', 'credit')";
+    private static final String ADD = "UPDATE trial_balance SET balance = balance + ? WHERE direction = ?";
+    private static final String RECOUNT = "SELECT a.direction, COUNT(*) AS accounts, SUM(a.balance + IFNULL(("
+        + "SELECT SUM(s.balance) FROM account_shards s WHERE s.account_id = a.id), 0)) AS balance "
+        + "FROM accounts a GROUP BY a.direction";
+    private static final String REPLACE = "UPDATE trial_balance SET accounts = ?, balance = ? WHERE direction = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate readJdbcTemplate;
+
+    public TrialBalanceRepository(JdbcTemplate jdbcTemplate,
+                                  @Qualifier(DataSourceConfig.READ_JDBC_TEMPLATE) JdbcTemplate readJdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readJdbcTemplate = readJdbcTemplate;
+    }
+
+    private JdbcTemplate reader() {
+        return TransactionSynchronizationManager.isActualTransactionActive() ? jdbcTemplate : readJdbcTemplate;
+    }
+
+    private static final RowMapper<Totals> MAPPER = (rs, rowNum) -> new Totals(
+        Direction.from(rs.getString("direction")),
+        rs.getLong("accounts"),
+        rs.getLong("balance")
+    );
+
+    public Map<Direction, Totals> findAll() {
+        return byDirection(reader().query(FIND_ALL, MAPPER));
+    }
+
+    /**
+     * Adds balance deltas to the totals of their direction. Must run in the transaction that applies
+     * the deltas to the accounts.
+     */
+    public void addAll(Map<Direction, Long> deltas) {
+        List<Map.Entry<Direction, Long>> rows = new ArrayList<>(deltas.entrySet());
+        jdbcTemplate.batchUpdate(ADD, rows, rows.size(), (ps, row) -> {
+            ps.setLong(1, row.getValue());
+            ps.setString(2, row.getKey().value());
+        });
+    }
+
+    /**
+     * The stored totals and the totals recounted from {@code accounts} and {@code account_shards},
+     * both read from one snapshot of the database.
+     */
+    public Comparison compare() {
+        return reader().execute((ConnectionCallback<Comparison>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                return new Comparison(query(connection, FIND_ALL), query(connection, RECOUNT));
+            } finally {
+                if (autoCommit) {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+            }
+        });
+    }
+
+    /**
+     * Overwrites the stored totals with a recount. Must run in a write transaction, so that no
+     * posting lands between the recount and the write.
+     */
+    public Map<Direction, Totals> rebuild() {
+        Map<Direction, Totals> recounted = byDirection(jdbcTemplate.query(RECOUNT, MAPPER));
+        for (Direction direction : Direction.values()) {
+            Totals totals = recounted.get(direction);
+            jdbcTemplate.update(REPLACE, totals.accounts(), totals.balance(), direction.value());
+        }
+        return recounted;
+    }
+
+    private static Map<Direction, Totals> query(Connection connection, String sql) throws SQLException {
+        List<Totals> rows = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(sql); ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                rows.add(MAPPER.mapRow(rs, rows.size()));
+            }
+        }
+        return byDirection(rows);
+    }
+
+    private static Map<Direction, Totals> byDirection(List<Totals> rows) {
+        Map<Direction, Totals> totals = new EnumMap<>(Direction.class);
+        for (Direction direction : Direction.values()) {
+            totals.put(direction, new Totals(direction, 0, 0));
+        }
+        rows.forEach(row -> totals.put(row.direction(), row));
+        return totals;
+    }
+
+    @Override
+    public List<CatalogedQuery> queries() {
+        return List.of(
+            CatalogedQuery.lookup("trialBalance.findAll", FIND_ALL),
+            CatalogedQuery.lookup("trialBalance.add", ADD),
+            // The periodic check against the counters; reading every account is the point.
+            CatalogedQuery.fullScan("trialBalance.recount", RECOUNT),
+            CatalogedQuery.lookup("trialBalance.replace", REPLACE)
+        );
+    }
+
+    public record Totals(Direction direction, long accounts, long balance) {
+    }
+
+    public record Comparison(Map<Direction, Totals> stored, Map<Direction, Totals> recounted) {
+        public boolean matches() {
+            return stored.equals(recounted);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.ledger.service;
+
+import com.example.ledger.repository.AccountRepository;
+import com.example.ledger.repository.AccountRepository.AccountRow;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Authoritative in-process copy of the {@code accounts} table.
+ * <p>
+ * The cache is loaded once at startup and then kept current by the services that write accounts.
+ * Changes made inside a database transaction are staged against that transaction: they are visible
+ * to later reads on the same transaction and are published to every other reader only after the
+ * transaction commits. A rolled back transaction leaves the cache untouched. The journal appender,
+ * which writes outside database transactions, stages each batch on its thread the same way and
+ * publishes it once the batch is durable.
+ * <p>
+ * Being authoritative assumes this process is the only one writing the database: accounts created
+ * or balances changed by another process are not seen until restart.
+ */
+@Component
+public class AccountCache {
+    private static final Logger log = LoggerFactory.getLogger(AccountCache.class);
+
+    private final AccountRepository accountRepository;
+    private final Map<String, AccountRow> accounts = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+
+    public AccountCache(AccountRepository accountRepository, MeterRegistry meterRegistry) {
+        this.accountRepository = accountRepository;
+        this.hits = Counter.builder("cache.gets").tag("cache", "accounts").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("cache.gets").tag("cache", "accounts").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("cache.size", accounts, Map::size).tag("cache", "accounts").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void load() {
+        long started = System.nanoTime();
+        accountRepository.forEach(row -> accounts.put(row.id(), row));
+        log.info("loaded {} accounts into cache in {} ms", accounts.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * Looks an account up, including balance changes staged by the current transaction.
+     * A miss means the account does not exist, as long as no other process writes the database.
+     */
+    public Optional<AccountRow> find(String id) {
+        PendingChanges pending = currentPendingChanges();
+        AccountRow row = accounts.get(id);
+        if (row == null && pending != null) {
+            row = pending.created.get(id);
+        }
+        if (row == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        if (pending != null) {
+            Long delta = pending.balanceDeltas.get(id);
+            if (delta != null) {
+                row = row.withBalance(row.balance() + delta);
+            }
+        }
+        return Optional.of(row);
+    }
+
+    /**
+     * Records a newly inserted account; published once the surrounding transaction commits.
+     */
+    public void put(AccountRow row) {
+        PendingChanges pending = pendingChangesForUpdate();
+        if (pending == null) {
+            accounts.put(row.id(), row);
+        } else {
+            pending.created.put(row.id(), row);
+        }
+    }
+
+    /**
+     * Records balance deltas already written through {@link AccountShards#applyBalanceDeltas}.
+     * Callers stage deltas only after every statement of their unit of work has succeeded, so a unit
+     * that is rolled back to a savepoint never leaves deltas behind.
+     */
+    public void stageBalanceDeltas(Map<String, Long> deltas) {
+        PendingChanges pending = pendingChangesForUpdate();
+        if (pending == null) {
+            deltas.forEach(this::applyDelta);
+        } else {
+            deltas.forEach((id, delta) -> pending.balanceDeltas.merge(id, delta, Math::addExact));
+        }
+    }
+
+    /**
+     * Overwrites a cache entry with a row read from the table; used when repairing drift.
+     */
+    void replace(AccountRow row) {
+        accounts.put(row.id(), row);
+    }
+
+    /**
+     * Stages every later change made on this thread until {@link #publishStaged} or
+     * {@link #discardStaged}.
+     */
+    void beginStaging() {
+        TransactionSynchronizationManager.bindResource(this, new PendingChanges());
+    }
+
+    void publishStaged() {
+        publish((PendingChanges) TransactionSynchronizationManager.unbindResource(this));
+    }
+
+    void discardStaged() {
+        TransactionSynchronizationManager.unbindResourceIfPossible(this);
+    }
+
+    Optional<AccountRow> peek(String id) {
+        return Optional.ofNullable(accounts.get(id));
+    }
+
+    int size() {
+        return accounts.size();
+    }
+
+    private void applyDelta(String id, long delta) {
+        accounts.computeIfPresent(id, (key, row) -> row.withBalance(Math.addExact(row.balance(), delta)));
+    }
+
+    private PendingChanges currentPendingChanges() {
+        return (PendingChanges) TransactionSynchronizationManager.getResource(this);
+    }
+
+    private void publish(PendingChanges pending) {
+        accounts.putAll(pending.created);
+        pending.balanceDeltas.forEach(this::applyDelta);
+    }
+
+    private PendingChanges pendingChangesForUpdate() {
+        PendingChanges pending = currentPendingChanges();
+        if (pending != null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return pending;
+        }
+        PendingChanges registered = new PendingChanges();
+        TransactionSynchronizationManager.bindResource(this, registered);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(AccountCache.this);
+                if (status == STATUS_COMMITTED) {
+                    publish(registered);
+                }
+            }
+        });
+        return registered;
+    }
+
+    private static final class PendingChanges {
+        private final Map<String, AccountRow> created = new HashMap<>();
+        private final Map<String, Long> balanceDeltas = new HashMap<>();
+    }
+}
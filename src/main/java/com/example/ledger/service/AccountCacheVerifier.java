@@ -0,0 +1,102 @@
+package com.example.ledger.service;
+
+import com.example.ledger.config.AccountCacheProperties;
+import com.example.ledger.repository.AccountRepository;
+import com.example.ledger.repository.AccountRepository.AccountRow;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Periodically compares {@link AccountCache} with the {@code accounts} table.
+ * <p>
+ * A commit updates the table before the cache, so a row read in that window looks drifted. Rows that
+ * differ are therefore read a second time and only reported when they still differ. With the journal
+ * enabled the cache runs ahead of the table until records are projected, so a check only counts when
+ * the projector had caught up and nothing was appended while it ran.
+ */
+@Component
+@ConditionalOnProperty(prefix = "ledger.account-cache.verify", name = "enabled", havingValue = "true")
+public class AccountCacheVerifier {
+    private static final Logger log = LoggerFactory.getLogger(AccountCacheVerifier.class);
+    private static final int REREAD_CHUNK = 500;
+
+    private final AccountCache accountCache;
+    private final AccountRepository accountRepository;
+    private final AccountCacheProperties properties;
+    private final TransactionJournal journal;
+    private final Counter driftCounter;
+
+    public AccountCacheVerifier(AccountCache accountCache,
+                                AccountRepository accountRepository,
+                                AccountCacheProperties properties,
+                                TransactionJournal journal,
+                                MeterRegistry meterRegistry) {
+        this.accountCache = accountCache;
+        this.accountRepository = accountRepository;
+        this.properties = properties;
+        this.journal = journal;
+        this.driftCounter = Counter.builder("ledger.account.cache.drift").register(meterRegistry);
+    }
+
+    @Scheduled(
+        initialDelayString = "${ledger.account-cache.verify.interval:PT5M}",
+        fixedDelayString = "${ledger.account-cache.verify.interval:PT5M}"
+    )
+    public void verify() {
+        long accepted = journal.acceptedSequence();
+        if (journal.projectedSequence() < accepted) {
+            log.info("account cache check skipped: journal projection is behind");
+            return;
+        }
+        AtomicInteger tableRows = new AtomicInteger();
+        List<String> suspects = new ArrayList<>();
+        accountRepository.forEach(row -> {
+            tableRows.incrementAndGet();
+            if (!row.equals(accountCache.peek(row.id()).orElse(null))) {
+                suspects.add(row.id());
+            }
+        });
+
+        Map<String, AccountRow> reread = new HashMap<>();
+        for (int from = 0; from < suspects.size(); from += REREAD_CHUNK) {
+            List<String> chunk = suspects.subList(from, Math.min(from + REREAD_CHUNK, suspects.size()));
+            for (AccountRow row : accountRepository.findByIds(chunk)) {
+                reread.put(row.id(), row);
+            }
+        }
+        if (journal.acceptedSequence() != accepted) {
+            log.info("account cache check skipped: journal records were appended during the check");
+            return;
+        }
+        int drifted = 0;
+        for (String id : suspects) {
+            AccountRow row = reread.get(id);
+            Optional<AccountRow> cached = accountCache.peek(id);
+            if (row == null || row.equals(cached.orElse(null))) {
+                continue;
+            }
+            drifted++;
+            log.warn("account cache drift for {}: table={} cache={}", id, row, cached.orElse(null));
+            if (properties.getVerify().isRepair()) {
+                accountCache.replace(row);
+            }
+        }
+        if (tableRows.get() != accountCache.size()) {
+            log.warn("account cache holds {} accounts but the table has {}", accountCache.size(), tableRows.get());
+        }
+        driftCounter.increment(drifted);
+        log.info("account cache check finished: {} accounts, {} drifted", tableRows.get(), drifted);
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.ledger.service;
+
+import com.example.ledger.config.AccountStatementProperties;
+import com.example.ledger.repository.AccountCheckpointRepository;
+import com.example.ledger.repository.AccountRepository;
+import com.example.ledger.repository.EntryRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes a balance checkpoint for an account once every {@code checkpoint-interval} of its entries.
+ * <p>
+ * Postings (and the journal projector) call this after inserting their entries and updating
+ * {@code accounts}, in the same transaction and while they still hold the accounts, so the balance
+ * read back from the table is the balance after the account's latest entry. The account cache is
+ * not used because with the journal enabled it runs ahead of the table. The per-account entry
+ * counters only decide when to write; they are seeded from the table the first time an account is
+ * posted to after startup, and a counter left off by a rolled back posting only moves the next
+ * checkpoint.
+ */
+@Component
+public class AccountCheckpointWriter {
+    private final AccountCheckpointRepository checkpointRepository;
+    private final EntryRepository entryRepository;
+    private final AccountRepository accountRepository;
+    private final int interval;
+    private final Map<String, Integer> entriesSinceCheckpoint = new ConcurrentHashMap<>();
+
+    public AccountCheckpointWriter(AccountCheckpointRepository checkpointRepository,
+                                   EntryRepository entryRepository,
+                                   AccountRepository accountRepository,
+                                   AccountStatementProperties properties) {
+        this.checkpointRepository = checkpointRepository;
+        this.entryRepository = entryRepository;
+        this.accountRepository = accountRepository;
+        this.interval = Math.max(1, properties.getCheckpointInterval());
+    }
+
+    /**
+     * @param entryCounts entries just inserted, per account
+     */
+    public void afterEntriesInserted(Map<String, Integer> entryCounts) {
+        entryCounts.forEach((accountId, count) -> {
+            Integer current = entriesSinceCheckpoint.get(accountId);
+            int since = current == null ? checkpointRepository.countEntriesSinceLatest(accountId) : current + count;
+            if (since < interval) {
+                entriesSinceCheckpoint.put(accountId, since);
+                return;
+            }
+            long balance = accountRepository.findById(accountId).orElseThrow().balance();
+            checkpointRepository.insert(accountId, entryRepository.maxRowidForAccount(accountId), balance);
+            entriesSinceCheckpoint.put(accountId, 0);
+        });
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.ledger.service;
+
+import com.example.ledger.config.AccountLockProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped locks keyed by account id.
+ * <p>
+ * Postings hold the stripes of every account they touch from their first read of a balance until
+ * their transaction has committed, so postings on disjoint accounts proceed in parallel and only
+ * postings that share a stripe wait for each other. Stripes are always acquired in ascending index
+ * order, which rules out deadlocks between postings that lock overlapping sets.
+ */
+@Component
+public class AccountLockManager {
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+    private final MeterRegistry meterRegistry;
+    private final AtomicReferenceArray<StripeMeters> stripeMeters;
+
+    public AccountLockManager(AccountLockProperties properties, MeterRegistry meterRegistry) {
+        int requested = properties.getStripes();
+        int size = requested <= 1 ? 1 : Integer.highestOneBit(requested - 1) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+        this.meterRegistry = meterRegistry;
+        this.stripeMeters = new AtomicReferenceArray<>(size);
+    }
+
+    /**
+     * Locks the stripes of {@code accountIds} in canonical order. The returned handle releases them.
+     */
+    public Locked lock(Collection<String> accountIds) {
+        int[] indexes = accountIds.stream().mapToInt(this::stripeOf).distinct().sorted().toArray();
+        int acquired = 0;
+        try {
+            for (int index : indexes) {
+                acquire(index);
+                acquired++;
+            }
+        } catch (RuntimeException | Error ex) {
+            release(indexes, acquired);
+            throw ex;
+        }
+        return new Locked(indexes);
+    }
+
+    int stripeOf(String accountId) {
+        int hash = accountId.hashCode();
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    int stripeCount() {
+        return stripes.length;
+    }
+
+    boolean isLocked(int stripe) {
+        return stripes[stripe].isLocked();
+    }
+
+    boolean hasWaiters(int stripe) {
+        return stripes[stripe].hasQueuedThreads();
+    }
+
+    private void acquire(int index) {
+        ReentrantLock lock = stripes[index];
+        if (lock.tryLock()) {
+            return;
+        }
+        StripeMeters meters = metersFor(index);
+        meters.contended.increment();
+        long started = System.nanoTime();
+        lock.lock();
+        meters.waitTime.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+
+    private void release(int[] indexes, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            stripes[indexes[i]].unlock();
+        }
+    }
+
+    // Meters are registered on first contention so idle stripes do not add hundreds of series.
+    private StripeMeters metersFor(int index) {
+        StripeMeters meters = stripeMeters.get(index);
+        if (meters == null) {
+            String stripe = Integer.toString(index);
+            meters = new StripeMeters(
+                Counter.builder("ledger.account.lock.contended").tag("stripe", stripe).register(meterRegistry),
+                Timer.builder("ledger.account.lock.wait").tag("stripe", stripe).register(meterRegistry)
+            );
+            if (!stripeMeters.compareAndSet(index, null, meters)) {
+                meters = stripeMeters.get(index);
+            }
+        }
+        return meters;
+    }
+
+    private record StripeMeters(Counter contended, Timer waitTime) {
+    }
+
+    public final class Locked implements AutoCloseable {
+        private final int[] indexes;
+        private boolean released;
+
+        private Locked(int[] indexes) {
+            this.indexes = indexes;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                release(indexes, indexes.length);
+            }
+        }
+    }
+}
@@ -1,68 +1,144 @@
 package com.example.ledger.service;
 
 import com.example.ledger.api.AccountRequest;
+import com.example.ledger.api.AccountPageResponse;
 import com.example.ledger.api.AccountResponse;
+import com.example.ledger.config.AccountPageProperties;
 import com.example.ledger.domain.Direction;
+import com.example.ledger.domain.IdGenerator;
 import com.example.ledger.exception.ApiException;
 import com.example.ledger.repository.AccountRepository;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.List;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.function.Consumer;
 
 @Service
 public class AccountService {
 
     private final AccountRepository accountRepository;
+    private final AccountCache accountCache;
+    private final AccountPageProperties pageProperties;
+    private final IdGenerator idGenerator;
 
-    public AccountService(AccountRepository accountRepository) {
+    public AccountService(AccountRepository accountRepository,
+                          AccountCache accountCache,
+                          AccountPageProperties pageProperties,
+                          IdGenerator idGenerator) {
         this.accountRepository = accountRepository;
+        this.accountCache = accountCache;
+        this.pageProperties = pageProperties;
+        this.idGenerator = idGenerator;
     }
 
     public AccountResponse create(AccountRequest request) {
-        String id = request.getId() == null ? UUID.randomUUID().toString() : request.getId();
+        String id = request.getId() == null ? idGenerator.next() : request.getId();
         Direction direction = Direction.from(request.getDirection());
         long balance = request.getBalance() == null ? 0L : request.getBalance();
 
         if (balance < 0) {
             throw new IllegalArgumentException("balance must be non-negative");
         }
+        Long floor = request.getFloor();
+        Long ceiling = request.getCeiling();
+        if (floor != null && ceiling != null && floor > ceiling) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "invalid_limits", "floor must not be above ceiling");
+        }
 
-        Optional<AccountRepository.AccountRow> existing = accountRepository.findById(id);
+        Optional<AccountRepository.AccountRow> existing = accountCache.find(id);
         if (existing.isPresent()) {
-            throw new ApiException(HttpStatus.CONFLICT, "account_exists", "account already exists");
+            throw accountExists();
         }
 
         AccountRepository.AccountRow row = new AccountRepository.AccountRow(
                 id,
                 request.getName(),
                 direction,
-                balance
+                balance,
+                floor,
+                ceiling
         );
-        accountRepository.insert(row);
+        if (!row.allows(balance)) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "invalid_limits", "opening balance is outside the account's limits");
+        }
+        try {
+            accountRepository.insert(row);
+        } catch (DuplicateKeyException ex) {
+            throw accountExists();
+        }
+        accountCache.put(row);
 
-        return new AccountResponse(id, request.getName(), direction.value(), balance);
+        return toResponse(row);
     }
 
     public AccountResponse getById(String id) {
-        AccountRepository.AccountRow row = accountRepository.findById(id)
+        AccountRepository.AccountRow row = accountCache.find(id)
                 .orElseThrow(() ->
                         new ApiException(HttpStatus.NOT_FOUND, "account_not_found", "account not found")
                 );
 
-        return new AccountResponse(row.id(), row.name(), row.direction().value(), row.balance());
+        return toResponse(row);
+    }
+
+    /**
+     * Returns one page of accounts ordered by name, then id. {@code cursor} is the
+     * {@code next_cursor} of the previous page, or null for the first page.
+     */
+    public AccountPageResponse getPage(String cursor, Integer limit) {
+        int pageSize = limit == null ? pageProperties.getDefaultSize() : limit;
+        if (pageSize < 1) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "invalid_limit", "limit must be positive");
+        }
+        pageSize = Math.min(pageSize, pageProperties.getMaxSize());
+
+        String[] after = cursor == null ? null : decodeCursor(cursor);
+        List<AccountRepository.AccountRow> rows = after == null
+                ? accountRepository.findPage(null, null, pageSize + 1)
+                : accountRepository.findPage(after[0], after[1], pageSize + 1);
+
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            nextCursor = encodeCursor(rows.get(pageSize - 1));
+        }
+        return new AccountPageResponse(rows.stream().map(AccountService::toResponse).toList(), nextCursor);
+    }
+
+    /**
+     * Hands every account to {@code consumer} as it is read, without collecting them.
+     */
+    public void forEach(Consumer<AccountResponse> consumer) {
+        accountRepository.forEach(row -> consumer.accept(toResponse(row)));
+    }
+
+    private static AccountResponse toResponse(AccountRepository.AccountRow row) {
+        return new AccountResponse(row.id(), row.name(), row.direction().value(), row.balance(), row.floor(), row.ceiling());
+    }
+
+    // A cursor is the sort key of the last account of a page: "<name length>:<name><id>", base64url.
+    private static String encodeCursor(AccountRepository.AccountRow row) {
+        String name = row.name() == null ? "" : row.name();
+        String key = name.length() + ":" + name + row.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = key.indexOf(':');
+            int nameEnd = separator + 1 + Integer.parseInt(key.substring(0, separator));
+            return new String[] {key.substring(separator + 1, nameEnd), key.substring(nameEnd)};
+        } catch (IllegalArgumentException | IndexOutOfBoundsException ex) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "invalid_cursor", "cursor is not valid");
+        }
     }
 
-    public List<AccountResponse> getAll() {
-        return accountRepository.findAll().stream()
-                .map(row -> new AccountResponse(
-                        row.id(),
-                        row.name(),
-                        row.direction().value(),
-                        row.balance()
-                ))
-                .toList();
+    private static ApiException accountExists() {
+        return new ApiException(HttpStatus.CONFLICT, "account_exists", "account already exists");
     }
 }
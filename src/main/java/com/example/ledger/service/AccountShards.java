@@ -0,0 +1,172 @@
+package com.example.ledger.service;
+
+import com.example.ledger.config.AccountShardProperties;
+import com.example.ledger.domain.Direction;
+import com.example.ledger.exception.ApiException;
+import com.example.ledger.repository.AccountRepository;
+import com.example.ledger.repository.AccountShardRepository;
+import com.example.ledger.repository.AccountShardRepository.ShardDelta;
+import com.example.ledger.repository.TrialBalanceRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sharded (hot) accounts, whose balance changes are spread round-robin over sub-balances in
+ * {@code account_shards} instead of all landing on their {@code accounts} row.
+ * <p>
+ * Every {@link AccountRepository} read returns {@code accounts.balance} plus the shards, so the
+ * account cache, statements and snapshots keep seeing exact totals. Deltas only ever add up, so
+ * postings to a sharded account do not take its lock stripe and no longer queue behind each other
+ * in the application. Consolidation folds the shards back into the {@code accounts} row in one
+ * transaction, which leaves the total unchanged.
+ */
+@Component
+public class AccountShards {
+    private static final Logger log = LoggerFactory.getLogger(AccountShards.class);
+
+    private final AccountShardRepository shardRepository;
+    private final AccountRepository accountRepository;
+    private final TrialBalanceRepository trialBalanceRepository;
+    private final AccountCache accountCache;
+    private final AccountShardProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<String, Integer> shardCounts = new ConcurrentHashMap<>();
+    private final AtomicInteger nextShard = new AtomicInteger();
+
+    public AccountShards(AccountShardRepository shardRepository,
+                         AccountRepository accountRepository,
+                         TrialBalanceRepository trialBalanceRepository,
+                         AccountCache accountCache,
+                         AccountShardProperties properties,
+                         PlatformTransactionManager transactionManager) {
+        this.shardRepository = shardRepository;
+        this.accountRepository = accountRepository;
+        this.trialBalanceRepository = trialBalanceRepository;
+        this.accountCache = accountCache;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void load() {
+        shardCounts.putAll(shardRepository.shardCounts());
+        if (!shardCounts.isEmpty()) {
+            log.info("{} sharded accounts", shardCounts.size());
+        }
+    }
+
+    public boolean isSharded(String accountId) {
+        return shardCounts.containsKey(accountId);
+    }
+
+    /**
+     * The accounts of {@code accountIds} whose lock stripe a posting has to hold.
+     */
+    public List<String> lockedAccounts(List<String> accountIds) {
+        if (shardCounts.isEmpty()) {
+            return accountIds;
+        }
+        return accountIds.stream().filter(accountId -> !isSharded(accountId)).toList();
+    }
+
+    /**
+     * Writes balance deltas: sharded accounts to their next shard, the others to their
+     * {@code accounts} row through the limit-guarded update, failing the posting if a limit would
+     * be broken. The deltas are also added to the trial balance totals of their account's direction.
+     */
+    public void applyBalanceDeltas(Map<String, Long> deltas) {
+        if (shardCounts.isEmpty()) {
+            updateRows(deltas);
+            addToTrialBalance(deltas);
+            return;
+        }
+        Map<String, Long> direct = new HashMap<>();
+        List<ShardDelta> sharded = new ArrayList<>();
+        deltas.forEach((accountId, delta) -> {
+            Integer shards = shardCounts.get(accountId);
+            if (shards == null) {
+                direct.put(accountId, delta);
+            } else {
+                sharded.add(new ShardDelta(accountId, Math.floorMod(nextShard.getAndIncrement(), shards), delta));
+            }
+        });
+        if (!direct.isEmpty()) {
+            updateRows(direct);
+        }
+        if (!sharded.isEmpty()) {
+            shardRepository.addAll(sharded);
+        }
+        addToTrialBalance(deltas);
+    }
+
+    private void addToTrialBalance(Map<String, Long> deltas) {
+        Map<Direction, Long> totals = new EnumMap<>(Direction.class);
+        deltas.forEach((accountId, delta) -> accountCache.find(accountId)
+            .ifPresent(account -> totals.merge(account.direction(), delta, Long::sum)));
+        totals.values().removeIf(delta -> delta == 0);
+        if (!totals.isEmpty()) {
+            trialBalanceRepository.addAll(totals);
+        }
+    }
+
+    private void updateRows(Map<String, Long> deltas) {
+        List<String> rejected = accountRepository.updateBalances(deltas);
+        if (!rejected.isEmpty()) {
+            throw TransactionService.balanceLimitExceeded(rejected.get(0));
+        }
+    }
+
+    /**
+     * Splits the account into {@code shards} sub-balances. The number of shards can only grow.
+     */
+    public int shard(String accountId, int shards) {
+        AccountRepository.AccountRow account = accountCache.find(accountId)
+            .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "account_not_found", "account not found"));
+        // Limits are checked against the cached balance under the account's stripe, which sharded accounts skip.
+        if (account.hasLimits()) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "invalid_shards", "accounts with balance limits cannot be sharded");
+        }
+        int current = shardCounts.getOrDefault(accountId, 0);
+        if (shards < Math.max(2, current) || shards > properties.getMaxShards()) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "invalid_shards",
+                "shards must be between " + Math.max(2, current) + " and " + properties.getMaxShards());
+        }
+        transactionTemplate.executeWithoutResult(status -> shardRepository.createShards(accountId, shards));
+        shardCounts.put(accountId, shards);
+        return shards;
+    }
+
+    /**
+     * Folds the account's shards into its {@code accounts} row.
+     */
+    public void consolidate(String accountId) {
+        if (!isSharded(accountId)) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> shardRepository.consolidate(accountId));
+    }
+
+    @Scheduled(
+        initialDelayString = "${ledger.account-shards.consolidation-interval:PT1M}",
+        fixedDelayString = "${ledger.account-shards.consolidation-interval:PT1M}"
+    )
+    public void consolidateAll() {
+        for (String accountId : shardCounts.keySet()) {
+            consolidate(accountId);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.ledger.service;
+
+import com.example.ledger.api.AccountResponse;
+import com.example.ledger.api.AccountStatementResponse;
+import com.example.ledger.api.StatementEntryResponse;
+import com.example.ledger.config.AccountStatementProperties;
+import com.example.ledger.domain.Direction;
+import com.example.ledger.exception.ApiException;
+import com.example.ledger.repository.AccountCheckpointRepository;
+import com.example.ledger.repository.AccountRepository.AccountRow;
+import com.example.ledger.repository.BalanceSnapshotRepository;
+import com.example.ledger.repository.EntryRepository;
+import com.example.ledger.repository.EntryRepository.StatementRow;
+import com.example.ledger.repository.TransactionRepository;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Reads an account's entries in posting order together with the balance after each of them.
+ * <p>
+ * The balance before a page is the nearest persisted checkpoint plus the entries between that
+ * checkpoint and the page, at most one checkpoint interval of them. Entries are posted under the
+ * SQLite write lock in {@code created_at} order, so a time range selects a contiguous run of an
+ * account's entries and the running balance carries across the rows of a page. The range is turned
+ * into entry sequences first, so a page only reads the account's entries inside it.
+ * <p>
+ * Point-in-time balances start from the nearest {@link BalanceSnapshotter} snapshot instead, since
+ * those are the ones keyed by time.
+ * <p>
+ * Entries of archived periods are no longer in the table. Balances after them start from the
+ * checkpoints and snapshots written when they were archived, and a balance or a time range before
+ * the end of the last archived period is answered with 410.
+ */
+@Service
+public class AccountStatementService {
+    private final AccountCache accountCache;
+    private final EntryRepository entryRepository;
+    private final AccountCheckpointRepository checkpointRepository;
+    private final BalanceSnapshotRepository snapshotRepository;
+    private final LedgerArchive ledgerArchive;
+    private final AccountStatementProperties properties;
+
+    public AccountStatementService(AccountCache accountCache,
+                                   EntryRepository entryRepository,
+                                   AccountCheckpointRepository checkpointRepository,
+                                   BalanceSnapshotRepository snapshotRepository,
+                                   LedgerArchive ledgerArchive,
+                                   AccountStatementProperties properties) {
+        this.accountCache = accountCache;
+        this.entryRepository = entryRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.snapshotRepository = snapshotRepository;
+        this.ledgerArchive = ledgerArchive;
+        this.properties = properties;
+    }
+
+    /**
+     * @param from inclusive lower bound on the transaction time, ISO-8601, or null
+     * @param to   exclusive upper bound on the transaction time, ISO-8601, or null
+     */
+    public AccountStatementResponse getStatement(String accountId, String cursor, Integer limit, String from, String to) {
+        AccountRow account = accountCache.find(accountId)
+            .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "account_not_found", "account not found"));
+
+        int pageSize = limit == null ? properties.getDefaultSize() : limit;
+        if (pageSize < 1) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "invalid_limit", "limit must be positive");
+        }
+        pageSize = Math.min(pageSize, properties.getMaxSize());
+        long after = cursor == null ? 0 : parseCursor(cursor);
+        Instant fromInstant = parseTime(from, "invalid_range", "from and to must be ISO-8601 instants");
+        Instant toInstant = parseTime(to, "invalid_range", "from and to must be ISO-8601 instants");
+        if (fromInstant != null && toInstant != null && !fromInstant.isBefore(toInstant)) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "invalid_range", "from must be before to");
+        }
+        String fromTime = format(fromInstant);
+        String toTime = format(toInstant);
+        if (fromTime != null) {
+            requireHot(fromTime, false);
+            after = Math.max(after, entryRepository.lastSequenceBefore(fromTime));
+        }
+        long upTo = toTime == null ? Long.MAX_VALUE : entryRepository.lastSequenceBefore(toTime);
+
+        List<StatementRow> rows = upTo <= after ? List.of()
+            : entryRepository.findStatementPage(accountId, after, upTo, fromTime, toTime, pageSize + 1);
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            nextCursor = Long.toString(rows.get(pageSize - 1).sequence());
+        }
+        if (rows.isEmpty()) {
+            return new AccountStatementResponse(accountId, List.of(), null);
+        }
+
+        long balance = balanceAfter(accountId, account.direction(), rows.get(0).sequence() - 1);
+
+        List<StatementEntryResponse> entries = new ArrayList<>(rows.size());
+        for (StatementRow row : rows) {
+            balance += row.direction() == account.direction() ? row.amount() : -row.amount();
+            entries.add(new StatementEntryResponse(row.sequence(), row.id(), row.transactionId(),
+                row.direction().value(), row.amount(), row.createdAt(), balance));
+        }
+        return new AccountStatementResponse(accountId, entries, nextCursor);
+    }
+
+    /**
+     * Balance of the account as of {@code asOf} (ISO-8601): its nearest snapshot taken at or before
+     * that time, or its opening balance, plus the entries of transactions created after the snapshot
+     * and no later than {@code asOf}.
+     */
+    public AccountResponse getBalanceAsOf(String accountId, String asOf) {
+        AccountRow account = accountCache.find(accountId)
+            .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "account_not_found", "account not found"));
+        String until = format(parseTime(asOf, "invalid_as_of", "as_of must be an ISO-8601 instant"));
+        requireHot(until, true);
+
+        Optional<BalanceSnapshotRepository.SnapshotRow> snapshot = snapshotRepository.findLatestAsOf(accountId, until);
+        long base;
+        long after;
+        if (snapshot.isPresent()) {
+            base = snapshot.get().balance();
+            after = snapshot.get().entryRowid();
+        } else {
+            base = openingCheckpoint(accountId).balance();
+            after = 0;
+        }
+        long balance = base + entryRepository.sumDeltasAfterUntil(accountId, account.direction(), after, until);
+        return new AccountResponse(account.id(), account.name(), account.direction().value(), balance, account.floor(), account.ceiling());
+    }
+
+    /**
+     * Balance of an account right after its entries up to and including {@code entryRowid}: the
+     * nearest checkpoint plus at most one checkpoint interval of entries.
+     */
+    public long balanceAfter(String accountId, Direction accountDirection, long entryRowid) {
+        AccountCheckpointRepository.CheckpointRow checkpoint = checkpointRepository.findLatestBefore(accountId, entryRowid + 1)
+            .orElseThrow(() -> missingCheckpoint(accountId));
+        return checkpoint.balance()
+            + entryRepository.sumDeltasBetween(accountId, accountDirection, checkpoint.entryRowid(), entryRowid + 1);
+    }
+
+    /**
+     * Rejects a time that falls in an archived period. The last archived transaction's own time is
+     * still answerable as a point in time, but not as the start of a range, which would include it.
+     */
+    private void requireHot(String time, boolean pointInTime) {
+        Optional<String> archivedUntil = ledgerArchive.archivedUntil();
+        if (archivedUntil.isEmpty()) {
+            return;
+        }
+        int comparison = time.compareTo(archivedUntil.get());
+        if (comparison < 0 || comparison == 0 && !pointInTime) {
+            throw new ApiException(HttpStatus.GONE, "archived_period",
+                "entries up to " + archivedUntil.get() + " are archived");
+        }
+    }
+
+    private AccountCheckpointRepository.CheckpointRow openingCheckpoint(String accountId) {
+        return checkpointRepository.findLatestBefore(accountId, 1).orElseThrow(() -> missingCheckpoint(accountId));
+    }
+
+    private static IllegalStateException missingCheckpoint(String accountId) {
+        return new IllegalStateException("no balance checkpoint for account " + accountId);
+    }
+
+    private static long parseCursor(String cursor) {
+        try {
+            return Long.parseLong(cursor);
+        } catch (NumberFormatException ex) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "invalid_cursor", "cursor is not valid");
+        }
+    }
+
+    private static Instant parseTime(String value, String code, String message) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException ex) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, code, message);
+        }
+    }
+
+    private static String format(Instant instant) {
+        return instant == null ? null : TransactionRepository.CREATED_AT_FORMAT.format(instant);
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.ledger.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Concurrent Bloom filter over strings, sized from an expected key count and false positive rate.
+ * <p>
+ * Keys are hashed once with MurmurHash3 over their UTF-16 code units and the probe positions are
+ * derived from the two 64-bit halves (Kirsch-Mitzenmacher double hashing). Bits are only ever set,
+ * so readers never need a lock and a key added by one thread is visible to the next lookup.
+ */
+final class BloomFilter {
+    private static final ThreadLocal<KeyHasher> HASHER = ThreadLocal.withInitial(KeyHasher::new);
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+
+    BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        long n = Math.max(1, expectedInsertions);
+        double p = Math.min(Math.max(falsePositiveRate, Double.MIN_VALUE), 0.5);
+        long bits = (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+        int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (bits + 63) >>> 6));
+        this.words = new AtomicLongArray(wordCount);
+        this.bitCount = (long) wordCount << 6;
+        this.hashCount = (int) Math.max(1, Math.min(16, Math.round((double) bitCount / n * Math.log(2))));
+    }
+
+    void put(String key) {
+        KeyHasher hasher = HASHER.get();
+        hasher.hash(key);
+        long combined = hasher.h1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = (combined & Long.MAX_VALUE) % bitCount;
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = words.get(word);
+            while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                current = words.get(word);
+            }
+            combined += hasher.h2;
+        }
+    }
+
+    boolean mightContain(String key) {
+        KeyHasher hasher = HASHER.get();
+        hasher.hash(key);
+        long combined = hasher.h1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = (combined & Long.MAX_VALUE) % bitCount;
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+            combined += hasher.h2;
+        }
+        return true;
+    }
+
+    long bitCount() {
+        return bitCount;
+    }
+
+    private static final class KeyHasher {
+        private final Murmur3x64Digest digest = new Murmur3x64Digest();
+        private final byte[] buffer = new byte[256];
+        private final byte[] out = new byte[16];
+        private long h1;
+        private long h2;
+
+        void hash(String key) {
+            int position = 0;
+            for (int i = 0; i < key.length(); i++) {
+                if (position == buffer.length) {
+                    digest.update(buffer, 0, position);
+                    position = 0;
+                }
+                char c = key.charAt(i);
+                buffer[position++] = (byte) c;
+                buffer[position++] = (byte) (c >>> 8);
+            }
+            digest.update(buffer, 0, position);
+            digest.digest(out);
+            h1 = readLong(0);
+            h2 = readLong(8);
+        }
+
+        private long readLong(int offset) {
+            long value = 0;
+            for (int i = 7; i >= 0; i--) {
+                value = (value << 8) | (out[offset + i] & 0xffL);
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.ledger.service;
+
+import com.example.ledger.config.GroupCommitProperties;
+import com.example.ledger.exception.ApiException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Single writer that folds concurrent write requests into one SQLite transaction.
+ * <p>
+ * Each queued write runs inside its own savepoint, so a write that fails is rolled back on its own
+ * and the rest of the batch still commits. Callers are released only once the whole batch is
+ * committed (or has failed to commit). Writes still queued when the writer stops are failed with
+ * {@code 503}, so no caller waits on a write that will never run.
+ */
+@Component
+public class GroupCommitWriter {
+    private static final Logger log = LoggerFactory.getLogger(GroupCommitWriter.class);
+
+    private final GroupCommitProperties properties;
+    private final TransactionTemplate batchTemplate;
+    private final TransactionTemplate itemTemplate;
+    private final BlockingQueue<PendingWrite<?>> queue;
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    public GroupCommitWriter(GroupCommitProperties properties, PlatformTransactionManager transactionManager) {
+        this.properties = properties;
+        this.batchTemplate = new TransactionTemplate(transactionManager);
+        this.itemTemplate = new TransactionTemplate(transactionManager);
+        this.itemTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        running = true;
+        writerThread = new Thread(this::drainLoop, "ledger-group-commit");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        log.info("group commit enabled (max batch {}, max wait {})", properties.getMaxBatchSize(), properties.getMaxWait());
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writerThread == null) {
+            return;
+        }
+        running = false;
+        writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        failQueued();
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    int queuedWrites() {
+        return queue.size();
+    }
+
+    /**
+     * Queues {@code work} for the writer thread and blocks until its batch has been committed.
+     * Exceptions thrown by {@code work} are rethrown to the caller unchanged.
+     */
+    public <T> T submit(Supplier<T> work) {
+        if (!running) {
+            throw stopped();
+        }
+        PendingWrite<T> pending = new PendingWrite<>(work);
+        try {
+            boolean accepted = queue.offer(pending, properties.getOfferTimeout().toMillis(), TimeUnit.MILLISECONDS);
+            if (!accepted) {
+                throw new ApiException(HttpStatus.SERVICE_UNAVAILABLE, "writer_overloaded", "write queue is full");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ApiException(HttpStatus.SERVICE_UNAVAILABLE, "writer_overloaded", "interrupted while queueing write");
+        }
+        // The writer may have stopped and failed the queue between the check above and the offer.
+        if (!running && queue.remove(pending)) {
+            throw stopped();
+        }
+        return pending.await();
+    }
+
+    private void drainLoop() {
+        List<PendingWrite<?>> batch = new ArrayList<>(properties.getMaxBatchSize());
+        while (running) {
+            try {
+                PendingWrite<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + properties.getMaxWait().toNanos();
+                while (batch.size() < properties.getMaxBatchSize()) {
+                    PendingWrite<?> next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                commit(batch);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                running = false;
+                batch.forEach(pending -> pending.fail(stopped()));
+            } catch (Throwable ex) {
+                log.error("group commit writer failed", ex);
+                batch.forEach(pending -> pending.fail(ex));
+            } finally {
+                batch.clear();
+            }
+        }
+        failQueued();
+    }
+
+    private void commit(List<PendingWrite<?>> batch) {
+        Throwable commitFailure = null;
+        try {
+            batchTemplate.executeWithoutResult(status -> {
+                for (PendingWrite<?> pending : batch) {
+                    pending.apply(itemTemplate);
+                }
+            });
+        } catch (Throwable ex) {
+            log.warn("group commit of {} writes failed", batch.size(), ex);
+            commitFailure = ex;
+        }
+        for (PendingWrite<?> pending : batch) {
+            pending.complete(commitFailure);
+        }
+    }
+
+    private void failQueued() {
+        List<PendingWrite<?>> left = new ArrayList<>();
+        queue.drainTo(left);
+        if (!left.isEmpty()) {
+            log.warn("group commit writer stopped with {} writes queued", left.size());
+            left.forEach(pending -> pending.fail(stopped()));
+        }
+    }
+
+    private static ApiException stopped() {
+        return new ApiException(HttpStatus.SERVICE_UNAVAILABLE, "writer_stopped", "write queue is not running");
+    }
+
+    private static final class PendingWrite<T> {
+        private final Supplier<T> work;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private T result;
+        private Throwable failure;
+
+        private PendingWrite(Supplier<T> work) {
+            this.work = work;
+        }
+
+        private void apply(TransactionTemplate itemTemplate) {
+            try {
+                result = itemTemplate.execute(status -> work.get());
+            } catch (Throwable ex) {
+                failure = ex;
+            }
+        }
+
+        private void fail(Throwable ex) {
+            future.completeExceptionally(ex);
+        }
+
+        private void complete(Throwable commitFailure) {
+            if (failure != null) {
+                future.completeExceptionally(failure);
+            } else if (commitFailure != null) {
+                future.completeExceptionally(commitFailure);
+            } else {
+                future.complete(result);
+            }
+        }
+
+        private T await() {
+            try {
+                return future.join();
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                if (ex.getCause() instanceof Error cause) {
+                    throw cause;
+                }
+                throw ex;
+            }
+        }
+    }
+}
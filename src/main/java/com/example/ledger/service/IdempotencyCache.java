@@ -0,0 +1,259 @@
+package com.example.ledger.service;
+
+import com.example.ledger.api.TransactionResponse;
+import com.example.ledger.config.IdempotencyProperties;
+import com.example.ledger.repository.IdempotencyRepository;
+import com.example.ledger.repository.IdempotencyRepository.IdempotencyRow;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Front for {@code idempotency_keys} lookups.
+ * <p>
+ * Recently written or replayed keys are kept with their fingerprint and response, bounded by size
+ * and a TTL counted from when they were cached, so a replay is answered without touching the
+ * database and a key swept from the table drops out of the cache within the TTL. Every stored key is also in a
+ * Bloom filter loaded at startup; a key the filter has never seen cannot be in the table, so the
+ * lookup for a new key is skipped. Keys enter the filter as soon as they are inserted, which at worst
+ * adds a false positive if the insert rolls back, while responses are cached only after commit, or
+ * with the journal once the record holding them is durable.
+ * Bits cannot be cleared, so after the sweeper deletes keys the filter is rebuilt from the table
+ * and swapped in. Keys of archived periods are looked up in {@link LedgerArchive} once the table has
+ * missed; only a key found in neither counts as a false positive.
+ */
+@Component
+public class IdempotencyCache {
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyCache.class);
+
+    private final IdempotencyRepository idempotencyRepository;
+    private final LedgerArchive ledgerArchive;
+    private final IdempotencyProperties.NegativeFilter filterProperties;
+    private final Cache<String, CachedResult> results;
+    private final Object filterLock = new Object();
+    private volatile BloomFilter filter;
+    private BloomFilter rebuilding;
+    private final AtomicLong filteredKeys = new AtomicLong();
+    private final Counter skippedLookups;
+    private final Counter falsePositives;
+
+    public IdempotencyCache(IdempotencyRepository idempotencyRepository,
+                            LedgerArchive ledgerArchive,
+                            IdempotencyProperties properties,
+                            MeterRegistry meterRegistry) {
+        this.idempotencyRepository = idempotencyRepository;
+        this.ledgerArchive = ledgerArchive;
+        this.filterProperties = properties.getNegativeFilter();
+        IdempotencyProperties.Cache cacheProperties = properties.getCache();
+        this.results = cacheProperties.isEnabled()
+            ? Caffeine.newBuilder()
+                .maximumSize(cacheProperties.getMaximumSize())
+                .expireAfterWrite(cacheProperties.getTtl())
+                .recordStats()
+                .build()
+            : null;
+        if (results != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, results, "idempotency");
+        }
+        this.filter = filterProperties.isEnabled()
+            ? new BloomFilter(filterProperties.getExpectedKeys(), filterProperties.getFalsePositiveRate())
+            : null;
+        this.skippedLookups = Counter.builder("ledger.idempotency.filter.skipped").register(meterRegistry);
+        this.falsePositives = Counter.builder("ledger.idempotency.filter.false_positive").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void load() {
+        if (filter == null) {
+            return;
+        }
+        long started = System.nanoTime();
+        idempotencyRepository.forEachKey(this::addToFilter);
+        log.info("loaded {} idempotency keys into a {} KiB filter in {} ms",
+            filteredKeys.get(), filter.bitCount() / 8 / 1024, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * The cached outcome of {@code key}, or null when it has to be looked up.
+     */
+    public CachedResult get(String key) {
+        return results == null ? null : results.getIfPresent(key);
+    }
+
+    public Optional<IdempotencyRow> findByKey(String key) {
+        if (definitelyAbsent(key)) {
+            return ledgerArchive.findIdempotencyKey(key);
+        }
+        Optional<IdempotencyRow> row = idempotencyRepository.findByKey(key);
+        if (row.isPresent()) {
+            return row;
+        }
+        Optional<IdempotencyRow> archived = ledgerArchive.findIdempotencyKey(key);
+        if (archived.isEmpty() && filter != null) {
+            falsePositives.increment();
+        }
+        return archived;
+    }
+
+    public Map<String, IdempotencyRow> findByKeys(Collection<String> keys) {
+        List<String> candidates = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            if (!definitelyAbsent(key)) {
+                candidates.add(key);
+            }
+        }
+        Map<String, IdempotencyRow> rows = candidates.isEmpty() ? new HashMap<>() : idempotencyRepository.findByKeys(candidates);
+        List<String> missed = keys.stream().filter(key -> !rows.containsKey(key)).toList();
+        rows.putAll(ledgerArchive.findIdempotencyKeys(missed));
+        if (filter != null) {
+            falsePositives.increment(candidates.stream().filter(key -> !rows.containsKey(key)).count());
+        }
+        return rows;
+    }
+
+    /**
+     * Records a key inserted in the current transaction. Its response is cached once it commits.
+     */
+    public void recordInserted(String key, String requestHash, TransactionResponse response) {
+        if (filter != null) {
+            addToFilter(key);
+        }
+        cacheAfterCommit(key, requestHash, response);
+    }
+
+    /**
+     * Adds a key written to the table outside the posting path, by journal recovery, to the filter.
+     */
+    void rememberKey(String key) {
+        if (filter != null) {
+            addToFilter(key);
+        }
+    }
+
+    /**
+     * Replaces the filter with one holding only the keys still in the table, plus
+     * {@code unprojectedKeys}, the live set of keys journaled but not yet in it. Keys added while the
+     * table is read go into both filters. Runs on the writer, so every posting that added a key
+     * before the rebuild started has committed or rolled back by the time its row is read.
+     */
+    public void rebuildFilter(Collection<String> unprojectedKeys) {
+        if (filter == null) {
+            return;
+        }
+        long started = System.nanoTime();
+        BloomFilter next = new BloomFilter(filterProperties.getExpectedKeys(), filterProperties.getFalsePositiveRate());
+        synchronized (filterLock) {
+            rebuilding = next;
+        }
+        AtomicLong count = new AtomicLong();
+        Consumer<String> add = key -> {
+            next.put(key);
+            count.incrementAndGet();
+        };
+        try {
+            unprojectedKeys.forEach(add);
+            idempotencyRepository.forEachKey(add);
+        } catch (RuntimeException | Error ex) {
+            synchronized (filterLock) {
+                rebuilding = null;
+            }
+            throw ex;
+        }
+        synchronized (filterLock) {
+            filter = next;
+            rebuilding = null;
+            filteredKeys.set(count.get());
+        }
+        log.info("rebuilt the idempotency filter with {} keys in {} ms", count.get(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * Caches the outcome of a key read from the table, once the surrounding transaction commits.
+     */
+    public void cacheAfterCommit(String key, String requestHash, TransactionResponse response) {
+        if (results == null) {
+            return;
+        }
+        CachedResult result = new CachedResult(requestHash, response);
+        StagedResults staged = (StagedResults) TransactionSynchronizationManager.getResource(this);
+        if (staged != null) {
+            staged.results.put(key, result);
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            results.put(key, result);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                results.put(key, result);
+            }
+        });
+    }
+
+    /**
+     * Holds back every response cached on this thread until {@link #publishStaged} or
+     * {@link #discardStaged}, as {@link AccountCache#beginStaging} does for balances.
+     */
+    void beginStaging() {
+        TransactionSynchronizationManager.bindResource(this, new StagedResults());
+    }
+
+    void publishStaged() {
+        StagedResults staged = (StagedResults) TransactionSynchronizationManager.unbindResource(this);
+        if (results != null) {
+            results.putAll(staged.results);
+        }
+    }
+
+    void discardStaged() {
+        TransactionSynchronizationManager.unbindResourceIfPossible(this);
+    }
+
+    private boolean definitelyAbsent(String key) {
+        BloomFilter current = filter;
+        if (current == null || current.mightContain(key)) {
+            return false;
+        }
+        skippedLookups.increment();
+        return true;
+    }
+
+    private void addToFilter(String key) {
+        synchronized (filterLock) {
+            filter.put(key);
+            if (rebuilding != null) {
+                rebuilding.put(key);
+            }
+        }
+        if (filteredKeys.incrementAndGet() == filterProperties.getExpectedKeys()) {
+            log.warn("idempotency filter reached its expected {} keys; its false positive rate will rise",
+                filterProperties.getExpectedKeys());
+        }
+    }
+
+    public record CachedResult(String requestHash, TransactionResponse response) {
+    }
+
+    private static final class StagedResults {
+        private final Map<String, CachedResult> results = new HashMap<>();
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.ledger.service;
+
+import com.example.ledger.config.IdempotencyProperties;
+import com.example.ledger.repository.IdempotencyRepository;
+import com.example.ledger.repository.TransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes idempotency keys older than the retention window.
+ * <p>
+ * Keys are removed oldest first through the {@code created_at} index, a chunk per auto-committed
+ * statement, with a pause between chunks so postings waiting for the SQLite write lock get it
+ * between two chunks instead of after the whole sweep. Pages freed by the deletes are reused by
+ * later inserts, which keeps the primary key B-tree from growing further. A sweep that deleted keys
+ * rebuilds the {@link IdempotencyCache} filter, whose bits for those keys would otherwise stay set.
+ */
+@Component
+@ConditionalOnProperty(prefix = "ledger.idempotency.retention", name = "enabled", havingValue = "true")
+public class IdempotencyKeySweeper {
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyKeySweeper.class);
+
+    private final IdempotencyRepository idempotencyRepository;
+    private final IdempotencyCache idempotencyCache;
+    private final TransactionJournal journal;
+    private final IdempotencyProperties.Retention properties;
+    private final Clock clock;
+    private final Counter deletedCounter;
+    private final Timer sweepTimer;
+
+    public IdempotencyKeySweeper(IdempotencyRepository idempotencyRepository,
+                                 IdempotencyCache idempotencyCache,
+                                 TransactionJournal journal,
+                                 IdempotencyProperties properties,
+                                 MeterRegistry meterRegistry) {
+        this.idempotencyRepository = idempotencyRepository;
+        this.idempotencyCache = idempotencyCache;
+        this.journal = journal;
+        this.properties = properties.getRetention();
+        this.clock = Clock.systemUTC();
+        this.deletedCounter = Counter.builder("ledger.idempotency.expired").register(meterRegistry);
+        this.sweepTimer = Timer.builder("ledger.idempotency.sweep").register(meterRegistry);
+    }
+
+    @Scheduled(
+        initialDelayString = "${ledger.idempotency.retention.interval:PT10M}",
+        fixedDelayString = "${ledger.idempotency.retention.interval:PT10M}"
+    )
+    public void scheduledSweep() {
+        sweep();
+    }
+
+    /**
+     * Runs one sweep and returns the number of keys deleted.
+     */
+    public int sweep() {
+        String cutoff = TransactionRepository.CREATED_AT_FORMAT.format(Instant.now(clock).minus(properties.getWindow()));
+        int chunkSize = Math.max(1, properties.getChunkSize());
+        long pauseMillis = properties.getPause().toMillis();
+        long started = System.nanoTime();
+        int deleted = 0;
+        int chunks = 0;
+        while (true) {
+            int removed = idempotencyRepository.deleteCreatedBefore(cutoff, chunkSize);
+            deleted += removed;
+            deletedCounter.increment(removed);
+            if (removed < chunkSize) {
+                break;
+            }
+            chunks++;
+            if (pauseMillis > 0 && !pause(pauseMillis)) {
+                break;
+            }
+        }
+        long elapsed = System.nanoTime() - started;
+        sweepTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        if (deleted > 0) {
+            log.info("expired {} idempotency keys created before {} in {} ms ({} full chunks)",
+                deleted, cutoff, elapsed / 1_000_000, chunks);
+            idempotencyCache.rebuildFilter(journal.pendingKeys());
+        } else {
+            log.debug("no idempotency keys created before {}", cutoff);
+        }
+        return deleted;
+    }
+
+    private static boolean pause(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
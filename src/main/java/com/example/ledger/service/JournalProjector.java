@@ -0,0 +1,91 @@
+package com.example.ledger.service;
+
+import com.example.ledger.repository.EntryRepository;
+import com.example.ledger.repository.EntryRepository.EntryRow;
+import com.example.ledger.repository.IdempotencyRepository;
+import com.example.ledger.repository.IdempotencyRepository.IdempotencyRow;
+import com.example.ledger.repository.JournalProgressRepository;
+import com.example.ledger.repository.TransactionRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies journal records to the {@code transactions}, {@code entries}, {@code accounts} and
+ * {@code idempotency_keys} tables.
+ * <p>
+ * A run of records is applied in one write transaction together with the new
+ * {@code journal_progress}, so after a crash the tables and the progress marker agree and
+ * projection resumes with the first record that was not applied. The account cache is not touched:
+ * it already reflects every record from the moment the record was appended.
+ */
+@Component
+public class JournalProjector {
+    private final TransactionRepository transactionRepository;
+    private final EntryRepository entryRepository;
+    private final AccountShards accountShards;
+    private final IdempotencyRepository idempotencyRepository;
+    private final JournalProgressRepository progressRepository;
+    private final AccountCheckpointWriter accountCheckpointWriter;
+    private final TransactionTemplate transactionTemplate;
+
+    public JournalProjector(TransactionRepository transactionRepository,
+                            EntryRepository entryRepository,
+                            AccountShards accountShards,
+                            IdempotencyRepository idempotencyRepository,
+                            JournalProgressRepository progressRepository,
+                            AccountCheckpointWriter accountCheckpointWriter,
+                            PlatformTransactionManager transactionManager) {
+        this.transactionRepository = transactionRepository;
+        this.entryRepository = entryRepository;
+        this.accountShards = accountShards;
+        this.idempotencyRepository = idempotencyRepository;
+        this.progressRepository = progressRepository;
+        this.accountCheckpointWriter = accountCheckpointWriter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public long appliedSequence() {
+        return progressRepository.appliedSequence();
+    }
+
+    /**
+     * Applies {@code records}, which must directly follow the applied sequence, in one transaction.
+     */
+    void apply(List<JournalRecord> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            List<EntryRow> entries = new ArrayList<>();
+            List<IdempotencyRow> keys = new ArrayList<>();
+            Map<String, Long> balanceDeltas = new HashMap<>();
+            Map<String, Integer> entryCounts = new HashMap<>();
+            for (JournalRecord record : records) {
+                if (!record.transactions().isEmpty()) {
+                    String acceptedAt = TransactionRepository.CREATED_AT_FORMAT.format(Instant.ofEpochMilli(record.acceptedAtMillis()));
+                    transactionRepository.insertAll(record.transactions(), acceptedAt);
+                }
+                entries.addAll(record.entries());
+                keys.addAll(record.idempotencyKeys());
+                record.balanceDeltas().forEach((accountId, delta) -> balanceDeltas.merge(accountId, delta, Math::addExact));
+                for (EntryRow entry : record.entries()) {
+                    entryCounts.merge(entry.accountId(), 1, Integer::sum);
+                }
+            }
+            entryRepository.insertAll(entries);
+            accountShards.applyBalanceDeltas(balanceDeltas);
+            accountCheckpointWriter.afterEntriesInserted(entryCounts);
+            if (!keys.isEmpty()) {
+                idempotencyRepository.insertAll(keys);
+            }
+            progressRepository.update(records.get(records.size() - 1).sequence());
+        });
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.ledger.service;
+
+import com.example.ledger.domain.Direction;
+import com.example.ledger.repository.EntryRepository.EntryRow;
+import com.example.ledger.repository.IdempotencyRepository.IdempotencyRow;
+import com.example.ledger.repository.TransactionRepository.TransactionRow;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One journal record: everything a posting (or a batch of postings) writes to the tables.
+ * <p>
+ * The binary form is big-endian: sequence, accepted-at epoch millis, then four counted lists of
+ * transactions {@code (id, name)}, entries {@code (id, transaction id, account id, direction, amount)},
+ * balance deltas {@code (account id, delta)} and idempotency keys {@code (key, hash, transaction id)}.
+ * Strings are length-prefixed UTF-8 with length -1 for null; a direction is one byte.
+ */
+record JournalRecord(long sequence,
+                     long acceptedAtMillis,
+                     List<TransactionRow> transactions,
+                     List<EntryRow> entries,
+                     Map<String, Long> balanceDeltas,
+                     List<IdempotencyRow> idempotencyKeys) {
+
+    byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + entries.size() * 128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(sequence);
+            out.writeLong(acceptedAtMillis);
+            out.writeInt(transactions.size());
+            for (TransactionRow transaction : transactions) {
+                writeString(out, transaction.id());
+                writeString(out, transaction.name());
+            }
+            out.writeInt(entries.size());
+            for (EntryRow entry : entries) {
+                writeString(out, entry.id());
+                writeString(out, entry.transactionId());
+                writeString(out, entry.accountId());
+                out.writeByte(entry.direction().ordinal());
+                out.writeLong(entry.amount());
+            }
+            out.writeInt(balanceDeltas.size());
+            for (Map.Entry<String, Long> delta : balanceDeltas.entrySet()) {
+                writeString(out, delta.getKey());
+                out.writeLong(delta.getValue());
+            }
+            out.writeInt(idempotencyKeys.size());
+            for (IdempotencyRow key : idempotencyKeys) {
+                writeString(out, key.key());
+                writeString(out, key.requestHash());
+                writeString(out, key.transactionId());
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    static JournalRecord decode(ByteBuffer in) {
+        long sequence = in.getLong();
+        long acceptedAtMillis = in.getLong();
+        int transactionCount = in.getInt();
+        List<TransactionRow> transactions = new ArrayList<>(transactionCount);
+        for (int i = 0; i < transactionCount; i++) {
+            transactions.add(new TransactionRow(readString(in), readString(in)));
+        }
+        int entryCount = in.getInt();
+        List<EntryRow> entries = new ArrayList<>(entryCount);
+        for (int i = 0; i < entryCount; i++) {
+            entries.add(new EntryRow(readString(in), readString(in), readString(in), Direction.values()[in.get()], in.getLong()));
+        }
+        int deltaCount = in.getInt();
+        Map<String, Long> balanceDeltas = new LinkedHashMap<>();
+        for (int i = 0; i < deltaCount; i++) {
+            balanceDeltas.put(readString(in), in.getLong());
+        }
+        int keyCount = in.getInt();
+        List<IdempotencyRow> idempotencyKeys = new ArrayList<>(keyCount);
+        for (int i = 0; i < keyCount; i++) {
+            idempotencyKeys.add(new IdempotencyRow(readString(in), readString(in), readString(in)));
+        }
+        return new JournalRecord(sequence, acceptedAtMillis, transactions, entries, balanceDeltas, idempotencyKeys);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+}
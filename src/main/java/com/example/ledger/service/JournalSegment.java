@@ -0,0 +1,136 @@
+package com.example.ledger.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * A preallocated, memory-mapped journal file named after the sequence of its first record.
+ * <p>
+ * Records are framed as {@code length, crc32c, payload}. The file starts zero-filled, so reading
+ * stops at the first zero length; it also stops at a frame that runs past the end of the file or
+ * fails its checksum, which is what a crash in the middle of a write leaves behind.
+ */
+final class JournalSegment {
+    static final String SUFFIX = ".journal";
+    private static final int FRAME_HEADER = 8;
+
+    private final long firstSequence;
+    private final Path path;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int flushedPosition;
+
+    private JournalSegment(long firstSequence, Path path) {
+        this.firstSequence = firstSequence;
+        this.path = path;
+    }
+
+    /**
+     * Creates and maps a new segment of {@code size} bytes for appending.
+     */
+    static JournalSegment create(Path directory, long firstSequence, long size) throws IOException {
+        JournalSegment segment = new JournalSegment(firstSequence, directory.resolve(fileName(firstSequence)));
+        segment.channel = FileChannel.open(segment.path,
+            StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment.buffer = segment.channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        return segment;
+    }
+
+    /**
+     * A segment left by an earlier run; it is only read and eventually deleted.
+     */
+    static JournalSegment existing(Path path) {
+        String name = path.getFileName().toString();
+        return new JournalSegment(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())), path);
+    }
+
+    static String fileName(long firstSequence) {
+        return String.format("%020d%s", firstSequence, SUFFIX);
+    }
+
+    long firstSequence() {
+        return firstSequence;
+    }
+
+    /**
+     * Whether a payload of {@code length} bytes still fits, with room for the zero length after it.
+     */
+    boolean fits(int length) {
+        return buffer.remaining() >= FRAME_HEADER + length + Integer.BYTES;
+    }
+
+    static boolean fitsEmpty(long segmentSize, int length) {
+        return segmentSize >= FRAME_HEADER + length + Integer.BYTES;
+    }
+
+    void append(byte[] payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        buffer.putInt(payload.length);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(payload);
+    }
+
+    /**
+     * Forces everything appended since the previous flush to the storage device.
+     */
+    void flush() {
+        int position = buffer.position();
+        if (position > flushedPosition) {
+            buffer.force(flushedPosition, position - flushedPosition);
+            flushedPosition = position;
+        }
+    }
+
+    void close() throws IOException {
+        if (channel != null) {
+            flush();
+            channel.close();
+            channel = null;
+        }
+    }
+
+    void delete() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+    }
+
+    /**
+     * Decodes every intact record of the segment in order and returns the number of valid bytes.
+     */
+    long read(Consumer<JournalRecord> consumer) throws IOException {
+        try (FileChannel readChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer in = readChannel.map(FileChannel.MapMode.READ_ONLY, 0, readChannel.size());
+            CRC32C crc = new CRC32C();
+            while (in.remaining() >= FRAME_HEADER) {
+                int start = in.position();
+                int length = in.getInt();
+                int checksum = in.getInt();
+                if (length <= 0 || length > in.remaining()) {
+                    return start;
+                }
+                byte[] payload = new byte[length];
+                in.get(payload);
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    return start;
+                }
+                consumer.accept(JournalRecord.decode(ByteBuffer.wrap(payload)));
+            }
+            return in.position();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return path.toString();
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.ledger.service;
+
+import com.example.ledger.config.LedgerArchiveProperties;
+import com.example.ledger.repository.ArchiveRepository;
+import com.example.ledger.repository.ArchiveRepository.ArchiveRow;
+import com.example.ledger.repository.ArchiveRepository.ArchivedTransaction;
+import com.example.ledger.repository.IdempotencyRepository.IdempotencyRow;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Lookups in the archived periods, for callers that missed in the hot tables.
+ * <p>
+ * Every sealed period is listed here with a Bloom filter over its transaction ids and idempotency
+ * keys, loaded from its file at startup or when the period is sealed. A lookup only attaches the
+ * files whose filter might hold the id, so a miss in the hot tables, the common case for a new id,
+ * costs no I/O. The periods' {@code as_of} bounds the history that is still complete in the hot
+ * tables: balances and statements before it are no longer answered.
+ */
+@Component
+public class LedgerArchive {
+    private static final Logger log = LoggerFactory.getLogger(LedgerArchive.class);
+    private static final String TRANSACTION = "t:";
+    private static final String KEY = "k:";
+
+    private final ArchiveRepository repository;
+    private final LedgerArchiveProperties properties;
+    private final List<Period> periods = new CopyOnWriteArrayList<>();
+    private final Counter lookups;
+    private final Counter falsePositives;
+
+    public LedgerArchive(ArchiveRepository repository, LedgerArchiveProperties properties, MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.properties = properties;
+        this.lookups = Counter.builder("ledger.archive.lookups").register(meterRegistry);
+        this.falsePositives = Counter.builder("ledger.archive.filter.false_positive").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void load() {
+        for (ArchiveRow archive : repository.findAll()) {
+            if (!archive.copying()) {
+                register(archive);
+            }
+        }
+    }
+
+    /**
+     * Makes a sealed period searchable. Called before its rows are deleted from the hot tables.
+     */
+    public void register(ArchiveRow archive) {
+        if (!Files.isRegularFile(Path.of(archive.file()))) {
+            throw new IllegalStateException("archive file " + archive.file() + " of " + archive.period() + " is missing");
+        }
+        long started = System.nanoTime();
+        BloomFilter filter = new BloomFilter(archive.transactions() + archive.idempotencyKeys(), properties.getFalsePositiveRate());
+        repository.forEachTransactionId(archive.file(), id -> filter.put(TRANSACTION + id));
+        repository.forEachIdempotencyKey(archive.file(), key -> filter.put(KEY + key));
+        periods.removeIf(period -> period.archive().period().equals(archive.period()));
+        periods.add(new Period(archive, filter));
+        log.info("opened archive {} ({} transactions) in {} ms",
+            archive.file(), archive.transactions(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * The {@code created_at} of the last archived transaction, or empty when nothing is archived.
+     */
+    public Optional<String> archivedUntil() {
+        return periods.stream().map(period -> period.archive().asOf()).max(String::compareTo);
+    }
+
+    public boolean containsTransaction(String transactionId) {
+        return !findExistingTransactionIds(List.of(transactionId)).isEmpty();
+    }
+
+    public Set<String> findExistingTransactionIds(Collection<String> transactionIds) {
+        Set<String> existing = new HashSet<>();
+        for (Period period : periods) {
+            List<String> candidates = period.candidates(TRANSACTION, transactionIds);
+            if (!candidates.isEmpty()) {
+                Set<String> found = repository.findExistingTransactionIds(period.archive().file(), candidates);
+                record(candidates.size(), found.size());
+                existing.addAll(found);
+            }
+        }
+        return existing;
+    }
+
+    public Optional<ArchivedTransaction> findTransaction(String transactionId) {
+        for (Period period : periods) {
+            if (period.mightContain(TRANSACTION, transactionId)) {
+                Optional<ArchivedTransaction> transaction = repository.findTransaction(period.archive().file(), transactionId);
+                record(1, transaction.isPresent() ? 1 : 0);
+                if (transaction.isPresent()) {
+                    return transaction;
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    public Optional<IdempotencyRow> findIdempotencyKey(String key) {
+        for (Period period : periods) {
+            if (period.mightContain(KEY, key)) {
+                Optional<IdempotencyRow> row = repository.findIdempotencyKey(period.archive().file(), key);
+                record(1, row.isPresent() ? 1 : 0);
+                if (row.isPresent()) {
+                    return row;
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    public Map<String, IdempotencyRow> findIdempotencyKeys(Collection<String> keys) {
+        Map<String, IdempotencyRow> rows = new HashMap<>();
+        if (periods.isEmpty()) {
+            return rows;
+        }
+        for (String key : keys) {
+            findIdempotencyKey(key).ifPresent(row -> rows.put(key, row));
+        }
+        return rows;
+    }
+
+    private void record(int attached, int found) {
+        lookups.increment(attached);
+        falsePositives.increment(attached - found);
+    }
+
+    private record Period(ArchiveRow archive, BloomFilter filter) {
+        boolean mightContain(String prefix, String value) {
+            return filter.mightContain(prefix + value);
+        }
+
+        List<String> candidates(String prefix, Collection<String> values) {
+            List<String> candidates = new ArrayList<>();
+            for (String value : values) {
+                if (mightContain(prefix, value)) {
+                    candidates.add(value);
+                }
+            }
+            return candidates;
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.example.ledger.service;
+
+import com.example.ledger.config.LedgerArchiveProperties;
+import com.example.ledger.repository.AccountCheckpointRepository;
+import com.example.ledger.repository.AccountRepository;
+import com.example.ledger.repository.AccountRepository.AccountRow;
+import com.example.ledger.repository.ArchiveRepository;
+import com.example.ledger.repository.ArchiveRepository.ArchiveRow;
+import com.example.ledger.repository.ArchiveRepository.Comparison;
+import com.example.ledger.repository.ArchiveRepository.TransactionPosition;
+import com.example.ledger.repository.BalanceSnapshotRepository;
+import com.example.ledger.repository.BalanceSnapshotRepository.SnapshotRow;
+import com.example.ledger.repository.EntryRepository;
+import com.example.ledger.repository.LedgerVerificationRepository;
+import com.example.ledger.repository.LedgerVerificationRepository.VerificationRow;
+import com.example.ledger.repository.TransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves closed calendar months of transactions, entries and idempotency keys out of the hot
+ * database into one SQLite file per month, so the hot file stays small enough to stay in the page
+ * cache.
+ * <p>
+ * A period is a contiguous range of transaction keys, from the first transaction after the previous
+ * period to the last one created in its month, and the entry sequences those transactions hold. It
+ * goes through three steps, each resumable:
+ * <ol>
+ *     <li>copying: the range is copied into the attached file in chunks and then compared with the
+ *     hot rows by count and sums;</li>
+ *     <li>sealed: the balance after the period's last entry of every account with entries in the
+ *     period is written as a checkpoint and a balance snapshot, which is what statements,
+ *     point-in-time balances and the verifier start from once the entries before it are gone, and
+ *     the period becomes searchable through {@link LedgerArchive}. Other accounts keep starting
+ *     from their checkpoint and snapshot of an earlier period, or their opening balance;</li>
+ *     <li>archived: the range is deleted from the hot tables in chunks, which the delete triggers
+ *     allow for sealed periods only, and the file is made read-only.</li>
+ * </ol>
+ * A period is only archived once later transactions and entries exist, since new keys and sequences
+ * are one past the largest in the table and must not fall into an archived range again. Deleting
+ * waits while a verification that still reads the period is running. Freed pages are reused by later
+ * postings; the file itself only shrinks with {@code VACUUM}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "ledger.archive", name = "enabled", havingValue = "true")
+public class LedgerArchiver {
+    private static final Logger log = LoggerFactory.getLogger(LedgerArchiver.class);
+
+    private final ArchiveRepository repository;
+    private final EntryRepository entryRepository;
+    private final AccountRepository accountRepository;
+    private final AccountCheckpointRepository checkpointRepository;
+    private final BalanceSnapshotRepository snapshotRepository;
+    private final LedgerVerificationRepository verificationRepository;
+    private final AccountStatementService statementService;
+    private final LedgerArchive ledgerArchive;
+    private final LedgerArchiveProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final Clock clock;
+    private final Counter entriesCounter;
+    private final Timer runTimer;
+
+    public LedgerArchiver(ArchiveRepository repository,
+                          EntryRepository entryRepository,
+                          AccountRepository accountRepository,
+                          AccountCheckpointRepository checkpointRepository,
+                          BalanceSnapshotRepository snapshotRepository,
+                          LedgerVerificationRepository verificationRepository,
+                          AccountStatementService statementService,
+                          LedgerArchive ledgerArchive,
+                          LedgerArchiveProperties properties,
+                          PlatformTransactionManager transactionManager,
+                          MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.entryRepository = entryRepository;
+        this.accountRepository = accountRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.snapshotRepository = snapshotRepository;
+        this.verificationRepository = verificationRepository;
+        this.statementService = statementService;
+        this.ledgerArchive = ledgerArchive;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.clock = Clock.systemUTC();
+        this.entriesCounter = Counter.builder("ledger.archive.entries").register(meterRegistry);
+        this.runTimer = Timer.builder("ledger.archive.run").register(meterRegistry);
+    }
+
+    @Scheduled(
+        initialDelayString = "${ledger.archive.interval:PT1H}",
+        fixedDelayString = "${ledger.archive.interval:PT1H}"
+    )
+    public void scheduledArchive() {
+        archive(Instant.now(clock));
+    }
+
+    /**
+     * Finishes an interrupted period, archives every month that has closed more than
+     * {@code keepMonths} before {@code now}, and returns the number of periods archived.
+     */
+    public int archive(Instant now) {
+        long started = System.nanoTime();
+        int archived = 0;
+        for (ArchiveRow archive : repository.findAll()) {
+            if (!archive.archived()) {
+                if (!finish(archive)) {
+                    return archived;
+                }
+                archived++;
+            }
+        }
+        Optional<ArchiveRow> next;
+        while ((next = open(now)).isPresent() && finish(next.get())) {
+            archived++;
+        }
+        if (archived > 0) {
+            runTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+        return archived;
+    }
+
+    private Optional<ArchiveRow> open(Instant now) {
+        List<ArchiveRow> archives = repository.findAll();
+        ArchiveRow previous = archives.isEmpty() ? null : archives.get(archives.size() - 1);
+        long afterKey = previous == null ? 0 : previous.lastTransactionKey();
+        long afterSequence = previous == null ? 0 : previous.lastSequence();
+        Optional<TransactionPosition> first = repository.findNextTransaction(afterKey);
+        if (first.isEmpty()) {
+            return Optional.empty();
+        }
+
+        YearMonth month = YearMonth.parse(first.get().createdAt().substring(0, 7));
+        if (previous != null && !month.isAfter(YearMonth.parse(previous.period()))) {
+            // A transaction created out of order; it goes with the next month.
+            month = YearMonth.parse(previous.period()).plusMonths(1);
+        }
+        if (!month.isBefore(YearMonth.from(now.atZone(ZoneOffset.UTC)).minusMonths(properties.getKeepMonths()))) {
+            return Optional.empty();
+        }
+        String end = TransactionRepository.CREATED_AT_FORMAT.format(month.plusMonths(1).atDay(1).atStartOfDay(ZoneOffset.UTC));
+        long lastKey = repository.findLastKeyBefore(first.get().key(), end).orElse(first.get().key());
+        long lastSequence = repository.findLastSequence(lastKey).orElse(afterSequence);
+        if (!repository.transactionExistsAfter(lastKey) || entryRepository.maxRowid() <= lastSequence) {
+            return Optional.empty();
+        }
+
+        Path directory = Path.of(properties.getDirectory());
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("cannot create archive directory " + directory, ex);
+        }
+        String period = month.toString();
+        String file = directory.resolve("ledger-" + period + ".db").toString();
+        repository.insert(period, file, first.get().key(), lastKey, afterSequence + 1, lastSequence);
+        log.info("archiving {}: transactions {} to {}, entries {} to {}",
+            period, first.get().key(), lastKey, afterSequence + 1, lastSequence);
+        return repository.findByPeriod(period);
+    }
+
+    /**
+     * Takes a period through its remaining steps; false when it has to wait for the next pass.
+     */
+    private boolean finish(ArchiveRow archive) {
+        ArchiveRow current = archive;
+        if (current.copying()) {
+            if (!copy(current)) {
+                return false;
+            }
+            current = repository.findByPeriod(current.period()).orElseThrow();
+            ledgerArchive.register(current);
+        }
+        return delete(current);
+    }
+
+    private boolean copy(ArchiveRow archive) {
+        int chunkSize = Math.max(1, properties.getChunkSize());
+        for (long from = archive.copiedTransactionKey() + 1; from <= archive.lastTransactionKey(); from += chunkSize) {
+            repository.copy(archive.period(), archive.file(), from, Math.min(from + chunkSize - 1, archive.lastTransactionKey()));
+            if (!pause()) {
+                return false;
+            }
+        }
+        Comparison comparison = repository.compare(archive.file(), archive.firstTransactionKey(), archive.lastTransactionKey());
+        if (!comparison.matches()) {
+            log.error("archive {} does not match the hot tables, copying it again: {}", archive.period(), comparison);
+            repository.updateCopied(archive.period(), archive.firstTransactionKey() - 1);
+            return false;
+        }
+        seal(archive, comparison);
+        return true;
+    }
+
+    private void seal(ArchiveRow archive, Comparison comparison) {
+        long sequence = archive.lastSequence();
+        String asOf = repository.createdAt(archive.lastTransactionKey());
+        String transactionId = sequence >= archive.firstSequence() ? repository.transactionIdAt(sequence) : null;
+        // Earlier periods are gone from the hot tables, so these are the accounts with entries in this one.
+        List<String> accountIds = entryRepository.findAccountIdsBetween(archive.firstSequence() - 1, sequence);
+
+        // Entries up to the period's last one no longer change, so balances are read outside the write lock.
+        int chunkSize = Math.max(1, properties.getChunkSize());
+        for (int from = 0; from < accountIds.size(); from += chunkSize) {
+            Map<String, Long> balances = new LinkedHashMap<>();
+            List<SnapshotRow> snapshots = new ArrayList<>();
+            for (AccountRow account : accountRepository.findByIds(accountIds.subList(from, Math.min(from + chunkSize, accountIds.size())))) {
+                long balance = statementService.balanceAfter(account.id(), account.direction(), sequence);
+                balances.put(account.id(), balance);
+                if (transactionId != null) {
+                    snapshots.add(new SnapshotRow(account.id(), sequence, transactionId, asOf, balance));
+                }
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                checkpointRepository.insertAll(balances, sequence);
+                snapshotRepository.insertAll(snapshots);
+            });
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            if (transactionId != null) {
+                snapshotRepository.insertRun(sequence, asOf, accountIds.size());
+            }
+            repository.seal(archive.period(), comparison.hot(), asOf);
+        });
+        log.info("sealed archive {} as of {}: {} transactions, {} entries, {} idempotency keys, {} accounts checkpointed",
+            archive.period(), asOf, comparison.hot().transactions(), comparison.hot().entries(),
+            comparison.hot().idempotencyKeys(), accountIds.size());
+    }
+
+    private boolean delete(ArchiveRow archive) {
+        Optional<VerificationRow> running = verificationRepository.findRunning();
+        if (running.isPresent() && running.get().startSequence() < archive.lastSequence()) {
+            log.info("archive {} waits for ledger verification {} before deleting", archive.period(), running.get().id());
+            return false;
+        }
+        int chunkSize = Math.max(1, properties.getChunkSize());
+        for (long from = archive.deletedTransactionKey() + 1; from <= archive.lastTransactionKey(); from += chunkSize) {
+            long fromKey = from;
+            long toKey = Math.min(from + chunkSize - 1, archive.lastTransactionKey());
+            Integer entries = transactionTemplate.execute(status -> repository.deleteRange(archive.period(), fromKey, toKey));
+            entriesCounter.increment(entries == null ? 0 : entries);
+            if (!pause()) {
+                return false;
+            }
+        }
+        repository.complete(archive.period());
+        if (!Path.of(archive.file()).toFile().setReadOnly()) {
+            log.warn("could not make archive {} read-only", archive.file());
+        }
+        log.info("archived {} to {}", archive.period(), archive.file());
+        return true;
+    }
+
+    private boolean pause() {
+        long millis = properties.getPause().toMillis();
+        if (millis <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package com.example.ledger.service;
+
+import com.example.ledger.api.VerificationFindingResponse;
+import com.example.ledger.api.VerificationResponse;
+import com.example.ledger.config.ConnectionPoolProperties;
+import com.example.ledger.config.LedgerVerifierProperties;
+import com.example.ledger.domain.Direction;
+import com.example.ledger.exception.ApiException;
+import com.example.ledger.repository.EntryRepository;
+import com.example.ledger.repository.LedgerVerificationRepository;
+import com.example.ledger.repository.LedgerVerificationRepository.AccountBalance;
+import com.example.ledger.repository.LedgerVerificationRepository.AccountBalances;
+import com.example.ledger.repository.LedgerVerificationRepository.Finding;
+import com.example.ledger.repository.LedgerVerificationRepository.VerificationRow;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Recomputes the whole ledger from {@code entries} and reports accounts whose balance does not match
+ * their entries and transactions whose debits and credits differ.
+ * <p>
+ * A run fixes a high-water mark, the latest committed entry, and splits the entries up to it into
+ * sequence ranges that a {@link ForkJoinPool} reads in parallel over read-only connections. Each range
+ * sums debits minus credits per account and per transaction; since a transaction's entries are
+ * contiguous, only the first and last transaction of a range can be cut off by its bounds, and those
+ * are completed when neighbouring ranges are merged. Ranges are split by sequence rather than by
+ * account so that one hot account does not end up in a single task.
+ * <p>
+ * Every {@code checkpointInterval} entries the running totals and findings are saved, and a stopped
+ * run resumes from there. Saving claims the chunk: it only moves the run on from where this runner
+ * read it, so when two processes pick up the same run, the one that saves second stops with
+ * {@code 409} instead of adding the chunk to the totals again. At the end each account's balance at
+ * the high-water mark (the live balance minus whatever was posted since, read in one snapshot) is
+ * compared with its opening balance plus its entries. Archived periods are not read again: a run
+ * starts after the last one, from the balances checkpointed when it was sealed.
+ */
+@Component
+public class LedgerVerifier {
+    private static final Logger log = LoggerFactory.getLogger(LedgerVerifier.class);
+    private static final long NONE = Long.MIN_VALUE;
+    private static final int MAX_FINDINGS = 1000;
+
+    private final LedgerVerificationRepository repository;
+    private final EntryRepository entryRepository;
+    private final LedgerVerifierProperties properties;
+    private final int parallelism;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService background = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ledger-verifier");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final Counter findingsCounter;
+    private final Timer runTimer;
+
+    public LedgerVerifier(LedgerVerificationRepository repository,
+                          EntryRepository entryRepository,
+                          LedgerVerifierProperties properties,
+                          ConnectionPoolProperties connectionPoolProperties,
+                          PlatformTransactionManager transactionManager,
+                          MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.entryRepository = entryRepository;
+        this.properties = properties;
+        int readConnections = connectionPoolProperties.getRead().getMaximumPoolSize();
+        this.parallelism = properties.getParallelism() > 0
+            ? Math.min(properties.getParallelism(), readConnections)
+            : Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), readConnections - 1));
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.findingsCounter = Counter.builder("ledger.verifier.findings").register(meterRegistry);
+        this.runTimer = Timer.builder("ledger.verifier.run").register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        background.shutdownNow();
+    }
+
+    /**
+     * Resumes the unfinished run, or starts a new one, and returns once it has completed.
+     */
+    public VerificationResponse verify() {
+        return toResponse(run(begin()));
+    }
+
+    /**
+     * Like {@link #verify()}, but returns the run as soon as it has started.
+     */
+    public VerificationResponse start() {
+        VerificationRow verification = begin();
+        background.execute(() -> {
+            try {
+                run(verification);
+            } catch (RuntimeException ex) {
+                log.error("ledger verification {} failed; it resumes on the next start", verification.id(), ex);
+            }
+        });
+        return toResponse(verification);
+    }
+
+    public VerificationResponse getById(long id) {
+        return toResponse(repository.findById(id)
+            .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "verification_not_found", "verification not found")));
+    }
+
+    private VerificationResponse toResponse(VerificationRow verification) {
+        List<VerificationFindingResponse> findings = repository.findFindings(verification.id(), MAX_FINDINGS).stream()
+            .map(finding -> new VerificationFindingResponse(finding.kind(), finding.subject(), finding.expected(), finding.actual()))
+            .toList();
+        return new VerificationResponse(verification.id(), verification.status(), verification.highWaterSequence(),
+            verification.verifiedSequence(), verification.startedAt(), verification.completedAt(),
+            repository.countFindings(verification.id()), findings);
+    }
+
+    private VerificationRow begin() {
+        if (!running.compareAndSet(false, true)) {
+            throw new ApiException(HttpStatus.CONFLICT, "verification_running", "a verification is already running");
+        }
+        try {
+            return repository.findRunning().orElseGet(() -> {
+                long highWater = entryRepository.maxRowid();
+                long id = transactionTemplate.execute(status -> repository.insert(highWater));
+                return repository.findById(id).orElseThrow();
+            });
+        } catch (RuntimeException ex) {
+            running.set(false);
+            throw ex;
+        }
+    }
+
+    private VerificationRow run(VerificationRow verification) {
+        long started = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            long id = verification.id();
+            long highWater = verification.highWaterSequence();
+            long verified = verification.verifiedSequence();
+            Map<Long, Long> totals = repository.findTotals(id);
+            long openKey = verification.openTransactionKey() == null ? NONE : verification.openTransactionKey();
+            long openNet = verification.openTransactionNet();
+            if (verified > verification.startSequence()) {
+                log.info("resuming ledger verification {} at entry {} of {}", id, verified, highWater);
+            }
+            int interval = Math.max(1, properties.getCheckpointInterval());
+            while (verified < highWater) {
+                long upTo = Math.min(verified + interval, highWater);
+                RangeTotals range = pool.invoke(new RangeTask(verified, upTo, Math.max(1, properties.getLeafSize())));
+
+                // The run so far is complete on the left, so only its last transaction can still be open.
+                LinkedHashMap<Long, Long> edges = new LinkedHashMap<>();
+                if (openKey != NONE) {
+                    edges.put(openKey, openNet);
+                }
+                range.edges.forEach((key, net) -> edges.merge(key, net, Long::sum));
+                List<long[]> unbalanced = new ArrayList<>(range.unbalanced);
+                long lastKey = NONE;
+                for (Map.Entry<Long, Long> edge : edges.entrySet()) {
+                    lastKey = edge.getKey();
+                }
+                for (Map.Entry<Long, Long> edge : edges.entrySet()) {
+                    if (edge.getKey() != lastKey && edge.getValue() != 0) {
+                        unbalanced.add(new long[] {edge.getKey(), edge.getValue()});
+                    }
+                }
+                openKey = lastKey;
+                openNet = lastKey == NONE ? 0 : edges.get(lastKey);
+
+                Map<Long, Long> nets = new HashMap<>(range.accountNets.size());
+                range.accountNets.forEach((account, net) -> nets.put(account, net[0]));
+                nets.forEach((account, net) -> totals.merge(account, net, Long::sum));
+                List<Finding> findings = unbalancedFindings(unbalanced);
+                long from = verified;
+                long progress = upTo;
+                Long open = openKey == NONE ? null : openKey;
+                long openTotal = openNet;
+                transactionTemplate.executeWithoutResult(status -> {
+                    if (!repository.saveProgress(id, from, progress, open, openTotal, nets, findings)) {
+                        throw claimLost(id);
+                    }
+                });
+                record(findings);
+                verified = upTo;
+            }
+
+            List<long[]> lastTransaction = new ArrayList<>();
+            if (openKey != NONE && openNet != 0) {
+                lastTransaction.add(new long[] {openKey, openNet});
+            }
+            List<Finding> findings = unbalancedFindings(lastTransaction);
+            findings.addAll(accountDrift(verification.startSequence(), highWater, totals));
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!repository.complete(id, highWater)) {
+                    throw claimLost(id);
+                }
+                repository.insertFindings(id, findings);
+            });
+            record(findings);
+
+            long elapsed = System.nanoTime() - started;
+            runTimer.record(elapsed, TimeUnit.NANOSECONDS);
+            int total = repository.countFindings(id);
+            log.info("ledger verification {} checked {} entries with {} tasks in {} ms: {} findings",
+                id, highWater, parallelism, elapsed / 1_000_000, total);
+            return repository.findById(id).orElseThrow();
+        } finally {
+            pool.shutdown();
+            running.set(false);
+        }
+    }
+
+    private static ApiException claimLost(long id) {
+        return new ApiException(HttpStatus.CONFLICT, "verification_running",
+            "verification " + id + " is being run by another process");
+    }
+
+    private List<Finding> unbalancedFindings(List<long[]> unbalanced) {
+        List<Finding> findings = new ArrayList<>(unbalanced.size());
+        for (long[] transaction : unbalanced) {
+            String transactionId = repository.findTransactionId(transaction[0]).orElse("key:" + transaction[0]);
+            findings.add(new Finding(Finding.UNBALANCED_TRANSACTION, transactionId, 0, transaction[1]));
+        }
+        return findings;
+    }
+
+    private List<Finding> accountDrift(long startSequence, long highWater, Map<Long, Long> totals) {
+        AccountBalances balances = repository.accountBalances(startSequence, highWater);
+        List<Finding> findings = new ArrayList<>();
+        for (AccountBalance account : balances.accounts()) {
+            long sign = account.direction() == Direction.DEBIT ? 1 : -1;
+            long expected = account.openingBalance() + sign * totals.getOrDefault(account.key(), 0L);
+            long actual = account.balance() - sign * balances.netsAfter().getOrDefault(account.key(), 0L);
+            if (expected != actual) {
+                findings.add(new Finding(Finding.ACCOUNT_DRIFT, account.id(), expected, actual));
+            }
+        }
+        return findings;
+    }
+
+    private void record(List<Finding> findings) {
+        for (Finding finding : findings) {
+            findingsCounter.increment();
+            log.error("ledger verification: {} {} expected {} but found {}",
+                finding.kind(), finding.subject(), finding.expected(), finding.actual());
+        }
+    }
+
+    /**
+     * Debits minus credits per account and per transaction over a range of entries. {@code edges}
+     * holds the first and the last transaction of the range, in that order, which may continue beyond
+     * it; every other transaction is complete and is in {@code unbalanced} when it does not net to 0.
+     */
+    private static final class RangeTotals {
+        private final Map<Long, long[]> accountNets = new HashMap<>();
+        private final List<long[]> unbalanced = new ArrayList<>();
+        private final LinkedHashMap<Long, Long> edges = new LinkedHashMap<>();
+
+        private RangeTotals merge(RangeTotals right) {
+            RangeTotals larger = accountNets.size() >= right.accountNets.size() ? this : right;
+            RangeTotals smaller = larger == this ? right : this;
+            RangeTotals merged = new RangeTotals();
+            merged.accountNets.putAll(larger.accountNets);
+            smaller.accountNets.forEach((account, net) -> merged.accountNets.merge(account, net, (a, b) -> {
+                a[0] += b[0];
+                return a;
+            }));
+            merged.unbalanced.addAll(unbalanced);
+            merged.unbalanced.addAll(right.unbalanced);
+
+            LinkedHashMap<Long, Long> joined = new LinkedHashMap<>(edges);
+            right.edges.forEach((key, net) -> joined.merge(key, net, Long::sum));
+            Iterator<Map.Entry<Long, Long>> iterator = joined.entrySet().iterator();
+            int index = 0;
+            while (iterator.hasNext()) {
+                Map.Entry<Long, Long> edge = iterator.next();
+                boolean outer = index == 0 || index == joined.size() - 1;
+                if (outer) {
+                    merged.edges.put(edge.getKey(), edge.getValue());
+                } else if (edge.getValue() != 0) {
+                    merged.unbalanced.add(new long[] {edge.getKey(), edge.getValue()});
+                }
+                index++;
+            }
+            return merged;
+        }
+    }
+
+    private final class RangeTask extends RecursiveTask<RangeTotals> {
+        private final long after;
+        private final long upTo;
+        private final int leafSize;
+
+        private RangeTask(long after, long upTo, int leafSize) {
+            this.after = after;
+            this.upTo = upTo;
+            this.leafSize = leafSize;
+        }
+
+        @Override
+        protected RangeTotals compute() {
+            if (upTo - after <= leafSize) {
+                return scan();
+            }
+            long middle = after + (upTo - after) / 2;
+            RangeTask left = new RangeTask(after, middle, leafSize);
+            left.fork();
+            RangeTotals right = new RangeTask(middle, upTo, leafSize).compute();
+            return left.join().merge(right);
+        }
+
+        private RangeTotals scan() {
+            RangeTotals totals = new RangeTotals();
+            long[] current = {NONE, 0};
+            repository.forEachEntryBetween(after, upTo, (transactionKey, accountKey, debit, amount) -> {
+                long net = debit ? amount : -amount;
+                totals.accountNets.computeIfAbsent(accountKey, key -> new long[1])[0] += net;
+                if (transactionKey != current[0]) {
+                    close(totals, current[0], current[1]);
+                    current[0] = transactionKey;
+                    current[1] = 0;
+                }
+                current[1] += net;
+            });
+            if (current[0] != NONE) {
+                totals.edges.put(current[0], current[1]);
+            }
+            return totals;
+        }
+
+        private void close(RangeTotals totals, long transactionKey, long net) {
+            if (transactionKey == NONE) {
+                return;
+            }
+            if (totals.edges.isEmpty()) {
+                totals.edges.put(transactionKey, net);
+            } else if (net != 0) {
+                totals.unbalanced.add(new long[] {transactionKey, net});
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.ledger.service;
+
+/**
+ * Streaming MurmurHash3 x64 128-bit (seed 0). Output bytes are h1 then h2, each little-endian,
+ * matching the reference implementation and Guava's {@code murmur3_128}.
+ */
+final class Murmur3x64Digest {
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private final byte[] block = new byte[16];
+    private int blockLength;
+    private long length;
+    private long h1;
+    private long h2;
+
+    void reset() {
+        blockLength = 0;
+        length = 0;
+        h1 = 0;
+        h2 = 0;
+    }
+
+    void update(byte[] input, int offset, int count) {
+        length += count;
+        int position = offset;
+        int end = offset + count;
+        if (blockLength > 0) {
+            while (blockLength < 16 && position < end) {
+                block[blockLength++] = input[position++];
+            }
+            if (blockLength < 16) {
+                return;
+            }
+            mixBlock(getLongLittleEndian(block, 0), getLongLittleEndian(block, 8));
+            blockLength = 0;
+        }
+        while (end - position >= 16) {
+            mixBlock(getLongLittleEndian(input, position), getLongLittleEndian(input, position + 8));
+            position += 16;
+        }
+        while (position < end) {
+            block[blockLength++] = input[position++];
+        }
+    }
+
+    /**
+     * Writes the 16-byte digest into {@code out} and resets the digest.
+     */
+    void digest(byte[] out) {
+        long k1 = 0;
+        long k2 = 0;
+        for (int i = blockLength - 1; i >= 8; i--) {
+            k2 = (k2 << 8) | (block[i] & 0xffL);
+        }
+        for (int i = Math.min(blockLength, 8) - 1; i >= 0; i--) {
+            k1 = (k1 << 8) | (block[i] & 0xffL);
+        }
+        if (blockLength > 8) {
+            h2 ^= mixK2(k2);
+        }
+        if (blockLength > 0) {
+            h1 ^= mixK1(k1);
+        }
+
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+        h1 += h2;
+        h2 += h1;
+
+        putLongLittleEndian(out, 0, h1);
+        putLongLittleEndian(out, 8, h2);
+        reset();
+    }
+
+    private void mixBlock(long k1, long k2) {
+        h1 ^= mixK1(k1);
+        h1 = Long.rotateLeft(h1, 27);
+        h1 += h2;
+        h1 = h1 * 5 + 0x52dce729;
+
+        h2 ^= mixK2(k2);
+        h2 = Long.rotateLeft(h2, 31);
+        h2 += h1;
+        h2 = h2 * 5 + 0x38495ab5;
+    }
+
+    private static long mixK1(long k1) {
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        return k1 * C2;
+    }
+
+    private static long mixK2(long k2) {
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        return k2 * C1;
+    }
+
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    private static long getLongLittleEndian(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 7; i >= 0; i--) {
+            value = (value << 8) | (bytes[offset + i] & 0xffL);
+        }
+        return value;
+    }
+
+    private static void putLongLittleEndian(byte[] bytes, int offset, long value) {
+        for (int i = 0; i < 8; i++) {
+            bytes[offset + i] = (byte) (value >>> (8 * i));
+        }
+    }
+}
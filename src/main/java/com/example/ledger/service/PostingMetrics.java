@@ -0,0 +1,75 @@
+package com.example.ledger.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Times the phases of posting a single transaction as {@code ledger.transaction.phase{phase}}.
+ * <p>
+ * Together with {@code ledger.account.lock.wait} and {@code ledger.sql.statement} this splits a
+ * slow {@code POST /transactions} into time spent in our own code, waiting for a stripe and waiting
+ * on SQLite.
+ */
+@Component
+public class PostingMetrics {
+
+    enum Phase {
+        /** Balance check, distinct accounts and the request hash. */
+        VALIDATION,
+        /** Idempotency cache, journal and table lookups, including loading the response of a replay. */
+        IDEMPOTENCY_LOOKUP,
+        /** Check that the transaction id is not taken yet. */
+        DUPLICATE_CHECK,
+        /** Resolving the accounts and building the rows and balance deltas. */
+        ACCOUNT_LOAD,
+        /** Transaction and entry rows, or the journal append when the journal is on. */
+        ENTRY_INSERT,
+        /** Balance deltas and the statement checkpoints that read them back. */
+        BALANCE_UPDATE,
+        IDEMPOTENCY_INSERT,
+        /**
+         * From the end of the posting's own work until it is durable: the commit itself, plus the
+         * rest of the batch with group commit, or the journal flush.
+         */
+        COMMIT
+    }
+
+    private final Map<Phase, Timer> timers = new EnumMap<>(Phase.class);
+
+    public PostingMetrics(MeterRegistry meterRegistry) {
+        for (Phase phase : Phase.values()) {
+            timers.put(phase, Timer.builder("ledger.transaction.phase")
+                .tag("phase", phase.name().toLowerCase(Locale.ROOT))
+                .register(meterRegistry));
+        }
+    }
+
+    <T> T time(Phase phase, Supplier<T> work) {
+        long started = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            record(phase, System.nanoTime() - started);
+        }
+    }
+
+    void time(Phase phase, Runnable work) {
+        long started = System.nanoTime();
+        try {
+            work.run();
+        } finally {
+            record(phase, System.nanoTime() - started);
+        }
+    }
+
+    void record(Phase phase, long nanos) {
+        timers.get(phase).record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.ledger.service;
+
+import com.example.ledger.api.EntryRequest;
+import com.example.ledger.config.IdempotencyProperties;
+import com.example.ledger.config.IdempotencyProperties.HashAlgorithm;
+import org.springframework.stereotype.Component;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+/**
+ * Fingerprints a transaction payload for idempotency checks.
+ * <p>
+ * The payload is the text {@code id|name|} followed by {@code entryId,accountId,direction,amount;}
+ * per entry, hashed as UTF-8. Instead of building that string, fields are encoded straight into a
+ * per-thread byte buffer that feeds a per-thread digest, and the result is hex-encoded from a lookup
+ * table. The bytes hashed are exactly those of the original string, so SHA-256 fingerprints already
+ * stored in {@code idempotency_keys} keep matching.
+ */
+@Component
+public class RequestHasher {
+    static final String MURMUR3_PREFIX = "m3:";
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final ThreadLocal<PayloadWriter> SHA256_WRITER = ThreadLocal.withInitial(Sha256Writer::new);
+    private static final ThreadLocal<PayloadWriter> MURMUR3_WRITER = ThreadLocal.withInitial(Murmur3Writer::new);
+
+    private final HashAlgorithm algorithm;
+
+    public RequestHasher(IdempotencyProperties properties) {
+        this.algorithm = properties.getHashAlgorithm();
+    }
+
+    public String hash(String transactionId, String name, List<EntryRequest> entries) {
+        return hash(algorithm, transactionId, name, entries);
+    }
+
+    /**
+     * Whether a stored fingerprint belongs to the same payload as {@code requestHash}. A fingerprint
+     * stored under the other algorithm is recomputed with that algorithm before comparing.
+     */
+    public boolean matches(String storedHash, String requestHash, String transactionId, String name, List<EntryRequest> entries) {
+        if (storedHash.equals(requestHash)) {
+            return true;
+        }
+        HashAlgorithm storedAlgorithm = storedHash.startsWith(MURMUR3_PREFIX) ? HashAlgorithm.MURMUR3 : HashAlgorithm.SHA256;
+        return storedAlgorithm != algorithm && storedHash.equals(hash(storedAlgorithm, transactionId, name, entries));
+    }
+
+    static String hash(HashAlgorithm algorithm, String transactionId, String name, List<EntryRequest> entries) {
+        PayloadWriter writer = algorithm == HashAlgorithm.MURMUR3 ? MURMUR3_WRITER.get() : SHA256_WRITER.get();
+        writer.reset();
+        writer.write(transactionId == null ? "" : transactionId);
+        writer.writeChar('|');
+        writer.write(name == null ? "" : name);
+        writer.writeChar('|');
+        for (EntryRequest entry : entries) {
+            writer.write(entry.getId() == null ? "" : entry.getId());
+            writer.writeChar(',');
+            writer.write(String.valueOf(entry.getAccountId()));
+            writer.writeChar(',');
+            writer.write(String.valueOf(entry.getDirection()));
+            writer.writeChar(',');
+            Long amount = entry.getAmount();
+            if (amount == null) {
+                writer.write("null");
+            } else {
+                writer.writeLong(amount);
+            }
+            writer.writeChar(';');
+        }
+        return writer.finish();
+    }
+
+    /**
+     * Encodes characters to UTF-8 the way {@link String#getBytes} does (unpaired surrogates become
+     * {@code ?}), carrying a high surrogate across field boundaries as the concatenated string would.
+     */
+    private abstract static class PayloadWriter {
+        private final byte[] buffer = new byte[512];
+        private final byte[] digits = new byte[20];
+        private int position;
+        private char pendingHighSurrogate;
+
+        final void reset() {
+            position = 0;
+            pendingHighSurrogate = 0;
+            resetDigest();
+        }
+
+        final void write(String value) {
+            for (int i = 0; i < value.length(); i++) {
+                writeChar(value.charAt(i));
+            }
+        }
+
+        final void writeChar(char c) {
+            if (pendingHighSurrogate != 0) {
+                char high = pendingHighSurrogate;
+                pendingHighSurrogate = 0;
+                if (Character.isLowSurrogate(c)) {
+                    int codePoint = Character.toCodePoint(high, c);
+                    writeByte(0xf0 | (codePoint >> 18));
+                    writeByte(0x80 | ((codePoint >> 12) & 0x3f));
+                    writeByte(0x80 | ((codePoint >> 6) & 0x3f));
+                    writeByte(0x80 | (codePoint & 0x3f));
+                    return;
+                }
+                writeByte('?');
+            }
+            if (c < 0x80) {
+                writeByte(c);
+            } else if (c < 0x800) {
+                writeByte(0xc0 | (c >> 6));
+                writeByte(0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c)) {
+                pendingHighSurrogate = c;
+            } else if (Character.isLowSurrogate(c)) {
+                writeByte('?');
+            } else {
+                writeByte(0xe0 | (c >> 12));
+                writeByte(0x80 | ((c >> 6) & 0x3f));
+                writeByte(0x80 | (c & 0x3f));
+            }
+        }
+
+        final void writeLong(long value) {
+            if (value == Long.MIN_VALUE) {
+                write(Long.toString(value));
+                return;
+            }
+            if (value < 0) {
+                writeByte('-');
+                value = -value;
+            }
+            int count = 0;
+            do {
+                digits[count++] = (byte) ('0' + (value % 10));
+                value /= 10;
+            } while (value != 0);
+            while (count > 0) {
+                writeByte(digits[--count]);
+            }
+        }
+
+        final String finish() {
+            if (pendingHighSurrogate != 0) {
+                pendingHighSurrogate = 0;
+                writeByte('?');
+            }
+            flush();
+            return digestHex();
+        }
+
+        private void writeByte(int value) {
+            if (position == buffer.length) {
+                flush();
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        private void flush() {
+            update(buffer, position);
+            position = 0;
+        }
+
+        abstract void resetDigest();
+
+        abstract void update(byte[] bytes, int length);
+
+        abstract String digestHex();
+
+        static int appendHex(byte[] bytes, char[] out, int offset) {
+            for (byte b : bytes) {
+                out[offset++] = HEX[(b >> 4) & 0x0f];
+                out[offset++] = HEX[b & 0x0f];
+            }
+            return offset;
+        }
+    }
+
+    private static final class Sha256Writer extends PayloadWriter {
+        private final MessageDigest digest;
+        private final byte[] hash = new byte[32];
+        private final char[] hex = new char[64];
+
+        private Sha256Writer() {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException ex) {
+                throw new IllegalStateException("unable to compute hash", ex);
+            }
+        }
+
+        @Override
+        void resetDigest() {
+            digest.reset();
+        }
+
+        @Override
+        void update(byte[] bytes, int length) {
+            digest.update(bytes, 0, length);
+        }
+
+        @Override
+        String digestHex() {
+            try {
+                digest.digest(hash, 0, hash.length);
+            } catch (DigestException ex) {
+                throw new IllegalStateException("unable to compute hash", ex);
+            }
+            appendHex(hash, hex, 0);
+            return new String(hex);
+        }
+    }
+
+    private static final class Murmur3Writer extends PayloadWriter {
+        private final Murmur3x64Digest digest = new Murmur3x64Digest();
+        private final byte[] hash = new byte[16];
+        private final char[] hex = new char[MURMUR3_PREFIX.length() + 32];
+
+        private Murmur3Writer() {
+            MURMUR3_PREFIX.getChars(0, MURMUR3_PREFIX.length(), hex, 0);
+        }
+
+        @Override
+        void resetDigest() {
+            digest.reset();
+        }
+
+        @Override
+        void update(byte[] bytes, int length) {
+            digest.update(bytes, 0, length);
+        }
+
+        @Override
+        String digestHex() {
+            digest.digest(hash);
+            appendHex(hash, hex, MURMUR3_PREFIX.length());
+            return new String(hex);
+        }
+    }
+}
@@ -0,0 +1,572 @@
+package com.example.ledger.service;
+
+import com.example.ledger.api.TransactionResponse;
+import com.example.ledger.config.JournalProperties;
+import com.example.ledger.exception.ApiException;
+import com.example.ledger.repository.AccountRepository;
+import com.example.ledger.repository.EntryRepository.EntryRow;
+import com.example.ledger.repository.IdempotencyRepository.IdempotencyRow;
+import com.example.ledger.repository.TransactionRepository.TransactionRow;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Write-ahead journal in front of the ledger tables.
+ * <p>
+ * With the journal enabled, postings run one after another on a single appender thread. Each one is
+ * validated against the in-memory state (the account cache, plus the transactions and idempotency
+ * keys still waiting to be projected), appended as one binary record to a memory-mapped segment
+ * file and applied to that in-memory state at once, so the next posting is checked against it.
+ * The appender flushes after a batch of postings and releases their callers only once the batch is
+ * durable; the batch's balances and cached responses are staged on the appender thread until then,
+ * so other readers never see a posting that could still be lost. A background thread then applies the records to the tables through
+ * {@link JournalProjector}; reads served from the tables (statements, snapshots and point-in-time
+ * balances) trail the journal by that lag.
+ * <p>
+ * On startup every record after {@code journal_progress} is projected before writes are accepted,
+ * and the old segments are deleted. A failed flush, a batch the projector still cannot apply after
+ * {@code projection-attempts} tries, or a projector backlog that stays full stops the journal: every
+ * later write is rejected until restart, when recovery keeps exactly the records that reached the
+ * disk. Postings still queued when the appender stops are failed with {@code 503}.
+ */
+@Component
+public class TransactionJournal {
+    private static final Logger log = LoggerFactory.getLogger(TransactionJournal.class);
+
+    private final JournalProperties properties;
+    private final JournalProjector projector;
+    private final AccountCache accountCache;
+    private final AccountRepository accountRepository;
+    private final IdempotencyCache idempotencyCache;
+    private final MeterRegistry meterRegistry;
+    private final BlockingQueue<PendingAppend<?>> queue;
+    private final BlockingQueue<JournalRecord> backlog;
+    private final Map<String, TransactionResponse> pendingTransactions = new ConcurrentHashMap<>();
+    private final Map<String, IdempotencyRow> pendingKeys = new ConcurrentHashMap<>();
+    private final List<JournalSegment> segments = new ArrayList<>();
+    private final List<JournalRecord> unflushed = new ArrayList<>();
+
+    private Path directory;
+    private JournalSegment current;
+    private volatile long nextSequence = 1;
+    private long lastAcceptedAtMillis;
+    private volatile long appendedSequence;
+    private volatile long projectedSequence;
+    private volatile boolean failed;
+    private volatile boolean running;
+    private Thread appenderThread;
+    private Thread projectorThread;
+    private Timer flushTimer;
+    private Counter projectionFailures;
+
+    public TransactionJournal(JournalProperties properties,
+                              JournalProjector projector,
+                              AccountCache accountCache,
+                              AccountRepository accountRepository,
+                              IdempotencyCache idempotencyCache,
+                              MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.projector = projector;
+        this.accountCache = accountCache;
+        this.accountRepository = accountRepository;
+        this.idempotencyCache = idempotencyCache;
+        this.meterRegistry = meterRegistry;
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        this.backlog = new ArrayBlockingQueue<>(properties.getProjectorBacklog());
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        directory = Paths.get(properties.getDirectory());
+        Files.createDirectories(directory);
+        recover();
+        current = JournalSegment.create(directory, nextSequence, properties.getSegmentSize());
+        segments.add(current);
+
+        flushTimer = Timer.builder("ledger.journal.flush").register(meterRegistry);
+        projectionFailures = Counter.builder("ledger.journal.projection.failures").register(meterRegistry);
+        Gauge.builder("ledger.journal.lag", this, journal -> journal.appendedSequence - journal.projectedSequence)
+            .register(meterRegistry);
+
+        running = true;
+        appenderThread = new Thread(this::appendLoop, "ledger-journal-appender");
+        appenderThread.setDaemon(true);
+        appenderThread.start();
+        projectorThread = new Thread(this::projectLoop, "ledger-journal-projector");
+        projectorThread.setDaemon(true);
+        projectorThread.start();
+        log.info("journal enabled in {} (next sequence {}, max batch {}, max wait {})",
+            directory.toAbsolutePath(), nextSequence, properties.getMaxBatchSize(), properties.getMaxWait());
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException, IOException {
+        if (appenderThread == null) {
+            return;
+        }
+        running = false;
+        appenderThread.join(TimeUnit.SECONDS.toMillis(10));
+        failQueued();
+        projectorThread.join(TimeUnit.SECONDS.toMillis(30));
+        synchronized (segments) {
+            current.close();
+        }
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Queues {@code work} for the appender thread and blocks until the records it appended are
+     * durable. Exceptions thrown by {@code work} are rethrown to the caller unchanged.
+     */
+    public <T> T submit(Supplier<T> work) {
+        if (failed || !running) {
+            throw journalUnavailable();
+        }
+        PendingAppend<T> pending = new PendingAppend<>(work);
+        try {
+            boolean accepted = queue.offer(pending, properties.getOfferTimeout().toMillis(), TimeUnit.MILLISECONDS);
+            if (!accepted) {
+                throw new ApiException(HttpStatus.SERVICE_UNAVAILABLE, "writer_overloaded", "write queue is full");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ApiException(HttpStatus.SERVICE_UNAVAILABLE, "writer_overloaded", "interrupted while queueing write");
+        }
+        // The appender may have stopped and failed the queue between the check above and the offer.
+        if (!running && queue.remove(pending)) {
+            throw journalUnavailable();
+        }
+        return pending.await();
+    }
+
+    /**
+     * Appends the rows of one posting or batch. Only called by work running on the appender thread,
+     * after every check of the posting has passed.
+     */
+    public void append(List<TransactionRow> transactions,
+                       List<EntryRow> entries,
+                       Map<String, Long> balanceDeltas,
+                       List<IdempotencyRow> idempotencyKeys,
+                       Map<String, TransactionResponse> responses) {
+        if (failed) {
+            throw journalUnavailable();
+        }
+        lastAcceptedAtMillis = Math.max(lastAcceptedAtMillis, System.currentTimeMillis());
+        JournalRecord record = new JournalRecord(nextSequence, lastAcceptedAtMillis,
+            List.copyOf(transactions), List.copyOf(entries), Map.copyOf(balanceDeltas), List.copyOf(idempotencyKeys));
+        byte[] payload = record.encode();
+        if (!JournalSegment.fitsEmpty(properties.getSegmentSize(), payload.length)) {
+            throw new ApiException(HttpStatus.PAYLOAD_TOO_LARGE, "journal_record_too_large",
+                "posting does not fit in a journal segment");
+        }
+        try {
+            if (!current.fits(payload.length)) {
+                roll();
+            }
+        } catch (IOException | RuntimeException ex) {
+            fail(ex);
+            throw journalUnavailable();
+        }
+        current.append(payload);
+        nextSequence++;
+        unflushed.add(record);
+        pendingTransactions.putAll(responses);
+        for (IdempotencyRow key : idempotencyKeys) {
+            pendingKeys.put(key.key(), key);
+        }
+    }
+
+    /**
+     * The response of a transaction that is journaled but not yet in the tables.
+     */
+    public Optional<TransactionResponse> findPending(String transactionId) {
+        return Optional.ofNullable(pendingTransactions.get(transactionId));
+    }
+
+    /**
+     * An idempotency key that is journaled but not yet in the tables.
+     */
+    public Optional<IdempotencyRow> findPendingKey(String key) {
+        return Optional.ofNullable(pendingKeys.get(key));
+    }
+
+    /**
+     * Live view of the idempotency keys journaled but not yet in the tables.
+     */
+    public Set<String> pendingKeys() {
+        return Collections.unmodifiableSet(pendingKeys.keySet());
+    }
+
+    /**
+     * Sequence of the last record appended, durable or not; 0 when the journal is disabled or empty.
+     * The account cache reflects it once the record is durable, before it is projected.
+     */
+    public long acceptedSequence() {
+        return nextSequence - 1;
+    }
+
+    /**
+     * Sequence of the last record applied to the tables.
+     */
+    public long projectedSequence() {
+        return projectedSequence;
+    }
+
+    private void appendLoop() {
+        List<PendingAppend<?>> batch = new ArrayList<>(properties.getMaxBatchSize());
+        while (running) {
+            try {
+                PendingAppend<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + properties.getMaxWait().toNanos();
+                while (batch.size() < properties.getMaxBatchSize()) {
+                    PendingAppend<?> next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                appendBatch(batch);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                running = false;
+                batch.forEach(pending -> pending.fail(journalUnavailable()));
+            } catch (Throwable ex) {
+                // What reached the segment is unknown, so stop rather than append after it.
+                fail(ex);
+                batch.forEach(pending -> pending.fail(ex));
+            } finally {
+                batch.clear();
+            }
+        }
+        failQueued();
+    }
+
+    // Cache changes made by the batch are visible to the rest of the batch only until it is durable,
+    // and are published before its records reach the projector, so a projected record is always in
+    // the caches. A batch that fails to flush is discarded from them.
+    private void appendBatch(List<PendingAppend<?>> batch) throws InterruptedException {
+        accountCache.beginStaging();
+        idempotencyCache.beginStaging();
+        boolean published = false;
+        try {
+            for (PendingAppend<?> pending : batch) {
+                pending.apply();
+            }
+            Throwable flushFailure = null;
+            try {
+                if (!unflushed.isEmpty()) {
+                    flushFailure = flush();
+                }
+                if (flushFailure == null) {
+                    accountCache.publishStaged();
+                    idempotencyCache.publishStaged();
+                    published = true;
+                    enqueueForProjection(unflushed);
+                }
+            } finally {
+                unflushed.clear();
+            }
+            for (PendingAppend<?> pending : batch) {
+                pending.complete(flushFailure);
+            }
+        } finally {
+            if (!published) {
+                accountCache.discardStaged();
+                idempotencyCache.discardStaged();
+            }
+        }
+    }
+
+    private Throwable flush() {
+        long started = System.nanoTime();
+        try {
+            synchronized (segments) {
+                current.flush();
+            }
+        } catch (Throwable ex) {
+            fail(ex);
+            return journalUnavailable();
+        }
+        flushTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        appendedSequence = unflushed.get(unflushed.size() - 1).sequence();
+        return null;
+    }
+
+    // The records are durable by now, so their callers are acknowledged either way; a backlog that
+    // stays full means the projector is stuck, and whatever did not fit is replayed on restart.
+    private void enqueueForProjection(List<JournalRecord> records) throws InterruptedException {
+        long timeout = properties.getProjectorBacklogTimeout().toMillis();
+        for (JournalRecord record : records) {
+            if (!backlog.offer(record, timeout, TimeUnit.MILLISECONDS)) {
+                fail(new IllegalStateException("projector backlog full for " + properties.getProjectorBacklogTimeout()
+                    + " at journal record " + record.sequence()));
+                return;
+            }
+        }
+    }
+
+    private void failQueued() {
+        List<PendingAppend<?>> left = new ArrayList<>();
+        queue.drainTo(left);
+        if (!left.isEmpty()) {
+            log.warn("journal appender stopped with {} postings queued", left.size());
+            left.forEach(pending -> pending.fail(journalUnavailable()));
+        }
+    }
+
+    private void roll() throws IOException {
+        JournalSegment next = JournalSegment.create(directory, nextSequence, properties.getSegmentSize());
+        synchronized (segments) {
+            current.close();
+            segments.add(next);
+            current = next;
+        }
+    }
+
+    private void projectLoop() {
+        List<JournalRecord> batch = new ArrayList<>(properties.getProjectorBatchSize());
+        while (running || appenderThread.isAlive() || !backlog.isEmpty()) {
+            try {
+                JournalRecord first = backlog.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                backlog.drainTo(batch, properties.getProjectorBatchSize() - 1);
+                if (!project(batch)) {
+                    return;
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Applies {@code batch}, retrying once a second. Gives up on shutdown, or after
+     * {@code projection-attempts} failures by stopping the journal, and leaves the records to be
+     * replayed on the next start.
+     */
+    private boolean project(List<JournalRecord> batch) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                projector.apply(batch);
+                afterProjected(batch);
+                return true;
+            } catch (Throwable ex) {
+                projectionFailures.increment();
+                long first = batch.get(0).sequence();
+                long last = batch.get(batch.size() - 1).sequence();
+                if (attempt >= properties.getProjectionAttempts()) {
+                    log.error("projecting journal records {}..{} failed {} times; giving up", first, last, attempt, ex);
+                    fail(ex);
+                    return false;
+                }
+                log.error("projecting journal records {}..{} failed; retrying", first, last, ex);
+                if (!running) {
+                    return false;
+                }
+                TimeUnit.SECONDS.sleep(1);
+            }
+        }
+    }
+
+    private void afterProjected(List<JournalRecord> batch) {
+        for (JournalRecord record : batch) {
+            for (TransactionRow transaction : record.transactions()) {
+                pendingTransactions.remove(transaction.id());
+            }
+            for (IdempotencyRow key : record.idempotencyKeys()) {
+                pendingKeys.remove(key.key());
+            }
+        }
+        projectedSequence = batch.get(batch.size() - 1).sequence();
+        deleteProjectedSegments();
+    }
+
+    // A segment can go once the segment after it starts at or before the first unprojected record.
+    private void deleteProjectedSegments() {
+        synchronized (segments) {
+            while (segments.size() > 1 && segments.get(1).firstSequence() <= projectedSequence + 1) {
+                JournalSegment segment = segments.remove(0);
+                try {
+                    segment.delete();
+                } catch (IOException ex) {
+                    log.warn("could not delete journal segment {}", segment, ex);
+                }
+            }
+        }
+    }
+
+    private void recover() throws IOException {
+        long applied = projector.appliedSequence();
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(path -> path.getFileName().toString().endsWith(JournalSegment.SUFFIX)).sorted().toList();
+        }
+
+        Recovery recovery = new Recovery(applied);
+        for (Path file : files) {
+            JournalSegment segment = JournalSegment.existing(file);
+            long validBytes = segment.read(recovery::accept);
+            log.debug("read {} valid bytes from journal segment {}", validBytes, file);
+        }
+        recovery.flush();
+        for (String accountId : recovery.accounts) {
+            accountRepository.findById(accountId).ifPresent(accountCache::replace);
+        }
+        for (String key : recovery.keys) {
+            idempotencyCache.rememberKey(key);
+        }
+        for (Path file : files) {
+            Files.delete(file);
+        }
+        synchronized (segments) {
+            segments.clear();
+        }
+
+        nextSequence = recovery.lastSequence + 1;
+        lastAcceptedAtMillis = recovery.lastAcceptedAtMillis;
+        appendedSequence = recovery.lastSequence;
+        projectedSequence = recovery.lastSequence;
+        if (recovery.replayed > 0) {
+            log.info("replayed {} journal records after sequence {}", recovery.replayed, applied);
+        }
+    }
+
+    private void fail(Throwable ex) {
+        failed = true;
+        log.error("journal write failed; rejecting writes until restart", ex);
+    }
+
+    private static ApiException journalUnavailable() {
+        return new ApiException(HttpStatus.SERVICE_UNAVAILABLE, "journal_unavailable", "journal is not accepting writes");
+    }
+
+    /**
+     * Replays the records after the applied sequence in projector-sized batches as they are read.
+     */
+    private final class Recovery {
+        private final List<JournalRecord> batch = new ArrayList<>();
+        private final Set<String> accounts = new HashSet<>();
+        private final List<String> keys = new ArrayList<>();
+        private long lastSequence;
+        private long lastAcceptedAtMillis;
+        private long replayed;
+
+        private Recovery(long applied) {
+            this.lastSequence = applied;
+        }
+
+        private void accept(JournalRecord record) {
+            lastAcceptedAtMillis = Math.max(lastAcceptedAtMillis, record.acceptedAtMillis());
+            if (record.sequence() <= lastSequence) {
+                return;
+            }
+            if (record.sequence() != lastSequence + 1) {
+                throw new IllegalStateException("journal is missing records " + (lastSequence + 1) + ".." + (record.sequence() - 1));
+            }
+            batch.add(record);
+            accounts.addAll(record.balanceDeltas().keySet());
+            record.idempotencyKeys().forEach(key -> keys.add(key.key()));
+            lastSequence = record.sequence();
+            replayed++;
+            if (batch.size() >= properties.getProjectorBatchSize()) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            projector.apply(batch);
+            batch.clear();
+        }
+    }
+
+    private static final class PendingAppend<T> {
+        private final Supplier<T> work;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private T result;
+        private Throwable failure;
+
+        private PendingAppend(Supplier<T> work) {
+            this.work = work;
+        }
+
+        private void apply() {
+            try {
+                result = work.get();
+            } catch (Throwable ex) {
+                failure = ex;
+            }
+        }
+
+        private void fail(Throwable ex) {
+            future.completeExceptionally(ex);
+        }
+
+        private void complete(Throwable flushFailure) {
+            if (failure != null) {
+                future.completeExceptionally(failure);
+            } else if (flushFailure != null) {
+                future.completeExceptionally(flushFailure);
+            } else {
+                future.complete(result);
+            }
+        }
+
+        private T await() {
+            try {
+                return future.join();
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                if (ex.getCause() instanceof Error cause) {
+                    throw cause;
+                }
+                throw ex;
+            }
+        }
+    }
+}
@@ -1,91 +1,267 @@
 package com.example.ledger.service;
 
+import com.example.ledger.api.BatchItemResult;
+import com.example.ledger.api.BatchTransactionItem;
+import com.example.ledger.api.BatchTransactionRequest;
+import com.example.ledger.api.BatchTransactionResponse;
 import com.example.ledger.api.EntryRequest;
 import com.example.ledger.api.EntryResponse;
 import com.example.ledger.api.TransactionRequest;
 import com.example.ledger.api.TransactionResponse;
+import com.example.ledger.config.TransactionBatchProperties;
 import com.example.ledger.domain.BalanceEntry;
 import com.example.ledger.domain.BalanceValidator;
 import com.example.ledger.domain.Direction;
+import com.example.ledger.domain.IdGenerator;
 import com.example.ledger.domain.UnbalancedTransactionException;
 import com.example.ledger.exception.ApiException;
 import com.example.ledger.repository.AccountRepository;
+import com.example.ledger.repository.ArchiveRepository;
 import com.example.ledger.repository.EntryRepository;
 import com.example.ledger.repository.IdempotencyRepository;
 import com.example.ledger.repository.TransactionRepository;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.Set;
+import java.util.function.Supplier;
 
 @Service
 public class TransactionService {
     private final TransactionRepository transactionRepository;
     private final EntryRepository entryRepository;
-    private final AccountRepository accountRepository;
     private final IdempotencyRepository idempotencyRepository;
+    private final IdempotencyCache idempotencyCache;
+    private final LedgerArchive ledgerArchive;
+    private final AccountCache accountCache;
+    private final AccountLockManager accountLockManager;
+    private final AccountShards accountShards;
+    private final AccountCheckpointWriter accountCheckpointWriter;
+    private final GroupCommitWriter groupCommitWriter;
+    private final TransactionJournal journal;
+    private final RequestHasher requestHasher;
+    private final TransactionBatchProperties batchProperties;
+    private final PostingMetrics postingMetrics;
+    private final IdGenerator idGenerator;
+    private final TransactionTemplate transactionTemplate;
 
     public TransactionService(TransactionRepository transactionRepository,
                               EntryRepository entryRepository,
-                              AccountRepository accountRepository,
-                              IdempotencyRepository idempotencyRepository) {
+                              IdempotencyRepository idempotencyRepository,
+                              IdempotencyCache idempotencyCache,
+                              LedgerArchive ledgerArchive,
+                              AccountCache accountCache,
+                              AccountLockManager accountLockManager,
+                              AccountShards accountShards,
+                              AccountCheckpointWriter accountCheckpointWriter,
+                              GroupCommitWriter groupCommitWriter,
+                              TransactionJournal journal,
+                              RequestHasher requestHasher,
+                              TransactionBatchProperties batchProperties,
+                              PostingMetrics postingMetrics,
+                              IdGenerator idGenerator,
+                              PlatformTransactionManager transactionManager) {
         this.transactionRepository = transactionRepository;
         this.entryRepository = entryRepository;
-        this.accountRepository = accountRepository;
         this.idempotencyRepository = idempotencyRepository;
+        this.idempotencyCache = idempotencyCache;
+        this.ledgerArchive = ledgerArchive;
+        this.accountCache = accountCache;
+        this.accountLockManager = accountLockManager;
+        this.accountShards = accountShards;
+        this.accountCheckpointWriter = accountCheckpointWriter;
+        this.groupCommitWriter = groupCommitWriter;
+        this.journal = journal;
+        this.requestHasher = requestHasher;
+        this.batchProperties = batchProperties;
+        this.postingMetrics = postingMetrics;
+        this.idGenerator = idGenerator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
-    @Transactional
+    /**
+     * Posts one transaction. Each phase is timed by {@link PostingMetrics}.
+     */
     public TransactionResponse create(TransactionRequest request, String idempotencyKey) {
         List<EntryRequest> entries = request.getEntries();
 
+        long started = System.nanoTime();
         validateBalanced(entries);
+        List<String> accountIds = distinctAccountIds(entries);
+        boolean idempotent = idempotencyKey != null && !idempotencyKey.isBlank();
+        String hash = idempotent ? requestHasher.hash(request.getId(), request.getName(), entries) : null;
+        postingMetrics.record(PostingMetrics.Phase.VALIDATION, System.nanoTime() - started);
 
-        String requestId = request.getId();
-        if (idempotencyKey != null && !idempotencyKey.isBlank()) {
-            String hash = computeRequestHash(requestId, request.getName(), entries);
-            Optional<IdempotencyRepository.IdempotencyRow> existing = idempotencyRepository.findByKey(idempotencyKey);
-            if (existing.isPresent()) {
-                IdempotencyRepository.IdempotencyRow row = existing.get();
-                if (!row.requestHash().equals(hash)) {
-                    throw new ApiException(HttpStatus.CONFLICT, "idempotency_conflict", "idempotency key reused with different payload");
-                }
-                return fetchResponse(row.transactionId());
-            }
-            String transactionId = requestId == null ? UUID.randomUUID().toString() : requestId;
-            return createTransactionWithIdempotency(transactionId, request, hash, idempotencyKey);
+        if (idempotent) {
+            return inTimedWriteTransaction(accountIds, () -> createIdempotent(request, accountIds, idempotencyKey, hash));
         }
-
-        String transactionId = requestId == null ? UUID.randomUUID().toString() : requestId;
-        return createTransaction(transactionId, request);
+        return inTimedWriteTransaction(accountIds, () -> createTransaction(transactionIdFor(request), request, accountIds));
     }
 
-    private TransactionResponse createTransactionWithIdempotency(String transactionId, TransactionRequest request, String hash, String key) {
-        TransactionResponse response = createTransaction(transactionId, request);
-        idempotencyRepository.insert(new IdempotencyRepository.IdempotencyRow(key, hash, transactionId));
+    /**
+     * {@link #inWriteTransaction} that also records how long the caller waited after {@code work}
+     * finished, which is the commit phase whichever way the write is made durable.
+     */
+    private TransactionResponse inTimedWriteTransaction(List<String> accountIds, Supplier<TransactionResponse> work) {
+        long[] workDone = new long[1];
+        TransactionResponse response = inWriteTransaction(accountIds, () -> {
+            TransactionResponse result = work.get();
+            workDone[0] = System.nanoTime();
+            return result;
+        });
+        postingMetrics.record(PostingMetrics.Phase.COMMIT, System.nanoTime() - workDone[0]);
         return response;
     }
 
-    private TransactionResponse createTransaction(String transactionId, TransactionRequest request) {
-        Optional<TransactionRepository.TransactionRow> existing = transactionRepository.findById(transactionId);
+    /**
+     * Runs {@code work} in a write transaction. With the journal enabled it runs on the journal's
+     * appender thread instead, outside any database transaction, and its rows are appended to the
+     * journal. With group commit enabled it is queued behind the single writer thread, which already
+     * serializes every posting. Otherwise it runs on the calling thread in a transaction of its own
+     * while holding the stripes of {@code accountIds}, released only after the commit has been
+     * published to the account cache. Sharded accounts are not locked.
+     */
+    private <T> T inWriteTransaction(List<String> accountIds, Supplier<T> work) {
+        if (journal.isEnabled()) {
+            return journal.submit(work);
+        }
+        if (groupCommitWriter.isEnabled()) {
+            return groupCommitWriter.submit(work);
+        }
+        AccountLockManager.Locked locked = accountLockManager.lock(accountShards.lockedAccounts(accountIds));
+        try {
+            return transactionTemplate.execute(status -> work.get());
+        } finally {
+            locked.close();
+        }
+    }
+
+    private TransactionResponse createIdempotent(TransactionRequest request, List<String> accountIds, String idempotencyKey, String hash) {
+        Optional<TransactionResponse> replayed = postingMetrics.time(PostingMetrics.Phase.IDEMPOTENCY_LOOKUP,
+            () -> findReplay(request, idempotencyKey, hash));
+        if (replayed.isPresent()) {
+            return replayed.get();
+        }
+        return createTransactionWithIdempotency(transactionIdFor(request), request, accountIds, hash, idempotencyKey);
+    }
+
+    /**
+     * The earlier response for {@code idempotencyKey}, or empty when the key has not been used.
+     */
+    private Optional<TransactionResponse> findReplay(TransactionRequest request, String idempotencyKey, String hash) {
+        IdempotencyCache.CachedResult cached = idempotencyCache.get(idempotencyKey);
+        if (cached != null) {
+            if (!requestHasher.matches(cached.requestHash(), hash, request.getId(), request.getName(), request.getEntries())) {
+                throw idempotencyConflict();
+            }
+            return Optional.of(cached.response());
+        }
+        Optional<IdempotencyRepository.IdempotencyRow> existing = findKey(idempotencyKey);
         if (existing.isPresent()) {
-            throw new ApiException(HttpStatus.CONFLICT, "transaction_exists", "transaction already exists");
+            IdempotencyRepository.IdempotencyRow row = existing.get();
+            if (!requestHasher.matches(row.requestHash(), hash, request.getId(), request.getName(), request.getEntries())) {
+                throw idempotencyConflict();
+            }
+            TransactionResponse response = fetchResponse(row.transactionId());
+            idempotencyCache.cacheAfterCommit(idempotencyKey, row.requestHash(), response);
+            return Optional.of(response);
+        }
+        return Optional.empty();
+    }
+
+    private String transactionIdFor(TransactionRequest request) {
+        return request.getId() == null ? idGenerator.next() : request.getId();
+    }
+
+    private TransactionResponse createTransactionWithIdempotency(String transactionId,
+                                                                 TransactionRequest request,
+                                                                 List<String> accountIds,
+                                                                 String hash,
+                                                                 String key) {
+        return createTransaction(transactionId, request, accountIds, new IdempotencyRepository.IdempotencyRow(key, hash, transactionId));
+    }
+
+    private TransactionResponse createTransaction(String transactionId, TransactionRequest request, List<String> accountIds) {
+        return createTransaction(transactionId, request, accountIds, null);
+    }
+
+    private TransactionResponse createTransaction(String transactionId,
+                                                  TransactionRequest request,
+                                                  List<String> accountIds,
+                                                  IdempotencyRepository.IdempotencyRow idempotencyRow) {
+        // Generated ids are new by construction; only an id chosen by the client can be an archived one.
+        boolean exists = postingMetrics.time(PostingMetrics.Phase.DUPLICATE_CHECK,
+            () -> journal.findPending(transactionId).isPresent() || transactionRepository.findById(transactionId).isPresent()
+                || request.getId() != null && ledgerArchive.containsTransaction(transactionId));
+        if (exists) {
+            throw transactionExists();
+        }
+
+        PreparedPosting posting = postingMetrics.time(PostingMetrics.Phase.ACCOUNT_LOAD,
+            () -> preparePosting(transactionId, request, accountIds, Map.of()));
+
+        if (journal.isEnabled()) {
+            postingMetrics.time(PostingMetrics.Phase.ENTRY_INSERT, () -> journal.append(
+                List.of(posting.transaction()), posting.entries(), posting.balanceDeltas(),
+                idempotencyRow == null ? List.of() : List.of(idempotencyRow),
+                Map.of(transactionId, posting.response())));
+        } else {
+            writePosting(posting, idempotencyRow);
+        }
+
+        // Last steps on purpose: nothing after this point can fail and leave staged changes behind.
+        accountCache.stageBalanceDeltas(posting.balanceDeltas());
+        if (idempotencyRow != null) {
+            idempotencyCache.recordInserted(idempotencyRow.key(), idempotencyRow.requestHash(), posting.response());
         }
 
-        Map<String, AccountRepository.AccountRow> accounts = loadAccounts(request.getEntries());
-        Map<String, Long> newBalances = new HashMap<>();
+        return posting.response();
+    }
+
+    private void writePosting(PreparedPosting posting, IdempotencyRepository.IdempotencyRow idempotencyRow) {
+        postingMetrics.time(PostingMetrics.Phase.ENTRY_INSERT, () -> {
+            transactionRepository.insert(posting.transaction());
+            entryRepository.insertAll(posting.entries());
+        });
+        postingMetrics.time(PostingMetrics.Phase.BALANCE_UPDATE, () -> {
+            accountShards.applyBalanceDeltas(posting.balanceDeltas());
+            accountCheckpointWriter.afterEntriesInserted(entryCounts(posting.entries()));
+        });
+
+        if (idempotencyRow != null) {
+            postingMetrics.time(PostingMetrics.Phase.IDEMPOTENCY_INSERT, () -> idempotencyRepository.insert(idempotencyRow));
+        }
+    }
+
+    /**
+     * Resolves accounts and builds the rows and balance deltas of a posting without writing anything.
+     * <p>
+     * Accounts with a floor or ceiling are checked here against their cached balance plus
+     * {@code inFlightDeltas}, the deltas of earlier postings of the same batch, so a posting that
+     * would break a limit is rejected without reading the table. The guarded balance update is the
+     * backstop.
+     */
+    private PreparedPosting preparePosting(String transactionId,
+                                           TransactionRequest request,
+                                           List<String> accountIds,
+                                           Map<String, Long> inFlightDeltas) {
+        Map<String, AccountRepository.AccountRow> accounts = loadAccounts(accountIds);
+        Map<String, Long> balanceDeltas = new HashMap<>();
 
-        List<EntryResponse> entryResponses = new ArrayList<>();
+        List<EntryRepository.EntryRow> entryRows = new ArrayList<>(request.getEntries().size());
+        List<EntryResponse> entryResponses = new ArrayList<>(request.getEntries().size());
         for (EntryRequest entry : request.getEntries()) {
-            String entryId = entry.getId() == null ? UUID.randomUUID().toString() : entry.getId();
+            String entryId = entry.getId() == null ? idGenerator.next() : entry.getId();
             Direction entryDirection = Direction.from(entry.getDirection());
             long amount = entry.getAmount();
             if (amount <= 0) {
@@ -93,31 +269,203 @@ public class TransactionService {
             }
 
             AccountRepository.AccountRow account = accounts.get(entry.getAccountId());
-            long currentBalance = newBalances.getOrDefault(account.id(), account.balance());
             long delta = entryDirection == account.direction() ? amount : -amount;
-            long updatedBalance = Math.addExact(currentBalance, delta);
-            newBalances.put(account.id(), updatedBalance);
+            balanceDeltas.merge(account.id(), delta, Math::addExact);
 
+            entryRows.add(new EntryRepository.EntryRow(entryId, transactionId, entry.getAccountId(), entryDirection, amount));
             entryResponses.add(new EntryResponse(entryId, entry.getAccountId(), entryDirection.value(), amount));
         }
+        balanceDeltas.forEach((accountId, delta) -> {
+            AccountRepository.AccountRow account = accounts.get(accountId);
+            if (account.hasLimits()) {
+                long newBalance = Math.addExact(account.balance(), Math.addExact(inFlightDeltas.getOrDefault(accountId, 0L), delta));
+                if (!account.allows(newBalance)) {
+                    throw balanceLimitExceeded(accountId);
+                }
+            }
+        });
+
+        return new PreparedPosting(
+            new TransactionRepository.TransactionRow(transactionId, request.getName()),
+            entryRows,
+            balanceDeltas,
+            new TransactionResponse(transactionId, request.getName(), entryResponses)
+        );
+    }
+
+    /**
+     * Posts a list of transactions in one write transaction using JDBC batch statements.
+     * <p>
+     * Every transaction goes through the same validation and idempotency rules as a single post.
+     * An atomic batch is written only if every transaction in it is valid; otherwise the valid ones
+     * are written and each transaction reports its own outcome.
+     */
+    public BatchTransactionResponse createBatch(BatchTransactionRequest request) {
+        List<BatchTransactionItem> items = request.getTransactions();
+        if (items.size() > batchProperties.getMaxSize()) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "batch_too_large",
+                "batch exceeds " + batchProperties.getMaxSize() + " transactions");
+        }
+
+        BatchItemResult[] results = new BatchItemResult[items.size()];
+        List<BatchCandidate> candidates = new ArrayList<>(items.size());
+        Set<String> accountIds = new LinkedHashSet<>();
+        for (int index = 0; index < items.size(); index++) {
+            BatchTransactionItem item = items.get(index);
+            try {
+                validateBalanced(item.getEntries());
+                List<String> itemAccountIds = distinctAccountIds(item.getEntries());
+                String key = item.getIdempotencyKey();
+                String hash = key == null || key.isBlank() ? null : requestHasher.hash(item.getId(), item.getName(), item.getEntries());
+                candidates.add(new BatchCandidate(index, item, itemAccountIds, hash == null ? null : key, hash));
+                accountIds.addAll(itemAccountIds);
+            } catch (ApiException | IllegalArgumentException ex) {
+                results[index] = failedItem(index, ex);
+            }
+        }
+
+        if (request.isAtomic() && candidates.size() < items.size()) {
+            return rejectedBatch(results);
+        }
+        return inWriteTransaction(List.copyOf(accountIds), () -> applyBatch(candidates, results, request.isAtomic()));
+    }
+
+    private BatchTransactionResponse applyBatch(List<BatchCandidate> candidates, BatchItemResult[] results, boolean atomic) {
+        Map<String, IdempotencyCache.CachedResult> cachedKeys = new HashMap<>();
+        Set<String> uncachedKeys = new LinkedHashSet<>();
+        for (BatchCandidate candidate : candidates) {
+            String key = candidate.idempotencyKey();
+            if (key == null || cachedKeys.containsKey(key) || uncachedKeys.contains(key)) {
+                continue;
+            }
+            IdempotencyCache.CachedResult cached = idempotencyCache.get(key);
+            if (cached != null) {
+                cachedKeys.put(key, cached);
+            } else {
+                uncachedKeys.add(key);
+            }
+        }
+        // Journaled rows are looked up before the tables: the projector removes them only once they are in the tables.
+        Map<String, IdempotencyRepository.IdempotencyRow> knownKeys = new HashMap<>();
+        for (String key : uncachedKeys) {
+            journal.findPendingKey(key).ifPresent(row -> knownKeys.put(key, row));
+        }
+        uncachedKeys.removeAll(knownKeys.keySet());
+        knownKeys.putAll(idempotencyCache.findByKeys(uncachedKeys));
+        List<String> requestedIds = candidates.stream().map(candidate -> candidate.item().getId()).filter(Objects::nonNull).distinct().toList();
+        Set<String> existingIds = new HashSet<>();
+        requestedIds.stream().filter(id -> journal.findPending(id).isPresent()).forEach(existingIds::add);
+        existingIds.addAll(transactionRepository.findExistingIds(requestedIds));
+        existingIds.addAll(ledgerArchive.findExistingTransactionIds(
+            requestedIds.stream().filter(id -> !existingIds.contains(id)).toList()));
+
+        List<TransactionRepository.TransactionRow> transactionRows = new ArrayList<>();
+        List<EntryRepository.EntryRow> entryRows = new ArrayList<>();
+        List<IdempotencyRepository.IdempotencyRow> keyRows = new ArrayList<>();
+        Map<String, Long> balanceDeltas = new HashMap<>();
+        Map<String, TransactionResponse> createdInBatch = new HashMap<>();
+        boolean failed = false;
+
+        for (BatchCandidate candidate : candidates) {
+            int index = candidate.index();
+            try {
+                String key = candidate.idempotencyKey();
+                IdempotencyCache.CachedResult cached = key == null ? null : cachedKeys.get(key);
+                if (cached != null) {
+                    BatchTransactionItem item = candidate.item();
+                    if (!requestHasher.matches(cached.requestHash(), candidate.requestHash(), item.getId(), item.getName(), item.getEntries())) {
+                        throw idempotencyConflict();
+                    }
+                    results[index] = BatchItemResult.replayed(index, cached.response());
+                    continue;
+                }
+                IdempotencyRepository.IdempotencyRow known = key == null ? null : knownKeys.get(key);
+                if (known != null) {
+                    BatchTransactionItem item = candidate.item();
+                    if (!requestHasher.matches(known.requestHash(), candidate.requestHash(), item.getId(), item.getName(), item.getEntries())) {
+                        throw idempotencyConflict();
+                    }
+                    TransactionResponse earlier = createdInBatch.get(known.transactionId());
+                    results[index] = BatchItemResult.replayed(index, earlier != null ? earlier : fetchResponse(known.transactionId()));
+                    continue;
+                }
+
+                String transactionId = transactionIdFor(candidate.item());
+                if (existingIds.contains(transactionId) || createdInBatch.containsKey(transactionId)) {
+                    throw transactionExists();
+                }
+                PreparedPosting posting = preparePosting(transactionId, candidate.item(), candidate.accountIds(), balanceDeltas);
+
+                transactionRows.add(posting.transaction());
+                entryRows.addAll(posting.entries());
+                posting.balanceDeltas().forEach((accountId, delta) -> balanceDeltas.merge(accountId, delta, Math::addExact));
+                if (key != null) {
+                    IdempotencyRepository.IdempotencyRow keyRow = new IdempotencyRepository.IdempotencyRow(key, candidate.requestHash(), transactionId);
+                    keyRows.add(keyRow);
+                    knownKeys.put(key, keyRow);
+                }
+                createdInBatch.put(transactionId, posting.response());
+                results[index] = BatchItemResult.created(index, posting.response());
+            } catch (ApiException | IllegalArgumentException ex) {
+                results[index] = failedItem(index, ex);
+                failed = true;
+            }
+        }
+
+        if (atomic && failed) {
+            return rejectedBatch(results);
+        }
+
+        if (journal.isEnabled()) {
+            if (!transactionRows.isEmpty()) {
+                journal.append(transactionRows, entryRows, balanceDeltas, keyRows, createdInBatch);
+            }
+        } else {
+            if (!transactionRows.isEmpty()) {
+                transactionRepository.insertAll(transactionRows);
+                entryRepository.insertAll(entryRows);
+                accountShards.applyBalanceDeltas(balanceDeltas);
+                accountCheckpointWriter.afterEntriesInserted(entryCounts(entryRows));
+            }
+            if (!keyRows.isEmpty()) {
+                idempotencyRepository.insertAll(keyRows);
+            }
+        }
+        accountCache.stageBalanceDeltas(balanceDeltas);
+        for (IdempotencyRepository.IdempotencyRow keyRow : keyRows) {
+            idempotencyCache.recordInserted(keyRow.key(), keyRow.requestHash(), createdInBatch.get(keyRow.transactionId()));
+        }
 
-        transactionRepository.insert(new TransactionRepository.TransactionRow(transactionId, request.getName()));
+        return new BatchTransactionResponse(true, List.of(results));
+    }
 
-        for (EntryResponse entry : entryResponses) {
-            entryRepository.insert(new EntryRepository.EntryRow(
-                entry.getId(),
-                transactionId,
-                entry.getAccountId(),
-                Direction.from(entry.getDirection()),
-                entry.getAmount()
-            ));
+    private static BatchTransactionResponse rejectedBatch(BatchItemResult[] results) {
+        for (int index = 0; index < results.length; index++) {
+            if (results[index] == null || !BatchItemResult.FAILED.equals(results[index].getStatus())) {
+                results[index] = BatchItemResult.notApplied(index);
+            }
         }
+        return new BatchTransactionResponse(false, List.of(results));
+    }
 
-        for (Map.Entry<String, Long> update : newBalances.entrySet()) {
-            accountRepository.updateBalance(update.getKey(), update.getValue());
+    private static BatchItemResult failedItem(int index, RuntimeException ex) {
+        if (ex instanceof ApiException apiException) {
+            return BatchItemResult.failed(index, apiException.getCode(), apiException.getMessage());
         }
+        return BatchItemResult.failed(index, "invalid_request", ex.getMessage());
+    }
+
+    private static ApiException transactionExists() {
+        return new ApiException(HttpStatus.CONFLICT, "transaction_exists", "transaction already exists");
+    }
+
+    static ApiException balanceLimitExceeded(String accountId) {
+        return new ApiException(HttpStatus.UNPROCESSABLE_ENTITY, "balance_limit_exceeded",
+            "posting would take account " + accountId + " outside its balance limits");
+    }
 
-        return new TransactionResponse(transactionId, request.getName(), entryResponses);
+    private static ApiException idempotencyConflict() {
+        return new ApiException(HttpStatus.CONFLICT, "idempotency_conflict", "idempotency key reused with different payload");
     }
 
     private void validateBalanced(List<EntryRequest> entries) {
@@ -131,52 +479,66 @@ public class TransactionService {
         }
     }
 
-    private Map<String, AccountRepository.AccountRow> loadAccounts(List<EntryRequest> entries) {
-        List<String> accountIds = entries.stream().map(EntryRequest::getAccountId).distinct().toList();
-        List<AccountRepository.AccountRow> accounts = accountRepository.findByIds(accountIds);
-        if (accounts.size() != accountIds.size()) {
-            throw new ApiException(HttpStatus.BAD_REQUEST, "account_missing", "one or more accounts do not exist");
+    private static Map<String, Integer> entryCounts(List<EntryRepository.EntryRow> entries) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (EntryRepository.EntryRow entry : entries) {
+            counts.merge(entry.accountId(), 1, Integer::sum);
         }
+        return counts;
+    }
+
+    private static List<String> distinctAccountIds(List<EntryRequest> entries) {
+        return entries.stream().map(EntryRequest::getAccountId).distinct().toList();
+    }
+
+    private Map<String, AccountRepository.AccountRow> loadAccounts(List<String> accountIds) {
         Map<String, AccountRepository.AccountRow> map = new HashMap<>();
-        for (AccountRepository.AccountRow account : accounts) {
+        for (String accountId : accountIds) {
+            AccountRepository.AccountRow account = accountCache.find(accountId)
+                .orElseThrow(() -> new ApiException(HttpStatus.BAD_REQUEST, "account_missing", "one or more accounts do not exist"));
             map.put(account.id(), account);
         }
         return map;
     }
 
+    private Optional<IdempotencyRepository.IdempotencyRow> findKey(String key) {
+        Optional<IdempotencyRepository.IdempotencyRow> pending = journal.findPendingKey(key);
+        return pending.isPresent() ? pending : idempotencyCache.findByKey(key);
+    }
+
     private TransactionResponse fetchResponse(String transactionId) {
-        TransactionRepository.TransactionRow transaction = transactionRepository.findById(transactionId)
-            .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "transaction_not_found", "transaction not found"));
-        List<EntryRepository.EntryRow> entries = entryRepository.findByTransactionId(transactionId);
+        Optional<TransactionResponse> pending = journal.findPending(transactionId);
+        if (pending.isPresent()) {
+            return pending.get();
+        }
+        Optional<TransactionRepository.TransactionRow> hot = transactionRepository.findById(transactionId);
+        TransactionRepository.TransactionRow transaction;
+        List<EntryRepository.EntryRow> entries;
+        if (hot.isPresent()) {
+            transaction = hot.get();
+            entries = entryRepository.findByTransactionId(transactionId);
+        } else {
+            ArchiveRepository.ArchivedTransaction archived = ledgerArchive.findTransaction(transactionId)
+                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "transaction_not_found", "transaction not found"));
+            transaction = archived.transaction();
+            entries = archived.entries();
+        }
         List<EntryResponse> responses = entries.stream()
             .map(entry -> new EntryResponse(entry.id(), entry.accountId(), entry.direction().value(), entry.amount()))
             .toList();
         return new TransactionResponse(transaction.id(), transaction.name(), responses);
     }
 
-    private String computeRequestHash(String transactionId, String name, List<EntryRequest> entries) {
-        StringBuilder builder = new StringBuilder();
-        builder.append(transactionId == null ? "" : transactionId).append('|').append(name == null ? "" : name).append('|');
-        for (EntryRequest entry : entries) {
-            builder.append(entry.getId() == null ? "" : entry.getId())
-                .append(',')
-                .append(entry.getAccountId())
-                .append(',')
-                .append(entry.getDirection())
-                .append(',')
-                .append(entry.getAmount())
-                .append(';');
-        }
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(builder.toString().getBytes(StandardCharsets.UTF_8));
-            StringBuilder hex = new StringBuilder();
-            for (byte b : hash) {
-                hex.append(String.format("%02x", b));
-            }
-            return hex.toString();
-        } catch (Exception ex) {
-            throw new IllegalStateException("unable to compute hash", ex);
-        }
+    private record PreparedPosting(TransactionRepository.TransactionRow transaction,
+                                   List<EntryRepository.EntryRow> entries,
+                                   Map<String, Long> balanceDeltas,
+                                   TransactionResponse response) {
+    }
+
+    private record BatchCandidate(int index,
+                                  BatchTransactionItem item,
+                                  List<String> accountIds,
+                                  String idempotencyKey,
+                                  String requestHash) {
     }
 }
@@ -0,0 +1,33 @@
+package com.example.ledger.service;
+
+import com.example.ledger.api.TrialBalanceResponse;
+import com.example.ledger.domain.Direction;
+import com.example.ledger.repository.TrialBalanceRepository;
+import com.example.ledger.repository.TrialBalanceRepository.Totals;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+
+/**
+ * Serves the trial balance from the {@code trial_balance} counters, which postings keep current in
+ * their own transaction (see {@link AccountShards#applyBalanceDeltas}), so a read is one two-row
+ * lookup however many accounts and entries there are.
+ */
+@Service
+public class TrialBalanceService {
+
+    private final TrialBalanceRepository repository;
+
+    public TrialBalanceService(TrialBalanceRepository repository) {
+        this.repository = repository;
+    }
+
+    public TrialBalanceResponse get() {
+        Map<Direction, Totals> totals = repository.findAll();
+        return new TrialBalanceResponse(toResponse(totals.get(Direction.DEBIT)), toResponse(totals.get(Direction.CREDIT)));
+    }
+
+    private static TrialBalanceResponse.DirectionTotals toResponse(Totals totals) {
+        return new TrialBalanceResponse.DirectionTotals(totals.accounts(), totals.balance());
+    }
+}
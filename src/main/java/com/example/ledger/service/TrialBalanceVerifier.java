@@ -0,0 +1,62 @@
+package com.example.ledger.service;
+
+import com.example.ledger.config.TrialBalanceProperties;
+import com.example.ledger.repository.TrialBalanceRepository;
+import com.example.ledger.repository.TrialBalanceRepository.Comparison;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Periodically recounts the trial balance from {@code accounts} and {@code account_shards} and
+ * compares it with the {@code trial_balance} counters. Both are read from one snapshot, so postings
+ * committed during the recount do not show up as drift.
+ */
+@Component
+@ConditionalOnProperty(prefix = "ledger.trial-balance.verify", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class TrialBalanceVerifier {
+    private static final Logger log = LoggerFactory.getLogger(TrialBalanceVerifier.class);
+
+    private final TrialBalanceRepository repository;
+    private final TrialBalanceProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter driftCounter;
+
+    public TrialBalanceVerifier(TrialBalanceRepository repository,
+                                TrialBalanceProperties properties,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.driftCounter = Counter.builder("ledger.trial_balance.drift").register(meterRegistry);
+    }
+
+    /**
+     * Returns whether the counters matched the recount.
+     */
+    @Scheduled(
+        initialDelayString = "${ledger.trial-balance.verify.interval:PT15M}",
+        fixedDelayString = "${ledger.trial-balance.verify.interval:PT15M}"
+    )
+    public boolean verify() {
+        Comparison comparison = repository.compare();
+        if (comparison.matches()) {
+            log.info("trial balance check finished: counters match {}", comparison.recounted().values());
+            return true;
+        }
+        driftCounter.increment();
+        log.warn("trial balance drift: counters={} recount={}", comparison.stored().values(), comparison.recounted().values());
+        if (properties.getVerify().isRepair()) {
+            transactionTemplate.executeWithoutResult(status -> repository.rebuild());
+            log.info("trial balance counters rebuilt");
+        }
+        return false;
+    }
+}
@@ -0,0 +1,4 @@
+CREATE INDEX IF NOT EXISTS idx_entries_transaction_covering
+    ON entries (transaction_id, id, account_id, direction, amount);
+
+CREATE INDEX IF NOT EXISTS idx_entries_account ON entries (account_id);
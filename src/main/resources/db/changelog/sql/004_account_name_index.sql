@@ -0,0 +1 @@
+CREATE INDEX IF NOT EXISTS idx_accounts_name_id ON accounts (IFNULL(name, ''), id);
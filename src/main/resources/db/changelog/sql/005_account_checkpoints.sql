@@ -0,0 +1,33 @@
+-- Balance of an account after every entry up to and including entry_rowid (entries.rowid).
+-- entry_rowid 0 is the opening balance the account was created with.
+CREATE TABLE IF NOT EXISTS account_checkpoints (
+    account_id TEXT NOT NULL,
+    entry_rowid INTEGER NOT NULL,
+    balance INTEGER NOT NULL,
+    PRIMARY KEY (account_id, entry_rowid),
+    FOREIGN KEY (account_id) REFERENCES accounts(id) ON DELETE RESTRICT
+) WITHOUT ROWID;
+
+INSERT OR IGNORE INTO account_checkpoints (account_id, entry_rowid, balance)
+SELECT a.id,
+       0,
+       a.balance - COALESCE((SELECT SUM(CASE WHEN e.direction = a.direction THEN e.amount ELSE -e.amount END)
+                             FROM entries e
+                             WHERE e.account_id = a.id), 0)
+FROM accounts a;
+
+-- Backfill a checkpoint every 1000 entries of existing history.
+INSERT OR IGNORE INTO account_checkpoints (account_id, entry_rowid, balance)
+SELECT account_id, entry_rowid, opening + running
+FROM (
+    SELECT e.account_id,
+           e.rowid AS entry_rowid,
+           c.balance AS opening,
+           SUM(CASE WHEN e.direction = a.direction THEN e.amount ELSE -e.amount END)
+               OVER (PARTITION BY e.account_id ORDER BY e.rowid) AS running,
+           ROW_NUMBER() OVER (PARTITION BY e.account_id ORDER BY e.rowid) AS position
+    FROM entries e
+    JOIN accounts a ON a.id = e.account_id
+    JOIN account_checkpoints c ON c.account_id = e.account_id AND c.entry_rowid = 0
+)
+WHERE position % 1000 = 0;
@@ -0,0 +1,5 @@
+CREATE TRIGGER IF NOT EXISTS open_account_checkpoint
+AFTER INSERT ON accounts
+BEGIN
+    INSERT INTO account_checkpoints (account_id, entry_rowid, balance) VALUES (NEW.id, 0, NEW.balance);
+END;
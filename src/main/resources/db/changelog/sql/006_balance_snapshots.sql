@@ -0,0 +1,22 @@
+-- Balance of an account after all entries up to entry_rowid, the account's last entry when the
+-- snapshot was taken. transaction_id is that entry's transaction; as_of is the created_at of the
+-- last transaction in the ledger at that point.
+CREATE TABLE IF NOT EXISTS balance_snapshots (
+    account_id TEXT NOT NULL,
+    entry_rowid INTEGER NOT NULL,
+    transaction_id TEXT NOT NULL,
+    as_of TEXT NOT NULL,
+    balance INTEGER NOT NULL,
+    PRIMARY KEY (account_id, entry_rowid),
+    FOREIGN KEY (account_id) REFERENCES accounts(id) ON DELETE RESTRICT
+) WITHOUT ROWID;
+
+CREATE INDEX IF NOT EXISTS idx_balance_snapshots_as_of ON balance_snapshots (account_id, as_of);
+
+-- One row per snapshot run; high_water_rowid is the last entry the run included.
+CREATE TABLE IF NOT EXISTS balance_snapshot_runs (
+    high_water_rowid INTEGER PRIMARY KEY,
+    as_of TEXT NOT NULL,
+    accounts INTEGER NOT NULL,
+    created_at TEXT NOT NULL DEFAULT (strftime('%Y-%m-%dT%H:%M:%fZ', 'now'))
+);
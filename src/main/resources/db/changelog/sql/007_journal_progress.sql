@@ -0,0 +1,8 @@
+-- Last journal sequence applied to the tables. Updated in the same transaction as the rows it
+-- covers, so a restart resumes projection exactly after it.
+CREATE TABLE IF NOT EXISTS journal_progress (
+    id INTEGER PRIMARY KEY CHECK (id = 1),
+    applied_sequence INTEGER NOT NULL
+);
+
+INSERT OR IGNORE INTO journal_progress (id, applied_sequence) VALUES (1, 0);
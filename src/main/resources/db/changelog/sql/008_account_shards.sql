@@ -0,0 +1,9 @@
+-- Sub-balances of sharded (hot) accounts. An account's balance is accounts.balance plus the sum of
+-- its shards; consolidation moves the shards into accounts.balance without changing the total.
+CREATE TABLE IF NOT EXISTS account_shards (
+    account_id TEXT NOT NULL,
+    shard INTEGER NOT NULL,
+    balance INTEGER NOT NULL DEFAULT 0,
+    PRIMARY KEY (account_id, shard),
+    FOREIGN KEY (account_id) REFERENCES accounts(id) ON DELETE RESTRICT
+) WITHOUT ROWID;
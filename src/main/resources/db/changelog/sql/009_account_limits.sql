@@ -0,0 +1,4 @@
+-- Optional balance limits. A posting that would take the balance below balance_floor or above
+-- balance_ceiling is rejected; NULL means no limit on that side.
+ALTER TABLE accounts ADD COLUMN balance_floor INTEGER;
+ALTER TABLE accounts ADD COLUMN balance_ceiling INTEGER;
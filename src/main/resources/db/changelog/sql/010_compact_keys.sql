@@ -0,0 +1,36 @@
+-- Integer surrogate keys for accounts and transactions, and entries_compact: the entries table keyed
+-- by them instead of by 36-character ids. Rows that exist before the cutover get key = rowid.
+-- CompactKeysMigration runs this file itself and then fills entries_compact while the old version
+-- keeps serving; 011 copies whatever is left and swaps the tables.
+ALTER TABLE accounts ADD COLUMN key INTEGER;
+UPDATE accounts SET key = rowid;
+CREATE UNIQUE INDEX IF NOT EXISTS idx_accounts_key ON accounts (key);
+
+ALTER TABLE transactions ADD COLUMN key INTEGER;
+CREATE UNIQUE INDEX IF NOT EXISTS idx_transactions_key ON transactions (key);
+
+-- sequence is the old entries.rowid, which checkpoints and snapshots refer to.
+CREATE TABLE IF NOT EXISTS entries_compact (
+    sequence INTEGER PRIMARY KEY,
+    id TEXT NOT NULL UNIQUE,
+    transaction_key INTEGER NOT NULL,
+    account_key INTEGER NOT NULL,
+    direction TEXT NOT NULL CHECK (direction IN ('debit', 'credit')),
+    amount INTEGER NOT NULL CHECK (amount >= 0),
+    FOREIGN KEY (transaction_key) REFERENCES transactions(key) ON DELETE RESTRICT,
+    FOREIGN KEY (account_key) REFERENCES accounts(key) ON DELETE RESTRICT
+);
+
+-- Both indexes end in the implicit sequence, so a transaction's or an account's entries come back
+-- in posting order.
+CREATE INDEX IF NOT EXISTS idx_entries_transaction_key ON entries_compact (transaction_key);
+CREATE INDEX IF NOT EXISTS idx_entries_account_key ON entries_compact (account_key);
+
+-- Last transactions.rowid given a key and last entries.rowid copied by CompactKeysMigration.
+CREATE TABLE IF NOT EXISTS compact_keys_progress (
+    id INTEGER PRIMARY KEY CHECK (id = 1),
+    transaction_rowid INTEGER NOT NULL,
+    entry_rowid INTEGER NOT NULL
+);
+
+INSERT OR IGNORE INTO compact_keys_progress (id, transaction_rowid, entry_rowid) VALUES (1, 0, 0);
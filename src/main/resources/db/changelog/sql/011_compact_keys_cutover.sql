@@ -0,0 +1,18 @@
+-- Finishes what CompactKeysMigration left (everything, when it was never run) and replaces entries
+-- with entries_compact. Rows before the progress marks already have their keys or copies.
+UPDATE accounts SET key = rowid WHERE key IS NULL;
+
+UPDATE transactions SET key = rowid
+WHERE rowid > (SELECT transaction_rowid FROM compact_keys_progress) AND key IS NULL;
+
+INSERT INTO entries_compact (sequence, id, transaction_key, account_key, direction, amount)
+SELECT e.rowid, e.id, t.key, a.key, e.direction, e.amount
+FROM entries e
+JOIN transactions t ON t.id = e.transaction_id
+JOIN accounts a ON a.id = e.account_id
+WHERE e.rowid > (SELECT entry_rowid FROM compact_keys_progress)
+ORDER BY e.rowid;
+
+DROP TABLE entries;
+ALTER TABLE entries_compact RENAME TO entries;
+DROP TABLE compact_keys_progress;
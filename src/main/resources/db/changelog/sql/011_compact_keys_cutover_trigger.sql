@@ -0,0 +1,5 @@
+CREATE TRIGGER IF NOT EXISTS prevent_entry_delete
+BEFORE DELETE ON entries
+BEGIN
+    SELECT RAISE(FAIL, 'entries are immutable');
+END;
@@ -0,0 +1,33 @@
+-- Full-ledger verification runs. A run covers the entries up to high_water_sequence and has checked
+-- them up to verified_sequence; open_transaction_* is the last transaction seen so far, which may
+-- continue after verified_sequence.
+CREATE TABLE IF NOT EXISTS ledger_verifications (
+    id INTEGER PRIMARY KEY,
+    high_water_sequence INTEGER NOT NULL,
+    verified_sequence INTEGER NOT NULL DEFAULT 0,
+    open_transaction_key INTEGER,
+    open_transaction_net INTEGER NOT NULL DEFAULT 0,
+    status TEXT NOT NULL CHECK (status IN ('running', 'completed')),
+    started_at TEXT NOT NULL DEFAULT (strftime('%Y-%m-%dT%H:%M:%fZ', 'now')),
+    completed_at TEXT
+);
+
+CREATE INDEX IF NOT EXISTS idx_ledger_verifications_status ON ledger_verifications (status);
+
+-- Debits minus credits of an account's entries up to the run's verified_sequence.
+CREATE TABLE IF NOT EXISTS ledger_verification_totals (
+    verification_id INTEGER NOT NULL,
+    account_key INTEGER NOT NULL,
+    net INTEGER NOT NULL,
+    PRIMARY KEY (verification_id, account_key)
+) WITHOUT ROWID;
+
+-- subject is the account id of an account_drift and the transaction id of an unbalanced_transaction.
+CREATE TABLE IF NOT EXISTS ledger_verification_findings (
+    verification_id INTEGER NOT NULL,
+    kind TEXT NOT NULL CHECK (kind IN ('account_drift', 'unbalanced_transaction')),
+    subject TEXT NOT NULL,
+    expected INTEGER NOT NULL,
+    actual INTEGER NOT NULL,
+    PRIMARY KEY (verification_id, kind, subject)
+) WITHOUT ROWID;
@@ -0,0 +1,16 @@
+-- Running totals behind GET /ledger/trial-balance, one row per account direction: how many accounts
+-- there are and the sum of their balances (shards included). Postings add their balance deltas in
+-- the same transaction; new accounts are counted by the trigger in 013_trial_balance_trigger.sql.
+CREATE TABLE IF NOT EXISTS trial_balance (
+    direction TEXT PRIMARY KEY CHECK (direction IN ('debit', 'credit')),
+    accounts INTEGER NOT NULL DEFAULT 0,
+    balance INTEGER NOT NULL DEFAULT 0
+) WITHOUT ROWID;
+
+INSERT OR IGNORE INTO trial_balance (direction, accounts, balance)
+SELECT d.direction,
+       (SELECT COUNT(*) FROM accounts a WHERE a.direction = d.direction),
+       (SELECT IFNULL(SUM(a.balance), 0) FROM accounts a WHERE a.direction = d.direction)
+           + (SELECT IFNULL(SUM(s.balance), 0) FROM account_shards s
+              JOIN accounts a ON a.id = s.account_id WHERE a.direction = d.direction)
+FROM (SELECT 'debit' AS direction UNION ALL SELECT 'credit') d;
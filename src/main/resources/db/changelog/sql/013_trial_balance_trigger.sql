@@ -0,0 +1,5 @@
+CREATE TRIGGER IF NOT EXISTS count_account_in_trial_balance
+AFTER INSERT ON accounts
+BEGIN
+    UPDATE trial_balance SET accounts = accounts + 1, balance = balance + NEW.balance WHERE direction = NEW.direction;
+END;
@@ -0,0 +1,31 @@
+-- Closed periods moved out of the hot database by LedgerArchiver, one SQLite file per period. A
+-- period is a contiguous range of transaction keys and of entry sequences, so balance checkpoints
+-- and snapshots at last_sequence stand in for everything before it. 'copying' rows are still being
+-- written to their file; once 'sealed' the range may be deleted here, and 'archived' means it has been.
+CREATE TABLE IF NOT EXISTS ledger_archives (
+    period TEXT PRIMARY KEY,
+    file TEXT NOT NULL,
+    first_transaction_key INTEGER NOT NULL,
+    last_transaction_key INTEGER NOT NULL,
+    first_sequence INTEGER NOT NULL,
+    last_sequence INTEGER NOT NULL,
+    copied_transaction_key INTEGER NOT NULL,
+    deleted_transaction_key INTEGER NOT NULL,
+    transactions INTEGER NOT NULL DEFAULT 0,
+    entries INTEGER NOT NULL DEFAULT 0,
+    idempotency_keys INTEGER NOT NULL DEFAULT 0,
+    as_of TEXT,
+    status TEXT NOT NULL CHECK (status IN ('copying', 'sealed', 'archived')),
+    created_at TEXT NOT NULL DEFAULT (strftime('%Y-%m-%dT%H:%M:%fZ', 'now')),
+    archived_at TEXT
+) WITHOUT ROWID;
+
+-- Moving a period deletes its idempotency keys by transaction, which is also the foreign key check
+-- SQLite runs when a transaction row is deleted.
+CREATE INDEX IF NOT EXISTS idx_idempotency_keys_transaction_id ON idempotency_keys (transaction_id);
+
+-- A verification starts after the last sealed period, from the checkpoints written when it was sealed.
+ALTER TABLE ledger_verifications ADD COLUMN start_sequence INTEGER NOT NULL DEFAULT 0;
+
+DROP TRIGGER IF EXISTS prevent_transaction_delete;
+DROP TRIGGER IF EXISTS prevent_entry_delete;
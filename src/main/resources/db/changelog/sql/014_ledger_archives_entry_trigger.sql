@@ -0,0 +1,7 @@
+CREATE TRIGGER IF NOT EXISTS prevent_entry_delete
+BEFORE DELETE ON entries
+WHEN NOT EXISTS (SELECT 1 FROM ledger_archives
+                 WHERE status <> 'copying' AND OLD.sequence BETWEEN first_sequence AND last_sequence)
+BEGIN
+    SELECT RAISE(FAIL, 'entries are immutable');
+END;
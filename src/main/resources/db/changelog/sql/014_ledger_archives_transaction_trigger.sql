@@ -0,0 +1,7 @@
+CREATE TRIGGER IF NOT EXISTS prevent_transaction_delete
+BEFORE DELETE ON transactions
+WHEN NOT EXISTS (SELECT 1 FROM ledger_archives
+                 WHERE status <> 'copying' AND OLD.key BETWEEN first_transaction_key AND last_transaction_key)
+BEGIN
+    SELECT RAISE(FAIL, 'transactions are immutable');
+END;
@@ -0,0 +1,3 @@
+-- Transactions are keyed in created_at order, so a time maps to a key, and from there to an entry
+-- sequence, with one seek each instead of a walk over the rows before it.
+CREATE INDEX IF NOT EXISTS idx_transactions_created_at ON transactions (created_at, key);
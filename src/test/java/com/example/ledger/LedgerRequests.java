@@ -0,0 +1,87 @@
+package com.example.ledger;
+
+import com.example.ledger.api.AccountRequest;
+import com.example.ledger.api.AccountResponse;
+import com.example.ledger.api.BatchTransactionItem;
+import com.example.ledger.api.BatchTransactionRequest;
+import com.example.ledger.api.EntryRequest;
+import com.example.ledger.api.TransactionRequest;
+
+import java.util.List;
+
+/**
+ * Request bodies the service and endpoint tests build their ledgers from.
+ */
+public final class LedgerRequests {
+    private LedgerRequests() {
+    }
+
+    public static AccountRequest account(String direction) {
+        return account(direction, null);
+    }
+
+    public static AccountRequest account(String direction, Long balance) {
+        return account(direction, balance, null, null);
+    }
+
+    public static AccountRequest account(String direction, Long balance, Long floor, Long ceiling) {
+        AccountRequest request = new AccountRequest();
+        request.setDirection(direction);
+        request.setBalance(balance);
+        request.setFloor(floor);
+        request.setCeiling(ceiling);
+        return request;
+    }
+
+    public static EntryRequest entry(AccountResponse account, String direction, long amount) {
+        return entry(account.getId(), direction, amount);
+    }
+
+    public static EntryRequest entry(String accountId, String direction, long amount) {
+        EntryRequest entry = new EntryRequest();
+        entry.setAccountId(accountId);
+        entry.setDirection(direction);
+        entry.setAmount(amount);
+        return entry;
+    }
+
+    public static TransactionRequest transaction(EntryRequest... entries) {
+        return transactionWithId(null, entries);
+    }
+
+    public static TransactionRequest transactionWithId(String id, EntryRequest... entries) {
+        TransactionRequest request = new TransactionRequest();
+        request.setId(id);
+        request.setEntries(List.of(entries));
+        return request;
+    }
+
+    /**
+     * {@code amount} from the credit account to the debit account.
+     */
+    public static TransactionRequest transfer(String debitAccountId, String creditAccountId, long amount) {
+        return transfer(null, debitAccountId, creditAccountId, amount);
+    }
+
+    public static TransactionRequest transfer(String id, String debitAccountId, String creditAccountId, long amount) {
+        return transactionWithId(id, entry(debitAccountId, "debit", amount), entry(creditAccountId, "credit", amount));
+    }
+
+    public static BatchTransactionItem batchItem(String debitAccountId, String creditAccountId, long amount) {
+        return batchItem(transfer(debitAccountId, creditAccountId, amount));
+    }
+
+    public static BatchTransactionItem batchItem(TransactionRequest transaction) {
+        BatchTransactionItem item = new BatchTransactionItem();
+        item.setId(transaction.getId());
+        item.setName(transaction.getName());
+        item.setEntries(transaction.getEntries());
+        return item;
+    }
+
+    public static BatchTransactionRequest batch(BatchTransactionItem... items) {
+        BatchTransactionRequest request = new BatchTransactionRequest();
+        request.setTransactions(List.of(items));
+        return request;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.ledger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class LedgerVerifyCommandTest {
+
+    @Test
+    void leavesTheJournalOfARunningInstanceAlone(@TempDir Path journal) throws Exception {
+        // Stands in for a segment the live instance has yet to project.
+        Path segment = journal.resolve("00000000000000000001.journal");
+        byte[] contents = {0, 0, 0, 1, 2, 3};
+        Files.write(segment, contents);
+
+        LedgerVerifyCommand.run(new String[] {
+            "--spring.profiles.active=test",
+            "--ledger.journal.enabled=true",
+            "--ledger.journal.directory=" + journal
+        });
+
+        assertArrayEquals(contents, Files.readAllBytes(segment));
+    }
+}
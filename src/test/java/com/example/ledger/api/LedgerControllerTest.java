@@ -8,13 +8,18 @@ import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @ActiveProfiles("test")
@@ -111,4 +116,149 @@ class LedgerControllerTest {
 
         assertEquals(first.getBody().getId(), second.getBody().getId());
     }
+
+    @Test
+    void reflectsPostedTransactionsInAccountBalances() {
+
+        AccountRequest accountA = new AccountRequest();
+        accountA.setName("wallet");
+        accountA.setDirection("debit");
+        accountA.setBalance(500L);
+        AccountResponse accountAResponse = restTemplate.postForEntity("/accounts", accountA, AccountResponse.class).getBody();
+
+        AccountRequest accountB = new AccountRequest();
+        accountB.setName("merchant");
+        accountB.setDirection("credit");
+        AccountResponse accountBResponse = restTemplate.postForEntity("/accounts", accountB, AccountResponse.class).getBody();
+
+        EntryRequest debit = new EntryRequest();
+        debit.setAccountId(accountBResponse.getId());
+        debit.setDirection("debit");
+        debit.setAmount(120L);
+
+        EntryRequest credit = new EntryRequest();
+        credit.setAccountId(accountAResponse.getId());
+        credit.setDirection("credit");
+        credit.setAmount(120L);
+
+        TransactionRequest transactionRequest = new TransactionRequest();
+        transactionRequest.setName("purchase");
+        transactionRequest.setEntries(List.of(debit, credit));
+        restTemplate.postForEntity("/transactions", transactionRequest, TransactionResponse.class);
+
+        AccountResponse wallet = restTemplate.getForObject("/accounts/" + accountAResponse.getId(), AccountResponse.class);
+        AccountResponse merchant = restTemplate.getForObject("/accounts/" + accountBResponse.getId(), AccountResponse.class);
+        assertEquals(380, wallet.getBalance());
+        assertEquals(-120, merchant.getBalance());
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void postsBatchWithPerItemResultsOrAllOrNothing() {
+
+        AccountRequest accountA = new AccountRequest();
+        accountA.setName("settlement");
+        accountA.setDirection("debit");
+        AccountResponse accountAResponse = restTemplate.postForEntity("/accounts", accountA, AccountResponse.class).getBody();
+
+        AccountRequest accountB = new AccountRequest();
+        accountB.setName("payouts");
+        accountB.setDirection("credit");
+        AccountResponse accountBResponse = restTemplate.postForEntity("/accounts", accountB, AccountResponse.class).getBody();
+
+        BatchTransactionItem first = batchItem(accountAResponse.getId(), accountBResponse.getId(), 10L, 10L);
+        BatchTransactionItem unbalanced = batchItem(accountAResponse.getId(), accountBResponse.getId(), 10L, 9L);
+        BatchTransactionItem keyed = batchItem(accountAResponse.getId(), accountBResponse.getId(), 5L, 5L);
+        keyed.setIdempotencyKey("batch-key");
+        BatchTransactionItem replay = batchItem(accountAResponse.getId(), accountBResponse.getId(), 5L, 5L);
+        replay.setIdempotencyKey("batch-key");
+
+        BatchTransactionRequest perItem = new BatchTransactionRequest();
+        perItem.setTransactions(List.of(first, unbalanced, keyed, replay));
+        ResponseEntity<Map> perItemResponse = restTemplate.postForEntity("/transactions/batch", perItem, Map.class);
+
+        assertEquals(HttpStatus.OK, perItemResponse.getStatusCode());
+        List<Map<String, Object>> results = (List<Map<String, Object>>) perItemResponse.getBody().get("results");
+        assertEquals("created", results.get(0).get("status"));
+        assertEquals("unbalanced_transaction", results.get(1).get("code"));
+        assertEquals("created", results.get(2).get("status"));
+        assertEquals("replayed", results.get(3).get("status"));
+        assertEquals(
+            ((Map<String, Object>) results.get(2).get("transaction")).get("id"),
+            ((Map<String, Object>) results.get(3).get("transaction")).get("id")
+        );
+        assertEquals(15, restTemplate.getForObject("/accounts/" + accountAResponse.getId(), AccountResponse.class).getBalance());
+
+        BatchTransactionItem missingAccount = batchItem("no-such-account", accountBResponse.getId(), 10L, 10L);
+        BatchTransactionRequest atomic = new BatchTransactionRequest();
+        atomic.setAtomic(true);
+        atomic.setTransactions(List.of(batchItem(accountAResponse.getId(), accountBResponse.getId(), 10L, 10L), missingAccount));
+        ResponseEntity<Map> atomicResponse = restTemplate.postForEntity("/transactions/batch", atomic, Map.class);
+
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, atomicResponse.getStatusCode());
+        List<Map<String, Object>> atomicResults = (List<Map<String, Object>>) atomicResponse.getBody().get("results");
+        assertEquals("not_applied", atomicResults.get(0).get("status"));
+        assertEquals("account_missing", atomicResults.get(1).get("code"));
+        assertEquals(15, restTemplate.getForObject("/accounts/" + accountAResponse.getId(), AccountResponse.class).getBalance());
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void pagesAccountsByNameWithCursorsAndStreamsThemAsNdjson() {
+        List<String> created = new ArrayList<>();
+        for (String name : List.of("paging-b", "paging-a", "paging-a")) {
+            AccountRequest request = new AccountRequest();
+            request.setName(name);
+            request.setDirection("debit");
+            created.add(restTemplate.postForEntity("/accounts", request, AccountResponse.class).getBody().getId());
+        }
+
+        List<String> listed = new ArrayList<>();
+        String cursor = null;
+        do {
+            String url = cursor == null ? "/accounts?limit=2" : "/accounts?limit=2&cursor=" + cursor;
+            Map page = restTemplate.getForObject(url, Map.class);
+            List<Map<String, Object>> accounts = (List<Map<String, Object>>) page.get("accounts");
+            assertTrue(accounts.size() <= 2);
+            accounts.forEach(account -> listed.add((String) account.get("id")));
+            cursor = (String) page.get("next_cursor");
+        } while (cursor != null);
+
+        assertEquals(listed.size(), new HashSet<>(listed).size());
+        List<String> ours = listed.stream().filter(created::contains).toList();
+        List<String> sameName = created.subList(1, 3).stream().sorted().toList();
+        assertEquals(List.of(sameName.get(0), sameName.get(1), created.get(0)), ours);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.APPLICATION_NDJSON));
+        ResponseEntity<String> stream = restTemplate.exchange("/accounts", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        assertEquals(MediaType.APPLICATION_NDJSON, stream.getHeaders().getContentType());
+        assertEquals(listed.size(), stream.getBody().lines().count());
+        assertTrue(created.stream().allMatch(id -> stream.getBody().contains("\"id\":\"" + id + "\"")));
+
+        headers.setAccept(List.of(MediaType.ALL));
+        ResponseEntity<String> plain = restTemplate.exchange("/accounts", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        assertTrue(MediaType.APPLICATION_JSON.isCompatibleWith(plain.getHeaders().getContentType()));
+
+        ResponseEntity<Map> badCursor = restTemplate.getForEntity("/accounts?cursor=!!", Map.class);
+        assertEquals(HttpStatus.BAD_REQUEST, badCursor.getStatusCode());
+        assertEquals("invalid_cursor", badCursor.getBody().get("code"));
+    }
+
+    private static BatchTransactionItem batchItem(String debitAccount, String creditAccount, long debitAmount, long creditAmount) {
+        EntryRequest debit = new EntryRequest();
+        debit.setAccountId(debitAccount);
+        debit.setDirection("debit");
+        debit.setAmount(debitAmount);
+
+        EntryRequest credit = new EntryRequest();
+        credit.setAccountId(creditAccount);
+        credit.setDirection("credit");
+        credit.setAmount(creditAmount);
+
+        BatchTransactionItem item = new BatchTransactionItem();
+        item.setName("settlement");
+        item.setEntries(List.of(debit, credit));
+        return item;
+    }
 }
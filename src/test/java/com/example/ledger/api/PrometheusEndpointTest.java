@@ -0,0 +1,47 @@
+package com.example.ledger.api;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import static com.example.ledger.LedgerRequests.account;
+import static com.example.ledger.LedgerRequests.transfer;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureObservability(tracing = false)
+@ActiveProfiles("test")
+class PrometheusEndpointTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Test
+    void exportsPostingPhasesRepositoryTimersAndErrorCodes() {
+        AccountResponse cash = createAccount("debit");
+        AccountResponse revenue = createAccount("credit");
+        assertEquals(HttpStatus.CREATED, post(cash.getId(), revenue.getId()).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, post(cash.getId(), "no-such-account").getStatusCode());
+
+        String scrape = restTemplate.getForObject("/actuator/prometheus", String.class);
+
+        assertTrue(scrape.contains("ledger_transaction_phase_seconds_bucket{phase=\"entry_insert\""), "phase histogram");
+        assertTrue(scrape.contains("ledger_transaction_phase_seconds_count{phase=\"commit\""), "commit phase");
+        assertTrue(scrape.contains("ledger_repository_seconds_count{class=\"com.example.ledger.repository.EntryRepository\""), "repository timer");
+        assertTrue(scrape.contains("ledger_api_errors_total{code=\"account_missing\",status=\"400\""), "error counter");
+    }
+
+    private AccountResponse createAccount(String direction) {
+        return restTemplate.postForEntity("/accounts", account(direction), AccountResponse.class).getBody();
+    }
+
+    private ResponseEntity<String> post(String debitAccountId, String creditAccountId) {
+        return restTemplate.postForEntity("/transactions", transfer(debitAccountId, creditAccountId, 100), String.class);
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.ledger.api;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = "ledger.connection-pool.read.connection-timeout=250ms"
+)
+@ActiveProfiles({"test", "virtual-threads"})
+class VirtualThreadsProfileTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    @Qualifier("readDataSource")
+    private HikariDataSource dataSource;
+
+    @Test
+    void failsFastWithServiceUnavailableWhenThePoolIsExhausted() throws Exception {
+        assertEquals(7, dataSource.getMaximumPoolSize());
+
+        List<Connection> held = new ArrayList<>();
+        try {
+            for (int i = 0; i < dataSource.getMaximumPoolSize(); i++) {
+                held.add(dataSource.getConnection());
+            }
+            ResponseEntity<Map> busy = restTemplate.getForEntity("/accounts", Map.class);
+            assertEquals(HttpStatus.SERVICE_UNAVAILABLE, busy.getStatusCode());
+            assertEquals("database_busy", busy.getBody().get("code"));
+        } finally {
+            for (Connection connection : held) {
+                connection.close();
+            }
+        }
+
+        assertEquals(HttpStatus.OK, restTemplate.getForEntity("/accounts", Map.class).getStatusCode());
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.ledger.config;
+
+import com.example.ledger.repository.AccountRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+    "ledger.connection-pool.write.connection-timeout=10s",
+    "ledger.connection-pool.read.pragmas.cache_size=-2000"
+})
+@ActiveProfiles("test")
+class ConnectionPoolsTest {
+
+    // WAL, which lets reads run beside a write transaction, needs a database file; the shared-cache
+    // in-memory database of the test profile locks tables instead.
+    @DynamicPropertySource
+    static void databaseFile(DynamicPropertyRegistry registry) throws IOException {
+        Path directory = Files.createTempDirectory("ledger-pools");
+        registry.add("spring.datasource.url", () -> "jdbc:sqlite:" + directory.resolve("ledger.db"));
+    }
+
+    @Autowired
+    private HikariDataSource dataSource;
+
+    @Autowired
+    @Qualifier(DataSourceConfig.READ_JDBC_TEMPLATE)
+    private JdbcTemplate readJdbcTemplate;
+
+    @Autowired
+    @Qualifier("readDataSource")
+    private HikariDataSource readDataSource;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void readsDoNotWaitForAnOpenWriteTransactionAndCannotWrite() throws Exception {
+        assertEquals(1, dataSource.getMaximumPoolSize());
+
+        try (Connection writer = dataSource.getConnection(); Statement statement = writer.createStatement()) {
+            try (ResultSet rs = statement.executeQuery("PRAGMA journal_mode")) {
+                rs.next();
+                assertEquals("wal", rs.getString(1));
+            }
+            statement.execute("BEGIN IMMEDIATE");
+            try {
+                statement.executeUpdate("INSERT INTO accounts (id, name, direction, balance) VALUES ('uncommitted', 'x', 'debit', 0)");
+                List<AccountRepository.AccountRow> page = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                    () -> accountRepository.findPage(null, null, 100));
+                assertTrue(page.stream().noneMatch(row -> row.id().equals("uncommitted")));
+            } finally {
+                statement.execute("ROLLBACK");
+            }
+        }
+
+        assertEquals(1, readJdbcTemplate.queryForObject("PRAGMA query_only", Integer.class));
+        assertThrows(UncategorizedSQLException.class, () -> readJdbcTemplate.update(
+            "INSERT INTO accounts (id, name, direction, balance) VALUES ('read-pool', 'x', 'debit', 0)"));
+    }
+
+    @Test
+    void everyReadConnectionGetsTheProfile() throws Exception {
+        List<Connection> connections = new ArrayList<>();
+        try {
+            for (int i = 0; i < readDataSource.getMaximumPoolSize(); i++) {
+                connections.add(readDataSource.getConnection());
+            }
+            for (Connection connection : connections) {
+                assertEquals(1, pragma(connection, "foreign_keys"));
+                assertEquals(1, pragma(connection, "query_only"));
+                assertEquals(2, pragma(connection, "temp_store"));
+                assertEquals(-2000, pragma(connection, "cache_size"));
+            }
+        } finally {
+            for (Connection connection : connections) {
+                connection.close();
+            }
+        }
+    }
+
+    @Test
+    void cachedStatementsAreTimedByName() {
+        Timer timer = meterRegistry.find("ledger.sql.statement")
+            .tags("statement", "accounts.findFirstPage", "pool", "ledger-read")
+            .timer();
+        long before = timer == null ? 0 : timer.count();
+
+        accountRepository.findPage(null, null, 10);
+        accountRepository.findPage(null, null, 10);
+
+        timer = meterRegistry.get("ledger.sql.statement")
+            .tags("statement", "accounts.findFirstPage", "pool", "ledger-read")
+            .timer();
+        assertEquals(before + 2, timer.count());
+    }
+
+    private static int pragma(Connection connection, String name) throws Exception {
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery("PRAGMA " + name)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.ledger.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class QueryPlanCheckerTest {
+
+    @Autowired
+    private QueryPlanChecker checker;
+
+    @Test
+    void entryLookupsUseIndexesAndUnindexedPredicatesAreReported() {
+        assertTrue(checker.scans("SELECT id, transaction_key, account_key, direction, amount FROM entries "
+            + "WHERE transaction_key = ? ORDER BY rowid").isEmpty());
+        assertTrue(checker.scans("SELECT id FROM entries WHERE account_key = ?").isEmpty());
+        assertEquals(1, checker.scans("SELECT id FROM entries WHERE amount = ?").size());
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.ledger.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimeOrderedIdGeneratorTest {
+
+    @Test
+    void encodesTheTimestampVersionAndVariant() {
+        UUID id = new TimeOrderedIdGenerator(() -> 1_700_000_000_000L).nextUuid();
+
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+        assertEquals(1_700_000_000_000L, id.getMostSignificantBits() >>> 16);
+    }
+
+    @Test
+    void staysIncreasingWithinAMillisecondAndWhenTheClockGoesBack() {
+        AtomicLong clock = new AtomicLong(1_700_000_000_000L);
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(clock::get);
+
+        String previous = generator.next();
+        for (int i = 0; i < 20_000; i++) {
+            if (i == 10_000) {
+                clock.addAndGet(-5_000);
+            }
+            String next = generator.next();
+            assertTrue(next.compareTo(previous) > 0, previous + " < " + next);
+            assertEquals(36, next.length());
+            previous = next;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.ledger.migration;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactKeysMigrationTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void copiesInChunksWhileTheOldSchemaIsWrittenAndLeavesTheRestToTheCutover() throws Exception {
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + directory.resolve("ledger.db"))) {
+            execute(connection, List.of(
+                "CREATE TABLE accounts (id TEXT PRIMARY KEY, name TEXT, direction TEXT NOT NULL, balance INTEGER NOT NULL DEFAULT 0)",
+                "CREATE TABLE transactions (id TEXT PRIMARY KEY, name TEXT, created_at TEXT NOT NULL DEFAULT 'now')",
+                "CREATE TABLE entries (id TEXT PRIMARY KEY, transaction_id TEXT NOT NULL, account_id TEXT NOT NULL, "
+                    + "direction TEXT NOT NULL, amount INTEGER NOT NULL)",
+                "INSERT INTO accounts (id, direction) VALUES ('cash', 'debit'), ('revenue', 'credit')"
+            ));
+            for (int i = 1; i <= 3; i++) {
+                post(connection, "t" + i);
+            }
+
+            assertTrue(new CompactKeysMigration(connection, 2, 0).run());
+            assertEquals(6, count(connection, "SELECT COUNT(*) FROM entries_compact"));
+            assertEquals(3, count(connection, "SELECT transaction_rowid FROM compact_keys_progress"));
+
+            // Written by the previous version after the tool caught up.
+            execute(connection, List.of("INSERT INTO accounts (id, direction) VALUES ('fees', 'credit')"));
+            post(connection, "t4");
+            execute(connection, CompactKeysMigration.statements("db/changelog/sql/011_compact_keys_cutover.sql"));
+
+            assertEquals(8, count(connection, "SELECT COUNT(*) FROM entries"));
+            assertEquals(0, count(connection, "SELECT COUNT(*) FROM transactions WHERE key IS NULL"));
+            assertEquals(List.of("t4|cash|7", "t4|revenue|8"), rows(connection,
+                "SELECT t.id || '|' || a.id || '|' || e.sequence FROM entries e "
+                    + "JOIN transactions t ON t.key = e.transaction_key JOIN accounts a ON a.key = e.account_key "
+                    + "WHERE t.id = 't4' ORDER BY e.sequence"));
+            assertFalse(new CompactKeysMigration(connection, 2, 0).run());
+        }
+    }
+
+    private static void post(Connection connection, String transactionId) throws SQLException {
+        execute(connection, List.of(
+            "INSERT INTO transactions (id) VALUES ('" + transactionId + "')",
+            "INSERT INTO entries VALUES ('" + transactionId + "-d', '" + transactionId + "', 'cash', 'debit', 10)",
+            "INSERT INTO entries VALUES ('" + transactionId + "-c', '" + transactionId + "', 'revenue', 'credit', 10)"
+        ));
+    }
+
+    private static void execute(Connection connection, List<String> statements) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+        }
+    }
+
+    private static long count(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static List<String> rows(Connection connection, String sql) throws SQLException {
+        List<String> rows = new ArrayList<>();
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            while (rs.next()) {
+                rows.add(rs.getString(1));
+            }
+        }
+        return rows;
+    }
+}
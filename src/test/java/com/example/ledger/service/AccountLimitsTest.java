@@ -0,0 +1,66 @@
+package com.example.ledger.service;
+
+import com.example.ledger.api.AccountResponse;
+import com.example.ledger.api.BatchTransactionResponse;
+import com.example.ledger.exception.ApiException;
+import com.example.ledger.repository.AccountRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static com.example.ledger.LedgerRequests.account;
+import static com.example.ledger.LedgerRequests.batch;
+import static com.example.ledger.LedgerRequests.batchItem;
+import static com.example.ledger.LedgerRequests.transfer;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class AccountLimitsTest {
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Test
+    void rejectsPostingsThatWouldBreakAFloorOrCeiling() {
+        AccountResponse wallet = accountService.create(account("credit", 50L, 0L, 100L));
+        AccountResponse cash = accountService.create(account("debit", 0L));
+
+        transactionService.create(transfer(wallet.getId(), cash.getId(), 30), null);
+        ApiException overdraft = assertThrows(ApiException.class,
+            () -> transactionService.create(transfer(wallet.getId(), cash.getId(), 30), null));
+        assertEquals("balance_limit_exceeded", overdraft.getCode());
+        ApiException overLimit = assertThrows(ApiException.class,
+            () -> transactionService.create(transfer(cash.getId(), wallet.getId(), 81), null));
+        assertEquals("balance_limit_exceeded", overLimit.getCode());
+
+        assertEquals(20, accountService.getById(wallet.getId()).getBalance());
+        assertEquals(0L, accountService.getById(wallet.getId()).getFloor());
+        assertEquals(20, accountRepository.findById(wallet.getId()).orElseThrow().balance());
+        assertFalse(accountRepository.updateBalance(wallet.getId(), -21));
+    }
+
+    @Test
+    void checksBatchItemsAgainstTheEarlierItemsOfTheBatch() {
+        AccountResponse wallet = accountService.create(account("credit", 50L, 0L, null));
+        AccountResponse cash = accountService.create(account("debit", 0L));
+
+        BatchTransactionResponse response = transactionService.createBatch(batch(
+            batchItem(wallet.getId(), cash.getId(), 30),
+            batchItem(wallet.getId(), cash.getId(), 30)
+        ));
+
+        assertEquals("created", response.getResults().get(0).getStatus());
+        assertEquals("balance_limit_exceeded", response.getResults().get(1).getCode());
+        assertEquals(20, accountService.getById(wallet.getId()).getBalance());
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.ledger.service;
+
+import com.example.ledger.config.AccountLockProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccountLockManagerTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void roundsTheStripeCountUpToAPowerOfTwo() {
+        assertEquals(1, manager(0).stripeCount());
+        assertEquals(1, manager(1).stripeCount());
+        assertEquals(4, manager(3).stripeCount());
+        assertEquals(256, manager(256).stripeCount());
+        assertEquals(512, manager(257).stripeCount());
+    }
+
+    @Test
+    void overlappingSetsLockedInOppositeOrdersDoNotDeadlock() throws Exception {
+        AccountLockManager locks = manager(64);
+        List<String> accounts = accountsOnDistinctStripes(locks, 4);
+        List<String> reversed = new ArrayList<>(accounts);
+        Collections.reverse(reversed);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<Integer>> workers = new ArrayList<>();
+            for (List<String> order : List.of(accounts, reversed)) {
+                workers.add(executor.submit(() -> {
+                    int rounds = 0;
+                    for (; rounds < 10_000; rounds++) {
+                        AccountLockManager.Locked locked = locks.lock(order);
+                        Thread.onSpinWait();
+                        locked.close();
+                    }
+                    return rounds;
+                }));
+            }
+            for (Future<Integer> worker : workers) {
+                assertEquals(10_000, worker.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        for (String account : accounts) {
+            assertFalse(locks.isLocked(locks.stripeOf(account)));
+        }
+    }
+
+    @Test
+    void closeReleasesEveryStripeEvenWhenTheBodyThrows() {
+        AccountLockManager locks = manager(64);
+        List<String> accounts = accountsOnDistinctStripes(locks, 3);
+
+        AccountLockManager.Locked locked = locks.lock(accounts);
+        assertThrows(IllegalStateException.class, () -> {
+            try {
+                for (String account : accounts) {
+                    assertTrue(locks.isLocked(locks.stripeOf(account)));
+                }
+                throw new IllegalStateException("posting failed");
+            } finally {
+                locked.close();
+            }
+        });
+
+        for (String account : accounts) {
+            assertFalse(locks.isLocked(locks.stripeOf(account)));
+        }
+        locked.close();
+        locked.close();
+        for (String account : accounts) {
+            assertFalse(locks.isLocked(locks.stripeOf(account)));
+        }
+    }
+
+    @Test
+    void countsContentionAndWaitTimePerStripe() throws Exception {
+        AccountLockManager locks = manager(64);
+        String account = "contended-account";
+        String stripe = Integer.toString(locks.stripeOf(account));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            AccountLockManager.Locked held = locks.lock(List.of(account));
+            Future<?> waiter = executor.submit(() -> locks.lock(List.of(account)).close());
+            // Once the waiter is queued on the stripe its wait has started; hold the stripe a known time after that.
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (!locks.hasWaiters(locks.stripeOf(account)) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            assertTrue(locks.hasWaiters(locks.stripeOf(account)));
+            Thread.sleep(50);
+            held.close();
+            waiter.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, meterRegistry.get("ledger.account.lock.contended").tag("stripe", stripe).counter().count());
+        assertEquals(1, meterRegistry.get("ledger.account.lock.wait").tag("stripe", stripe).timer().count());
+        assertTrue(meterRegistry.get("ledger.account.lock.wait").tag("stripe", stripe).timer().totalTime(TimeUnit.MILLISECONDS) >= 50);
+        String other = Integer.toString((locks.stripeOf(account) + 1) % locks.stripeCount());
+        assertNull(meterRegistry.find("ledger.account.lock.contended").tag("stripe", other).counter());
+    }
+
+    private AccountLockManager manager(int stripes) {
+        AccountLockProperties properties = new AccountLockProperties();
+        properties.setStripes(stripes);
+        return new AccountLockManager(properties, meterRegistry);
+    }
+
+    private static List<String> accountsOnDistinctStripes(AccountLockManager locks, int count) {
+        List<String> accounts = new ArrayList<>();
+        List<Integer> stripes = new ArrayList<>();
+        for (int i = 0; accounts.size() < count; i++) {
+            String account = "account-" + i;
+            if (!stripes.contains(locks.stripeOf(account))) {
+                stripes.add(locks.stripeOf(account));
+                accounts.add(account);
+            }
+        }
+        return accounts;
+    }
+}
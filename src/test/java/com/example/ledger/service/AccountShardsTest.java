@@ -0,0 +1,68 @@
+package com.example.ledger.service;
+
+import com.example.ledger.api.AccountResponse;
+import com.example.ledger.repository.AccountRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+
+import static com.example.ledger.LedgerRequests.account;
+import static com.example.ledger.LedgerRequests.transfer;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class AccountShardsTest {
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private AccountShards accountShards;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void spreadsPostingsOverShardsAndConsolidatesWithoutChangingTheBalance() {
+        AccountResponse fees = accountService.create(account("credit"));
+        AccountResponse cash = accountService.create(account("debit"));
+        assertEquals(4, accountShards.shard(fees.getId(), 4));
+
+        for (int i = 0; i < 8; i++) {
+            transactionService.create(transfer(cash.getId(), fees.getId(), 10), null);
+        }
+
+        assertEquals(80, accountService.getById(fees.getId()).getBalance());
+        assertEquals(80, accountRepository.findById(fees.getId()).orElseThrow().balance());
+        assertEquals(0, rowBalance(fees.getId()));
+        assertTrue(nonZeroShards(fees.getId()) > 1);
+        assertEquals(80, accountService.getById(cash.getId()).getBalance());
+
+        accountShards.consolidate(fees.getId());
+
+        assertEquals(80, rowBalance(fees.getId()));
+        assertEquals(0, nonZeroShards(fees.getId()));
+        assertEquals(80, accountRepository.findById(fees.getId()).orElseThrow().balance());
+        assertEquals(80, accountService.getById(fees.getId()).getBalance());
+    }
+
+    private long rowBalance(String accountId) {
+        return jdbcTemplate.queryForObject("SELECT balance FROM accounts WHERE id = ?", Long.class, accountId);
+    }
+
+    private int nonZeroShards(String accountId) {
+        return jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM account_shards WHERE account_id = ? AND balance <> 0", Integer.class, accountId);
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.ledger.service;
+
+import com.example.ledger.api.AccountResponse;
+import com.example.ledger.api.AccountStatementResponse;
+import com.example.ledger.api.StatementEntryResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.example.ledger.LedgerRequests.account;
+import static com.example.ledger.LedgerRequests.batch;
+import static com.example.ledger.LedgerRequests.batchItem;
+import static com.example.ledger.LedgerRequests.transfer;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "ledger.account-statement.checkpoint-interval=3")
+@ActiveProfiles("test")
+class AccountStatementServiceTest {
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private AccountStatementService statementService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void pagesEntriesWithRunningBalancesAcrossCheckpoints() {
+        AccountResponse cash = accountService.create(account("debit", 50L));
+        AccountResponse revenue = accountService.create(account("credit", 0L));
+
+        List<Long> expected = new ArrayList<>();
+        long balance = 50;
+        for (int i = 1; i <= 7; i++) {
+            transactionService.create(transfer(cash.getId(), revenue.getId(), i), null);
+            balance += i;
+            expected.add(balance);
+        }
+        transactionService.createBatch(batch(batchItem(revenue.getId(), cash.getId(), 4), batchItem(revenue.getId(), cash.getId(), 6)));
+        expected.add(balance -= 4);
+        expected.add(balance -= 6);
+
+        List<Long> balances = new ArrayList<>();
+        String cursor = null;
+        do {
+            AccountStatementResponse page = statementService.getStatement(cash.getId(), cursor, 2, null, null);
+            assertTrue(page.getEntries().size() <= 2);
+            page.getEntries().stream().map(StatementEntryResponse::getBalance).forEach(balances::add);
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(expected, balances);
+        assertEquals(balance, accountService.getById(cash.getId()).getBalance());
+        Integer checkpoints = jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM account_checkpoints WHERE account_id = ?", Integer.class, cash.getId());
+        assertEquals(4, checkpoints);
+
+        AccountStatementResponse beforeAnything = statementService.getStatement(
+            cash.getId(), null, null, null, "2000-01-01T00:00:00Z");
+        assertTrue(beforeAnything.getEntries().isEmpty());
+        assertNull(beforeAnything.getNextCursor());
+    }
+
+    @Test
+    void limitsAStatementToATimeRange() throws InterruptedException {
+        AccountResponse cash = accountService.create(account("debit", 0L));
+        AccountResponse revenue = accountService.create(account("credit", 0L));
+        transactionService.create(transfer(cash.getId(), revenue.getId(), 1), null);
+        transactionService.create(transfer(cash.getId(), revenue.getId(), 2), null);
+        String from = between();
+        transactionService.create(transfer(cash.getId(), revenue.getId(), 4), null);
+        transactionService.create(transfer(revenue.getId(), cash.getId(), 3), null);
+        transactionService.create(transfer(cash.getId(), revenue.getId(), 8), null);
+        String to = between();
+        transactionService.create(transfer(cash.getId(), revenue.getId(), 16), null);
+
+        List<Long> amounts = new ArrayList<>();
+        List<Long> balances = new ArrayList<>();
+        String cursor = null;
+        do {
+            AccountStatementResponse page = statementService.getStatement(cash.getId(), cursor, 2, from, to);
+            page.getEntries().forEach(entry -> {
+                amounts.add(entry.getAmount());
+                balances.add(entry.getBalance());
+            });
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(List.of(4L, 3L, 8L), amounts);
+        assertEquals(List.of(7L, 4L, 12L), balances);
+        assertEquals(List.of(16L), statementService.getStatement(cash.getId(), null, null, to, null).getEntries().stream()
+            .map(StatementEntryResponse::getAmount).toList());
+        assertEquals(2, statementService.getStatement(cash.getId(), null, null, null, from).getEntries().size());
+    }
+
+    private static String between() throws InterruptedException {
+        Thread.sleep(5);
+        String now = Instant.now().toString();
+        Thread.sleep(5);
+        return now;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.ledger.service;
+
+import com.example.ledger.api.AccountResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+
+import static com.example.ledger.LedgerRequests.account;
+import static com.example.ledger.LedgerRequests.transfer;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class BalanceSnapshotterTest {
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private AccountStatementService statementService;
+
+    @Autowired
+    private BalanceSnapshotter snapshotter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void answersPointInTimeBalancesFromSnapshotsPlusLaterEntries() throws InterruptedException {
+        AccountResponse cash = accountService.create(account("debit", 100L));
+        AccountResponse revenue = accountService.create(account("credit", 0L));
+        Thread.sleep(5);
+        String opened = Instant.now().toString();
+        Thread.sleep(5);
+
+        transactionService.create(transfer(cash.getId(), revenue.getId(), 10), null);
+        transactionService.create(transfer(cash.getId(), revenue.getId(), 20), null);
+        assertTrue(snapshotter.snapshot() >= 2);
+        assertEquals(0, snapshotter.snapshot());
+        Thread.sleep(5);
+        String snapshotted = Instant.now().toString();
+        Thread.sleep(5);
+
+        transactionService.create(transfer(revenue.getId(), cash.getId(), 5), null);
+        Thread.sleep(5);
+        String later = Instant.now().toString();
+
+        assertEquals(100, statementService.getBalanceAsOf(cash.getId(), opened).getBalance());
+        assertEquals(130, statementService.getBalanceAsOf(cash.getId(), snapshotted).getBalance());
+        assertEquals(125, statementService.getBalanceAsOf(cash.getId(), later).getBalance());
+        assertEquals(25, statementService.getBalanceAsOf(revenue.getId(), later).getBalance());
+
+        Long snapshotBalance = jdbcTemplate.queryForObject(
+            "SELECT balance FROM balance_snapshots WHERE account_id = ?", Long.class, cash.getId());
+        assertEquals(130, snapshotBalance);
+        assertEquals(0, meterRegistry.counter("ledger.balance.snapshots.mismatch").count());
+    }
+}
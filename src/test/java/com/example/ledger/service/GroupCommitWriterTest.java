@@ -0,0 +1,157 @@
+package com.example.ledger.service;
+
+import com.example.ledger.api.AccountResponse;
+import com.example.ledger.api.TransactionRequest;
+import com.example.ledger.api.TransactionResponse;
+import com.example.ledger.exception.ApiException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.ledger.LedgerRequests.account;
+import static com.example.ledger.LedgerRequests.transfer;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+    "ledger.group-commit.enabled=true",
+    "ledger.group-commit.max-wait=20ms"
+})
+@ActiveProfiles("test")
+class GroupCommitWriterTest {
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private GroupCommitWriter writer;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void failedWriteDoesNotFailTheRestOfItsBatch() throws Exception {
+        AccountResponse cash = accountService.create(account("debit"));
+        AccountResponse revenue = accountService.create(account("credit"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<TransactionResponse>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                String debitAccount = i == 7 ? "missing-account" : cash.getId();
+                TransactionRequest request = transfer(debitAccount, revenue.getId(), 10);
+                results.add(executor.submit(() -> transactionService.create(request, null)));
+            }
+
+            int succeeded = 0;
+            for (int i = 0; i < results.size(); i++) {
+                if (i == 7) {
+                    ExecutionException failure = assertThrows(ExecutionException.class, results.get(i)::get);
+                    ApiException cause = assertInstanceOf(ApiException.class, failure.getCause());
+                    assertEquals("account_missing", cause.getCode());
+                } else {
+                    assertNotNull(results.get(i).get().getId());
+                    succeeded++;
+                }
+            }
+
+            assertEquals(15, succeeded);
+            assertEquals(150, accountService.getById(cash.getId()).getBalance());
+            assertEquals(150, accountService.getById(revenue.getId()).getBalance());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void writeThatFailsAfterInsertingRollsBackToItsSavepoint() throws Exception {
+        AccountResponse cash = accountService.create(account("debit"));
+        AccountResponse revenue = accountService.create(account("credit"));
+        TransactionResponse earlier = transactionService.create(transfer(cash.getId(), revenue.getId(), 1), null);
+        // A key the idempotency filter has not seen, so the posting only finds it when its insert
+        // fails, after its transaction, entries and balances have been written.
+        jdbcTemplate.update("INSERT INTO idempotency_keys (key, request_hash, transaction_id) VALUES ('taken-key', 'hash', ?)",
+            earlier.getId());
+
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        try {
+            CountDownLatch writing = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            Future<Object> blocker = executor.submit(() -> writer.submit(() -> {
+                writing.countDown();
+                try {
+                    return release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }));
+            assertTrue(writing.await(10, TimeUnit.SECONDS));
+
+            List<Future<TransactionResponse>> results = new ArrayList<>();
+            for (int i = 1; i <= 4; i++) {
+                TransactionRequest request = transfer("savepoint-" + i, cash.getId(), revenue.getId(), 10);
+                String key = i == 3 ? "taken-key" : null;
+                results.add(executor.submit(() -> transactionService.create(request, key)));
+            }
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (writer.queuedWrites() < 4 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(4, writer.queuedWrites());
+            release.countDown();
+            blocker.get();
+
+            for (int i = 0; i < results.size(); i++) {
+                if (i == 2) {
+                    assertThrows(ExecutionException.class, results.get(i)::get);
+                } else {
+                    assertNotNull(results.get(i).get().getId());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(0, count("SELECT COUNT(*) FROM transactions WHERE id = 'savepoint-3'"));
+        assertEquals(0, count("SELECT COUNT(*) FROM entries e JOIN transactions t ON t.key = e.transaction_key WHERE t.id = 'savepoint-3'"));
+        assertEquals(3, count("SELECT COUNT(*) FROM transactions WHERE id LIKE 'savepoint-%'"));
+        assertEquals(earlier.getId(), jdbcTemplate.queryForObject(
+            "SELECT transaction_id FROM idempotency_keys WHERE key = 'taken-key'", String.class));
+        for (AccountResponse account : List.of(cash, revenue)) {
+            assertEquals(31, accountService.getById(account.getId()).getBalance());
+            assertEquals(31, count("SELECT balance FROM accounts WHERE id = ?", account.getId()));
+        }
+    }
+
+    @Test
+    void errorThrownByAWriteIsRethrownAndTheWriterKeepsRunning() {
+        StackOverflowError error = new StackOverflowError("from a write");
+        assertSame(error, assertThrows(StackOverflowError.class, () -> writer.submit(() -> {
+            throw error;
+        })));
+        assertEquals("written", writer.submit(() -> "written"));
+    }
+
+    private long count(String sql, Object... args) {
+        Long count = jdbcTemplate.queryForObject(sql, Long.class, args);
+        return count == null ? 0 : count;
+    }
+}
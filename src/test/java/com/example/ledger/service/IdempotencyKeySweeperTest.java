@@ -0,0 +1,80 @@
+package com.example.ledger.service;
+
+import com.example.ledger.repository.TransactionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+    "ledger.idempotency.retention.enabled=true",
+    "ledger.idempotency.retention.window=1h",
+    "ledger.idempotency.retention.interval=PT1H",
+    "ledger.idempotency.retention.chunk-size=2",
+    "ledger.idempotency.retention.pause=0ms"
+})
+@ActiveProfiles("test")
+class IdempotencyKeySweeperTest {
+
+    @Autowired
+    private IdempotencyKeySweeper sweeper;
+
+    @Autowired
+    private IdempotencyCache idempotencyCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void deletesOnlyKeysOlderThanTheWindowInChunks() {
+        String prefix = UUID.randomUUID().toString();
+        String expired = TransactionRepository.CREATED_AT_FORMAT.format(Instant.now().minus(Duration.ofHours(2)));
+        for (int i = 0; i < 5; i++) {
+            insertKey(prefix + "-old-" + i, expired);
+        }
+        insertKey(prefix + "-new", TransactionRepository.CREATED_AT_FORMAT.format(Instant.now()));
+
+        assertEquals(5, sweeper.sweep());
+        assertEquals(0, sweeper.sweep());
+        assertEquals(1, jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM idempotency_keys WHERE key LIKE ?", Integer.class, prefix + "%"));
+    }
+
+    @Test
+    void sweptKeysLeaveTheFilterAndAreNotCountedAsFalsePositives() {
+        String prefix = UUID.randomUUID().toString();
+        String expired = TransactionRepository.CREATED_AT_FORMAT.format(Instant.now().minus(Duration.ofHours(2)));
+        insertKey(prefix + "-old", expired);
+        insertKey(prefix + "-new", TransactionRepository.CREATED_AT_FORMAT.format(Instant.now()));
+        idempotencyCache.rememberKey(prefix + "-old");
+        idempotencyCache.rememberKey(prefix + "-new");
+
+        assertEquals(1, sweeper.sweep());
+        double skipped = meterRegistry.counter("ledger.idempotency.filter.skipped").count();
+        double falsePositives = meterRegistry.counter("ledger.idempotency.filter.false_positive").count();
+
+        assertTrue(idempotencyCache.findByKey(prefix + "-old").isEmpty());
+        assertTrue(idempotencyCache.findByKey(prefix + "-new").isPresent());
+        assertEquals(skipped + 1, meterRegistry.counter("ledger.idempotency.filter.skipped").count());
+        assertEquals(falsePositives, meterRegistry.counter("ledger.idempotency.filter.false_positive").count());
+    }
+
+    private void insertKey(String key, String createdAt) {
+        jdbcTemplate.update("INSERT INTO transactions (id, name) VALUES (?, NULL)", key);
+        jdbcTemplate.update(
+            "INSERT INTO idempotency_keys (key, request_hash, transaction_id, created_at) VALUES (?, 'h', ?, ?)",
+            key, key, createdAt);
+    }
+}
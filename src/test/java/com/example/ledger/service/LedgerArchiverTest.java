@@ -0,0 +1,302 @@
+package com.example.ledger.service;
+
+import com.example.ledger.api.AccountResponse;
+import com.example.ledger.api.BatchTransactionResponse;
+import com.example.ledger.api.TransactionRequest;
+import com.example.ledger.api.TransactionResponse;
+import com.example.ledger.api.VerificationResponse;
+import com.example.ledger.config.LedgerArchiveProperties;
+import com.example.ledger.exception.ApiException;
+import com.example.ledger.repository.ArchiveRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+
+import static com.example.ledger.LedgerRequests.account;
+import static com.example.ledger.LedgerRequests.batch;
+import static com.example.ledger.LedgerRequests.batchItem;
+import static com.example.ledger.LedgerRequests.entry;
+import static com.example.ledger.LedgerRequests.transaction;
+import static com.example.ledger.LedgerRequests.transactionWithId;
+import static com.example.ledger.LedgerRequests.transfer;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Its own database, since archiving deletes rows other tests would still look for, and a fresh one
+// per test, since each archives the same month. Without the response cache, replays have to go to
+// the tables and then the archive.
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:sqlite:file:archivedb?mode=memory&cache=shared",
+    "ledger.archive.enabled=true",
+    "ledger.archive.chunk-size=1",
+    "ledger.archive.pause=0ms",
+    "ledger.idempotency.cache.enabled=false"
+})
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class LedgerArchiverTest {
+
+    @DynamicPropertySource
+    static void archiveDirectory(DynamicPropertyRegistry registry) throws IOException {
+        Path directory = Files.createTempDirectory("ledger-archive");
+        registry.add("ledger.archive.directory", directory::toString);
+    }
+
+    @Autowired
+    private LedgerArchiver archiver;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private AccountStatementService statementService;
+
+    @Autowired
+    private LedgerVerifier verifier;
+
+    @Autowired
+    private TrialBalanceVerifier trialBalanceVerifier;
+
+    @Autowired
+    private ArchiveRepository archiveRepository;
+
+    @Autowired
+    private LedgerArchive ledgerArchive;
+
+    @Autowired
+    private LedgerArchiveProperties archiveProperties;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final YearMonth month = YearMonth.now(ZoneOffset.UTC);
+    private final Instant now = month.plusMonths(4).atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+
+    @Test
+    void movesAClosedMonthToItsOwnFileAndStillAnswersFromIt() {
+        AccountResponse cash = accountService.create(account("debit", 100L));
+        AccountResponse revenue = accountService.create(account("credit", 0L));
+        TransactionRequest sale = transactionWithId("sale-1", entry(cash, "debit", 30), entry(revenue, "credit", 30));
+        TransactionResponse posted = transactionService.create(sale, "archived-key");
+        TransactionResponse refund = transactionService.create(
+            transaction(entry(revenue, "debit", 5), entry(cash, "credit", 5)), null);
+        TransactionResponse later = postNextMonth(cash, revenue, 7);
+
+        assertEquals(1, archiver.archive(now));
+        assertEquals(0, archiver.archive(now));
+
+        assertEquals(0, count("SELECT COUNT(*) FROM transactions WHERE id IN (?, ?)", posted.getId(), refund.getId()));
+        assertEquals(0, count("SELECT COUNT(*) FROM idempotency_keys WHERE key = ?", "archived-key"));
+        assertEquals(1, count("SELECT COUNT(*) FROM transactions WHERE id = ?", later.getId()));
+        assertEquals("archived", jdbcTemplate.queryForObject("SELECT status FROM ledger_archives", String.class));
+        assertTrue(Files.isRegularFile(Path.of(jdbcTemplate.queryForObject("SELECT file FROM ledger_archives", String.class))));
+
+        TransactionResponse replayed = transactionService.create(sale, "archived-key");
+        assertEquals(posted.getId(), replayed.getId());
+        assertEquals(posted.getEntries().size(), replayed.getEntries().size());
+        assertEquals(posted.getEntries().get(0).getId(), replayed.getEntries().get(0).getId());
+        assertEquals(cash.getId(), replayed.getEntries().get(0).getAccountId());
+
+        ApiException duplicate = assertThrows(ApiException.class, () -> transactionService.create(
+            transactionWithId("sale-1", entry(cash, "debit", 1), entry(revenue, "credit", 1)), null));
+        assertEquals(HttpStatus.CONFLICT, duplicate.getStatus());
+
+        VerificationResponse verification = verifier.verify();
+        assertEquals("completed", verification.getStatus());
+        assertEquals(0, verification.getFindingCount());
+        assertTrue(trialBalanceVerifier.verify());
+
+        String afterArchive = month.plusMonths(1).atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant().toString();
+        assertEquals(125, statementService.getBalanceAsOf(cash.getId(), afterArchive).getBalance());
+        assertEquals(132, statementService.getBalanceAsOf(cash.getId(), now.toString()).getBalance());
+        assertEquals(1, statementService.getStatement(cash.getId(), null, null, null, null).getEntries().size());
+        assertEquals(132, statementService.getStatement(cash.getId(), null, null, null, null).getEntries().get(0).getBalance());
+    }
+
+    @Test
+    void resumesAPeriodInterruptedWhileCopying() {
+        AccountResponse cash = accountService.create(account("debit", 100L));
+        AccountResponse revenue = accountService.create(account("credit", 0L));
+        TransactionResponse first = transactionService.create(transfer("copy-1", cash.getId(), revenue.getId(), 30), "copy-key");
+        TransactionResponse second = transactionService.create(transfer("copy-2", cash.getId(), revenue.getId(), 20), null);
+        postNextMonth(cash, revenue, 7);
+
+        // What open() and the first chunk of copy() leave behind when the process stops.
+        long firstKey = transactionKey(first.getId());
+        long lastKey = transactionKey(second.getId());
+        String file = Path.of(archiveProperties.getDirectory()).resolve("ledger-" + month + ".db").toString();
+        archiveRepository.insert(month.toString(), file, firstKey, lastKey, 1, lastSequence(lastKey));
+        archiveRepository.copy(month.toString(), file, firstKey, firstKey);
+        assertImmutable(() -> jdbcTemplate.update("DELETE FROM entries WHERE transaction_key = ?", firstKey), "entries are immutable");
+        assertImmutable(() -> jdbcTemplate.update("DELETE FROM transactions WHERE key = ?", firstKey), "transactions are immutable");
+
+        assertEquals(1, archiver.archive(now));
+
+        ArchiveRepository.ArchiveRow archive = archiveRepository.findByPeriod(month.toString()).orElseThrow();
+        assertTrue(archive.archived());
+        assertEquals(2, archive.transactions());
+        assertEquals(4, archive.entries());
+        assertEquals(1, archive.idempotencyKeys());
+        assertEquals(0, count("SELECT COUNT(*) FROM transactions WHERE key BETWEEN ? AND ?", firstKey, lastKey));
+        assertEquals(2, ledgerArchive.findTransaction(second.getId()).orElseThrow().entries().size());
+        assertEquals(first.getId(), transactionService.create(transfer("copy-1", cash.getId(), revenue.getId(), 30), "copy-key").getId());
+        assertEquals(0, verifier.verify().getFindingCount());
+    }
+
+    @Test
+    void resumesAPeriodInterruptedWhileDeleting() {
+        AccountResponse cash = accountService.create(account("debit", 100L));
+        AccountResponse revenue = accountService.create(account("credit", 0L));
+        TransactionResponse first = transactionService.create(transfer("delete-1", cash.getId(), revenue.getId(), 30), null);
+        TransactionResponse second = transactionService.create(transfer("delete-2", cash.getId(), revenue.getId(), 20), null);
+        postNextMonth(cash, revenue, 7);
+
+        // A verification that still reads the period holds the deletes back once it is sealed.
+        jdbcTemplate.update("INSERT INTO ledger_verifications (high_water_sequence, status) VALUES (?, 'running')",
+            lastSequence(transactionKey(second.getId())));
+        assertEquals(0, archiver.archive(now));
+        ArchiveRepository.ArchiveRow sealed = archiveRepository.findByPeriod(month.toString()).orElseThrow();
+        assertEquals("sealed", sealed.status());
+        assertEquals(sealed.firstTransactionKey() - 1, sealed.deletedTransactionKey());
+
+        // The first chunk is deleted before the process stops.
+        archiveRepository.deleteRange(month.toString(), sealed.firstTransactionKey(), sealed.firstTransactionKey());
+        jdbcTemplate.update("UPDATE ledger_verifications SET status = 'completed' WHERE status = 'running'");
+        assertEquals(0, count("SELECT COUNT(*) FROM transactions WHERE id = ?", first.getId()));
+        assertEquals(1, count("SELECT COUNT(*) FROM transactions WHERE id = ?", second.getId()));
+
+        assertEquals(1, archiver.archive(now));
+
+        assertTrue(archiveRepository.findByPeriod(month.toString()).orElseThrow().archived());
+        assertEquals(0, count("SELECT COUNT(*) FROM transactions WHERE id IN (?, ?)", first.getId(), second.getId()));
+        assertEquals(2, ledgerArchive.findTransaction(second.getId()).orElseThrow().entries().size());
+        assertEquals(0, verifier.verify().getFindingCount());
+        assertEquals(157, accountService.getById(cash.getId()).getBalance());
+    }
+
+    @Test
+    void deleteTriggersRejectRowsOutsideSealedPeriods() {
+        AccountResponse cash = accountService.create(account("debit", 100L));
+        AccountResponse revenue = accountService.create(account("credit", 0L));
+        transactionService.create(transfer(cash.getId(), revenue.getId(), 30), null);
+        TransactionResponse later = postNextMonth(cash, revenue, 7);
+        long laterKey = transactionKey(later.getId());
+
+        assertImmutable(() -> jdbcTemplate.update("DELETE FROM entries WHERE transaction_key = ?", laterKey), "entries are immutable");
+        assertEquals(1, archiver.archive(now));
+
+        ArchiveRepository.ArchiveRow archive = archiveRepository.findByPeriod(month.toString()).orElseThrow();
+        assertTrue(laterKey > archive.lastTransactionKey());
+        assertImmutable(() -> jdbcTemplate.update("DELETE FROM entries WHERE transaction_key = ?", laterKey), "entries are immutable");
+        assertImmutable(() -> jdbcTemplate.update("DELETE FROM transactions WHERE key = ?", laterKey), "transactions are immutable");
+        assertEquals(2, count("SELECT COUNT(*) FROM entries WHERE transaction_key = ?", laterKey));
+    }
+
+    @Test
+    void sealsOnlyTheAccountsWithEntriesInThePeriod() {
+        AccountResponse cash = accountService.create(account("debit", 100L));
+        AccountResponse revenue = accountService.create(account("credit", 0L));
+        AccountResponse idle = accountService.create(account("debit", 50L));
+        transactionService.create(transfer(idle.getId(), revenue.getId(), 10), null);
+        moveTo(transactionService.create(transfer(cash.getId(), revenue.getId(), 20), null), month.plusMonths(1));
+        moveTo(transactionService.create(transfer(cash.getId(), revenue.getId(), 7), null), month.plusMonths(2));
+
+        assertEquals(2, archiver.archive(now.atZone(ZoneOffset.UTC).plusMonths(1).toInstant()));
+
+        assertEquals(1, count("SELECT COUNT(*) FROM account_checkpoints WHERE account_id = ? AND entry_rowid > 0", idle.getId()));
+        assertEquals(1, count("SELECT COUNT(*) FROM account_checkpoints WHERE account_id = ? AND entry_rowid > 0", cash.getId()));
+        assertEquals(2, count("SELECT COUNT(*) FROM account_checkpoints WHERE account_id = ? AND entry_rowid > 0", revenue.getId()));
+        assertEquals(0, verifier.verify().getFindingCount());
+        String afterArchive = month.plusMonths(2).atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant().toString();
+        assertEquals(60, statementService.getBalanceAsOf(idle.getId(), afterArchive).getBalance());
+        assertEquals(120, statementService.getBalanceAsOf(cash.getId(), afterArchive).getBalance());
+        assertEquals(30, statementService.getBalanceAsOf(revenue.getId(), afterArchive).getBalance());
+    }
+
+    @Test
+    void answersTimesInsideAnArchivedPeriodWithGone() {
+        AccountResponse cash = accountService.create(account("debit", 100L));
+        AccountResponse revenue = accountService.create(account("credit", 0L));
+        transactionService.create(transfer(cash.getId(), revenue.getId(), 30), null);
+        postNextMonth(cash, revenue, 7);
+        assertEquals(1, archiver.archive(now));
+
+        String insideArchive = month.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant().toString();
+        ApiException asOf = assertThrows(ApiException.class, () -> statementService.getBalanceAsOf(cash.getId(), insideArchive));
+        assertEquals(HttpStatus.GONE, asOf.getStatus());
+        assertEquals("archived_period", asOf.getCode());
+        ApiException from = assertThrows(ApiException.class,
+            () -> statementService.getStatement(cash.getId(), null, null, insideArchive, null));
+        assertEquals(HttpStatus.GONE, from.getStatus());
+        assertEquals("archived_period", from.getCode());
+
+        String afterArchive = month.plusMonths(1).atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant().toString();
+        assertEquals(1, statementService.getStatement(cash.getId(), null, null, afterArchive, null).getEntries().size());
+    }
+
+    @Test
+    void rejectsABatchItemThatReusesAnArchivedId() {
+        AccountResponse cash = accountService.create(account("debit", 100L));
+        AccountResponse revenue = accountService.create(account("credit", 0L));
+        transactionService.create(transfer("archived-id", cash.getId(), revenue.getId(), 30), null);
+        postNextMonth(cash, revenue, 7);
+        assertEquals(1, archiver.archive(now));
+
+        BatchTransactionResponse response = transactionService.createBatch(batch(
+            batchItem(transfer("archived-id", cash.getId(), revenue.getId(), 1)),
+            batchItem(cash.getId(), revenue.getId(), 2)
+        ));
+
+        assertEquals("failed", response.getResults().get(0).getStatus());
+        assertEquals("transaction_exists", response.getResults().get(0).getCode());
+        assertEquals("created", response.getResults().get(1).getStatus());
+        assertEquals(0, count("SELECT COUNT(*) FROM transactions WHERE id = ?", "archived-id"));
+        assertEquals(139, accountService.getById(cash.getId()).getBalance());
+    }
+
+    // A transaction dated next month, so the current one is closed and followed by later keys.
+    private TransactionResponse postNextMonth(AccountResponse cash, AccountResponse revenue, long amount) {
+        return moveTo(transactionService.create(transfer(cash.getId(), revenue.getId(), amount), null), month.plusMonths(1));
+    }
+
+    private TransactionResponse moveTo(TransactionResponse transaction, YearMonth to) {
+        jdbcTemplate.update("UPDATE transactions SET created_at = ? WHERE id = ?", to.atDay(15) + "T00:00:00.000Z", transaction.getId());
+        return transaction;
+    }
+
+    private long transactionKey(String transactionId) {
+        return jdbcTemplate.queryForObject("SELECT key FROM transactions WHERE id = ?", Long.class, transactionId);
+    }
+
+    private long lastSequence(long transactionKey) {
+        return jdbcTemplate.queryForObject("SELECT MAX(sequence) FROM entries WHERE transaction_key = ?", Long.class, transactionKey);
+    }
+
+    private static void assertImmutable(Runnable delete, String message) {
+        DataAccessException rejected = assertThrows(DataAccessException.class, delete::run);
+        assertTrue(rejected.getMessage().contains(message), rejected.getMessage());
+    }
+
+    private long count(String sql, Object... args) {
+        Long count = jdbcTemplate.queryForObject(sql, Long.class, args);
+        return count == null ? 0 : count;
+    }
+}
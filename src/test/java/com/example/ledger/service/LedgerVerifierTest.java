@@ -0,0 +1,160 @@
+package com.example.ledger.service;
+
+import com.example.ledger.api.AccountResponse;
+import com.example.ledger.api.VerificationFindingResponse;
+import com.example.ledger.api.VerificationResponse;
+import com.example.ledger.repository.EntryRepository;
+import com.example.ledger.repository.LedgerVerificationRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static com.example.ledger.LedgerRequests.account;
+import static com.example.ledger.LedgerRequests.entry;
+import static com.example.ledger.LedgerRequests.transaction;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Small ranges and checkpoints, so that transactions straddle both.
+@SpringBootTest(properties = {
+    "ledger.verifier.parallelism=2",
+    "ledger.verifier.leaf-size=3",
+    "ledger.verifier.checkpoint-interval=50"
+})
+@ActiveProfiles("test")
+class LedgerVerifierTest {
+
+    @Autowired
+    private LedgerVerifier verifier;
+
+    @Autowired
+    private LedgerVerificationRepository repository;
+
+    @Autowired
+    private EntryRepository entryRepository;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void findsNothingWrongWithPostedTransactions() {
+        AccountResponse cash = accountService.create(account("debit", 100L));
+        AccountResponse revenue = accountService.create(account("credit", 0L));
+        AccountResponse fees = accountService.create(account("credit", 0L));
+        for (int i = 0; i < 10; i++) {
+            transactionService.create(transaction(entry(cash, "debit", 10), entry(revenue, "credit", 7),
+                entry(fees, "credit", 3)), null);
+        }
+
+        VerificationResponse verification = verifier.verify();
+
+        assertEquals("completed", verification.getStatus());
+        assertEquals(verification.getHighWaterSequence(), verification.getVerifiedSequence());
+        assertEquals(List.of(), findingsFor(verification, Set.of(cash.getId(), revenue.getId(), fees.getId())));
+    }
+
+    @Test
+    void reportsABalanceThatDriftedFromItsEntries() {
+        AccountResponse cash = accountService.create(account("debit", 0L));
+        AccountResponse revenue = accountService.create(account("credit", 0L));
+        transactionService.create(transaction(entry(cash, "debit", 25), entry(revenue, "credit", 25)), null);
+        jdbcTemplate.update("UPDATE accounts SET balance = balance + 7 WHERE id = ?", revenue.getId());
+        try {
+            List<VerificationFindingResponse> findings = findingsFor(verifier.verify(), Set.of(cash.getId(), revenue.getId()));
+
+            assertEquals(1, findings.size());
+            assertEquals("account_drift", findings.get(0).getKind());
+            assertEquals(revenue.getId(), findings.get(0).getSubject());
+            assertEquals(25, findings.get(0).getExpected());
+            assertEquals(32, findings.get(0).getActual());
+        } finally {
+            jdbcTemplate.update("UPDATE accounts SET balance = balance - 7 WHERE id = ?", revenue.getId());
+        }
+    }
+
+    @Test
+    void reportsATransactionWhoseEntriesDoNotNetToZero() {
+        AccountResponse suspense = accountService.create(account("debit", 0L));
+        String transactionId = UUID.randomUUID().toString();
+        jdbcTemplate.update("INSERT INTO transactions (id, key) VALUES (?, (SELECT IFNULL(MAX(key), 0) + 1 FROM transactions))",
+            transactionId);
+        jdbcTemplate.update("INSERT INTO entries (id, transaction_key, account_key, direction, amount) "
+                + "SELECT ?, t.key, a.key, 'debit', 5 FROM transactions t, accounts a WHERE t.id = ? AND a.id = ?",
+            UUID.randomUUID().toString(), transactionId, suspense.getId());
+        jdbcTemplate.update("UPDATE accounts SET balance = balance + 5 WHERE id = ?", suspense.getId());
+
+        List<VerificationFindingResponse> findings = findingsFor(verifier.verify(), Set.of(transactionId, suspense.getId()));
+
+        assertEquals(1, findings.size());
+        assertEquals("unbalanced_transaction", findings.get(0).getKind());
+        assertEquals(0, findings.get(0).getExpected());
+        assertEquals(5, findings.get(0).getActual());
+    }
+
+    @Test
+    void resumesAnInterruptedRunFromItsLastCheckpoint() {
+        AccountResponse cash = accountService.create(account("debit", 0L));
+        AccountResponse revenue = accountService.create(account("credit", 0L));
+        transactionService.create(transaction(entry(cash, "debit", 40), entry(revenue, "credit", 40)), null);
+        long highWater = entryRepository.maxRowid();
+        long id = new TransactionTemplate(transactionManager).execute(status -> repository.insert(highWater));
+
+        VerificationResponse verification = verifier.verify();
+
+        assertEquals(id, verification.getId());
+        assertEquals("completed", verification.getStatus());
+        assertEquals(highWater, verification.getVerifiedSequence());
+        assertTrue(repository.findRunning().isEmpty());
+        assertEquals(List.of(), findingsFor(verification, Set.of(cash.getId(), revenue.getId())));
+    }
+
+    @Test
+    void aChunkIsSavedOnlyByTheFirstRunnerToClaimIt() {
+        AccountResponse cash = accountService.create(account("debit", 0L));
+        AccountResponse revenue = accountService.create(account("credit", 0L));
+        transactionService.create(transaction(entry(cash, "debit", 10), entry(revenue, "credit", 10)), null);
+        long accountKey = jdbcTemplate.queryForObject("SELECT key FROM accounts WHERE id = ?", Long.class, cash.getId());
+        long highWater = entryRepository.maxRowid();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        long id = transactionTemplate.execute(status -> repository.insert(highWater));
+        long start = repository.findById(id).orElseThrow().verifiedSequence();
+        try {
+            boolean first = transactionTemplate.execute(status ->
+                repository.saveProgress(id, start, highWater, null, 0, Map.of(accountKey, 10L), List.of()));
+            boolean second = transactionTemplate.execute(status ->
+                repository.saveProgress(id, start, highWater, null, 0, Map.of(accountKey, 10L), List.of()));
+
+            assertTrue(first);
+            assertFalse(second);
+
+            assertEquals(Map.of(accountKey, 10L), repository.findTotals(id));
+            assertEquals(highWater, repository.findById(id).orElseThrow().verifiedSequence());
+            assertFalse(repository.complete(id, start));
+        } finally {
+            assertTrue(repository.complete(id, highWater));
+        }
+    }
+
+    private static List<VerificationFindingResponse> findingsFor(VerificationResponse verification, Set<String> subjects) {
+        return verification.getFindings().stream().filter(finding -> subjects.contains(finding.getSubject())).toList();
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.ledger.service;
+
+import com.example.ledger.api.EntryRequest;
+import com.example.ledger.config.IdempotencyProperties;
+import com.example.ledger.config.IdempotencyProperties.HashAlgorithm;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestHasherTest {
+
+    @Test
+    void sha256MatchesFingerprintsStoredByTheStringBuilderImplementation() throws Exception {
+        List<EntryRequest> entries = List.of(
+            entry(null, "acct-1", "debit", 100L),
+            entry("e-2", "acct-2", "credit", 100L)
+        );
+        assertEquals(legacyHash(null, "transfer", entries), RequestHasher.hash(HashAlgorithm.SHA256, null, "transfer", entries));
+        assertEquals(legacyHash("tx-1", null, entries), RequestHasher.hash(HashAlgorithm.SHA256, "tx-1", null, entries));
+    }
+
+    @Test
+    void sha256MatchesForMultiByteTextAndSurrogatesSplitAcrossFields() throws Exception {
+        List<EntryRequest> entries = List.of(
+            entry("\uD83D", "\uDE00konto-\u00e9", "D\u00c9BIT", -42L),
+            entry("\uDE00", "\u20ac\u4e2d", "credit", Long.MIN_VALUE)
+        );
+        assertEquals(legacyHash("caf\u00e9\uD83D", "\uDE00", entries), RequestHasher.hash(HashAlgorithm.SHA256, "caf\u00e9\uD83D", "\uDE00", entries));
+    }
+
+    @Test
+    void sha256MatchesForPayloadsLargerThanTheEncodeBuffer() throws Exception {
+        List<EntryRequest> entries = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            entries.add(entry("entry-" + i, "account-\u00fc-" + i, i % 2 == 0 ? "debit" : "credit", (long) i));
+        }
+        assertEquals(legacyHash("big", "payroll", entries), RequestHasher.hash(HashAlgorithm.SHA256, "big", "payroll", entries));
+    }
+
+    @Test
+    void murmur3MatchesReferenceVector() {
+        Murmur3x64Digest digest = new Murmur3x64Digest();
+        byte[] input = "The quick brown fox jumps over the lazy dog".getBytes(StandardCharsets.UTF_8);
+        digest.update(input, 0, 10);
+        digest.update(input, 10, input.length - 10);
+        byte[] out = new byte[16];
+        digest.digest(out);
+        StringBuilder hex = new StringBuilder();
+        for (byte b : out) {
+            hex.append(String.format("%02x", b));
+        }
+        assertEquals("6c1b07bc7bbc4be347939ac4a93c437a", hex.toString());
+    }
+
+    @Test
+    void storedFingerprintsOfEitherAlgorithmKeepMatching() {
+        List<EntryRequest> entries = List.of(entry(null, "a", "debit", 5L), entry(null, "b", "credit", 5L));
+        List<EntryRequest> other = List.of(entry(null, "a", "debit", 6L), entry(null, "b", "credit", 6L));
+        String storedSha256 = RequestHasher.hash(HashAlgorithm.SHA256, null, "t", entries);
+
+        IdempotencyProperties properties = new IdempotencyProperties();
+        properties.setHashAlgorithm(HashAlgorithm.MURMUR3);
+        RequestHasher murmur = new RequestHasher(properties);
+        String current = murmur.hash(null, "t", entries);
+
+        assertTrue(current.startsWith(RequestHasher.MURMUR3_PREFIX));
+        assertTrue(murmur.matches(storedSha256, current, null, "t", entries));
+        assertFalse(murmur.matches(storedSha256, murmur.hash(null, "t", other), null, "t", other));
+    }
+
+    private static EntryRequest entry(String id, String accountId, String direction, Long amount) {
+        EntryRequest entry = new EntryRequest();
+        entry.setId(id);
+        entry.setAccountId(accountId);
+        entry.setDirection(direction);
+        entry.setAmount(amount);
+        return entry;
+    }
+
+    // The original TransactionService implementation, kept as the compatibility reference.
+    private static String legacyHash(String transactionId, String name, List<EntryRequest> entries) throws Exception {
+        StringBuilder builder = new StringBuilder();
+        builder.append(transactionId == null ? "" : transactionId).append('|').append(name == null ? "" : name).append('|');
+        for (EntryRequest entry : entries) {
+            builder.append(entry.getId() == null ? "" : entry.getId())
+                .append(',')
+                .append(entry.getAccountId())
+                .append(',')
+                .append(entry.getDirection())
+                .append(',')
+                .append(entry.getAmount())
+                .append(';');
+        }
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        byte[] hash = digest.digest(builder.toString().getBytes(StandardCharsets.UTF_8));
+        StringBuilder hex = new StringBuilder();
+        for (byte b : hash) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
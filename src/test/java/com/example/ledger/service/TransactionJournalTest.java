@@ -0,0 +1,231 @@
+package com.example.ledger.service;
+
+import com.example.ledger.api.AccountResponse;
+import com.example.ledger.api.TransactionResponse;
+import com.example.ledger.config.JournalProperties;
+import com.example.ledger.domain.Direction;
+import com.example.ledger.exception.ApiException;
+import com.example.ledger.repository.EntryRepository.EntryRow;
+import com.example.ledger.repository.IdempotencyRepository.IdempotencyRow;
+import com.example.ledger.repository.TransactionRepository.TransactionRow;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.example.ledger.LedgerRequests.account;
+import static com.example.ledger.LedgerRequests.transfer;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(properties = {
+    "ledger.journal.enabled=true",
+    "ledger.journal.max-wait=5ms"
+})
+@ActiveProfiles("test")
+class TransactionJournalTest {
+
+    @DynamicPropertySource
+    static void journalDirectory(DynamicPropertyRegistry registry) throws IOException {
+        Path directory = Files.createTempDirectory("ledger-journal");
+        registry.add("ledger.journal.directory", directory::toString);
+    }
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private TransactionJournal journal;
+
+    @Autowired
+    private JournalProperties journalProperties;
+
+    @Autowired
+    private AccountCache accountCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void acknowledgesFromTheJournalAndProjectsIntoTheTables() throws InterruptedException {
+        AccountResponse cash = accountService.create(account("debit"));
+        AccountResponse revenue = accountService.create(account("credit"));
+
+        TransactionResponse first = transactionService.create(transfer("journal-1", cash.getId(), revenue.getId(), 40), "journal-key");
+        TransactionResponse replayed = transactionService.create(transfer("journal-1", cash.getId(), revenue.getId(), 40), "journal-key");
+        assertEquals(first.getId(), replayed.getId());
+        ApiException duplicate = assertThrows(ApiException.class,
+            () -> transactionService.create(transfer("journal-1", cash.getId(), revenue.getId(), 40), null));
+        assertEquals("transaction_exists", duplicate.getCode());
+        transactionService.create(transfer(null, revenue.getId(), cash.getId(), 15), null);
+
+        assertEquals(25, accountService.getById(cash.getId()).getBalance());
+
+        awaitProjection();
+        assertEquals(25L, jdbcTemplate.queryForObject("SELECT balance FROM accounts WHERE id = ?", Long.class, cash.getId()));
+        assertEquals(4, jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM entries e JOIN accounts a ON a.key = e.account_key WHERE a.id IN (?, ?)", Integer.class, cash.getId(), revenue.getId()));
+        assertEquals("journal-1", jdbcTemplate.queryForObject(
+            "SELECT transaction_id FROM idempotency_keys WHERE key = 'journal-key'", String.class));
+        assertEquals(journal.projectedSequence(), jdbcTemplate.queryForObject(
+            "SELECT applied_sequence FROM journal_progress", Long.class));
+    }
+
+    @Test
+    void replaysRecordsThatWereNeverProjectedExactlyOnceOnRestart(@TempDir Path copy) throws Exception {
+        AccountResponse cash = accountService.create(account("debit"));
+        AccountResponse revenue = accountService.create(account("credit"));
+        transactionService.create(transfer("replay-0", cash.getId(), revenue.getId(), 10), "replay-key-0");
+        awaitProjection();
+        journal.stop();
+
+        // Durable in the journal but never projected, as if the process died before the projector ran.
+        Path directory = Path.of(journalProperties.getDirectory());
+        long first = journal.acceptedSequence() + 1;
+        JournalSegment segment = JournalSegment.create(directory, first, 4096);
+        segment.append(transferRecord(first, cash, revenue, 20).encode());
+        segment.append(transferRecord(first + 1, cash, revenue, 30).encode());
+        segment.close();
+        segment = JournalSegment.create(directory, first + 2, 4096);
+        segment.append(transferRecord(first + 2, cash, revenue, 40).encode());
+        segment.close();
+        for (long firstSequence : List.of(first, first + 2)) {
+            Files.copy(directory.resolve(JournalSegment.fileName(firstSequence)), copy.resolve(JournalSegment.fileName(firstSequence)));
+        }
+
+        journal.start();
+        assertAppliedOnce(cash, revenue, first, 100);
+
+        // A crash after projecting but before the segments were deleted leaves them to be read again.
+        journal.stop();
+        try (var files = Files.list(copy)) {
+            for (Path file : files.toList()) {
+                Files.copy(file, directory.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        journal.start();
+        assertAppliedOnce(cash, revenue, first, 100);
+
+        transactionService.create(transfer(cash.getId(), revenue.getId(), 5), null);
+        awaitProjection();
+        assertEquals(first + 3, journal.projectedSequence());
+        assertEquals(105L, jdbcTemplate.queryForObject("SELECT balance FROM accounts WHERE id = ?", Long.class, cash.getId()));
+    }
+
+    @Test
+    void showsABatchToOtherReadersOnlyOnceItIsDurable() throws InterruptedException {
+        AccountResponse cash = accountService.create(account("debit"));
+        AccountResponse revenue = accountService.create(account("credit"));
+        Map<String, Long> deltas = Map.of(cash.getId(), 25L, revenue.getId(), 25L);
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+        try {
+            long[] seen = journal.submit(() -> {
+                journal.append(List.of(new TransactionRow("staged-1", null)),
+                    List.of(new EntryRow("staged-1-debit", "staged-1", cash.getId(), Direction.DEBIT, 25),
+                        new EntryRow("staged-1-credit", "staged-1", revenue.getId(), Direction.CREDIT, 25)),
+                    deltas, List.of(), Map.of());
+                accountCache.stageBalanceDeltas(deltas);
+                long appender = accountCache.find(cash.getId()).orElseThrow().balance();
+                long other = CompletableFuture.supplyAsync(() -> accountCache.find(cash.getId()).orElseThrow().balance(), reader).join();
+                return new long[] {appender, other};
+            });
+            assertEquals(25, seen[0]);
+            assertEquals(0, seen[1]);
+        } finally {
+            reader.shutdownNow();
+        }
+
+        assertEquals(25, accountService.getById(cash.getId()).getBalance());
+        awaitProjection();
+        assertEquals(25L, jdbcTemplate.queryForObject("SELECT balance FROM accounts WHERE id = ?", Long.class, cash.getId()));
+    }
+
+    @Test
+    void readsSegmentsUpToATornRecord(@TempDir Path directory) throws IOException {
+        JournalSegment segment = JournalSegment.create(directory, 1, 4096);
+        List<byte[]> payloads = new ArrayList<>();
+        for (long sequence = 1; sequence <= 3; sequence++) {
+            byte[] payload = record(sequence).encode();
+            payloads.add(payload);
+            segment.append(payload);
+        }
+        segment.close();
+
+        long tornAt = 2L * 8 + payloads.get(0).length + payloads.get(1).length;
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve(JournalSegment.fileName(1)).toFile(), "rw")) {
+            file.seek(tornAt + 8 + 5);
+            file.writeByte(0x7f);
+        }
+
+        List<JournalRecord> read = new ArrayList<>();
+        long validBytes = JournalSegment.existing(directory.resolve(JournalSegment.fileName(1))).read(read::add);
+        assertEquals(tornAt, validBytes);
+        assertEquals(List.of(1L, 2L), read.stream().map(JournalRecord::sequence).toList());
+        assertEquals(record(2), read.get(1));
+    }
+
+    private void awaitProjection() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (journal.projectedSequence() < journal.acceptedSequence() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(journal.acceptedSequence(), journal.projectedSequence());
+    }
+
+    private void assertAppliedOnce(AccountResponse cash, AccountResponse revenue, long first, long balance) {
+        assertEquals(first + 2, journal.acceptedSequence());
+        assertEquals(first + 2, jdbcTemplate.queryForObject("SELECT applied_sequence FROM journal_progress", Long.class));
+        for (String transactionId : List.of("replay-0", "replay-" + first, "replay-" + (first + 1), "replay-" + (first + 2))) {
+            assertEquals(1, count("SELECT COUNT(*) FROM transactions WHERE id = ?", transactionId));
+            assertEquals(2, count("SELECT COUNT(*) FROM entries e JOIN transactions t ON t.key = e.transaction_key WHERE t.id = ?", transactionId));
+            assertEquals(1, count("SELECT COUNT(*) FROM idempotency_keys WHERE transaction_id = ?", transactionId));
+        }
+        for (AccountResponse account : List.of(cash, revenue)) {
+            assertEquals(balance, jdbcTemplate.queryForObject("SELECT balance FROM accounts WHERE id = ?", Long.class, account.getId()));
+            assertEquals(balance, accountService.getById(account.getId()).getBalance());
+        }
+    }
+
+    private int count(String sql, String arg) {
+        return jdbcTemplate.queryForObject(sql, Integer.class, arg);
+    }
+
+    private static JournalRecord transferRecord(long sequence, AccountResponse debit, AccountResponse credit, long amount) {
+        String transactionId = "replay-" + sequence;
+        return new JournalRecord(sequence, System.currentTimeMillis(),
+            List.of(new TransactionRow(transactionId, null)),
+            List.of(new EntryRow(transactionId + "-debit", transactionId, debit.getId(), Direction.DEBIT, amount),
+                new EntryRow(transactionId + "-credit", transactionId, credit.getId(), Direction.CREDIT, amount)),
+            Map.of(debit.getId(), amount, credit.getId(), amount),
+            List.of(new IdempotencyRow("replay-key-" + sequence, "hash", transactionId)));
+    }
+
+    private static JournalRecord record(long sequence) {
+        String transactionId = "t" + sequence;
+        return new JournalRecord(sequence, 1_700_000_000_000L + sequence,
+            List.of(new TransactionRow(transactionId, sequence == 2 ? null : "name")),
+            List.of(new EntryRow("e" + sequence, transactionId, "a", Direction.DEBIT, sequence),
+                new EntryRow("f" + sequence, transactionId, "b", Direction.CREDIT, sequence)),
+            Map.of("a", sequence, "b", sequence),
+            List.of(new IdempotencyRow("k" + sequence, "hash", transactionId)));
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.ledger.service;
+
+import com.example.ledger.api.AccountResponse;
+import com.example.ledger.api.TrialBalanceResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+
+import static com.example.ledger.LedgerRequests.account;
+import static com.example.ledger.LedgerRequests.entry;
+import static com.example.ledger.LedgerRequests.transaction;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "ledger.trial-balance.verify.repair=true")
+@ActiveProfiles("test")
+class TrialBalanceTest {
+
+    @Autowired
+    private TrialBalanceService trialBalanceService;
+
+    @Autowired
+    private TrialBalanceVerifier trialBalanceVerifier;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private AccountShards accountShards;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void keepsTheTotalsOfBothDirectionsCurrent() {
+        TrialBalanceResponse before = trialBalanceService.get();
+
+        AccountResponse cash = accountService.create(account("debit", 100L));
+        AccountResponse revenue = accountService.create(account("credit", 0L));
+        AccountResponse fees = accountService.create(account("credit", 0L));
+        accountShards.shard(revenue.getId(), 4);
+        transactionService.create(transaction(entry(cash, "debit", 30), entry(revenue, "credit", 25),
+            entry(fees, "credit", 5)), null);
+        transactionService.create(transaction(entry(revenue, "debit", 10), entry(cash, "credit", 10)), null);
+
+        TrialBalanceResponse after = trialBalanceService.get();
+        assertEquals(1, after.getDebit().getAccounts() - before.getDebit().getAccounts());
+        assertEquals(2, after.getCredit().getAccounts() - before.getCredit().getAccounts());
+        assertEquals(120, after.getDebit().getBalance() - before.getDebit().getBalance());
+        assertEquals(20, after.getCredit().getBalance() - before.getCredit().getBalance());
+        assertEquals(100, after.getDifference() - before.getDifference());
+    }
+
+    @Test
+    void rebuildsCountersThatNoLongerMatchTheAccounts() {
+        trialBalanceVerifier.verify();
+        TrialBalanceResponse before = trialBalanceService.get();
+        jdbcTemplate.update("UPDATE trial_balance SET balance = balance + 9 WHERE direction = 'credit'");
+
+        assertFalse(trialBalanceVerifier.verify());
+        assertTrue(trialBalanceVerifier.verify());
+        assertEquals(before.getCredit().getBalance(), trialBalanceService.get().getCredit().getBalance());
+    }
+}